@@ -0,0 +1,45 @@
+package org.micro.bench;
+
+import org.micro.commons.AntPathMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AntPathMatcher#match(String, String)} 基准
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AntPathMatcherBenchmark {
+
+    @Param({"/user/info", "/user/*/info", "/user/**/info", "/user/{id}/info", "/static/**/*.js"})
+    public String pattern;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Benchmark
+    public boolean matchHit() {
+        return pathMatcher.match(pattern, "/user/1024/info");
+    }
+
+    @Benchmark
+    public boolean matchMiss() {
+        return pathMatcher.match(pattern, "/order/1024/detail/items");
+    }
+
+}
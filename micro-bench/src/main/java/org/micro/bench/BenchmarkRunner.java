@@ -0,0 +1,54 @@
+package org.micro.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试入口
+ * <p>
+ * 支持JMH的所有命令行参数，如 {@code java -jar benchmarks.jar Cache -p size=1024 -bm sample}。
+ * 未指定 {@code -t} 时，按系统属性 {@code bench.threads}（默认 1,4,16）中的每个线程数各跑一轮，
+ * 所有结果合并写入 {@code bench.result}（默认 target/jmh-result.json），用于和基线对比发现性能回退。
+ *
+ * @author lry
+ */
+public class BenchmarkRunner {
+
+    public static final String THREADS_KEY = "bench.threads";
+    public static final String RESULT_KEY = "bench.result";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        List<Integer> threadCounts = new ArrayList<>();
+        if (cmd.getThreads().hasValue()) {
+            threadCounts.add(cmd.getThreads().get());
+        } else {
+            for (String threads : System.getProperty(THREADS_KEY, "1,4,16").split(",")) {
+                threadCounts.add(Integer.parseInt(threads.trim()));
+            }
+        }
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder().parent(cmd).threads(threads).shouldFailOnError(true).build();
+            results.addAll(new Runner(options).run());
+        }
+
+        File result = new File(System.getProperty(RESULT_KEY, "target/jmh-result.json"));
+        if (result.getParentFile() != null) {
+            result.getParentFile().mkdirs();
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, result.getPath()).writeOut(results);
+        System.out.println("The benchmark result: " + result.getAbsolutePath());
+    }
+
+}
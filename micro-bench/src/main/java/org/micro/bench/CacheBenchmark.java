@@ -0,0 +1,114 @@
+package org.micro.bench;
+
+import org.micro.cache.Cache;
+import org.micro.cache.Serializer;
+import org.micro.cache.support.ConcurrentCache;
+import org.micro.cache.support.FIFOCache;
+import org.micro.cache.support.LFUCache;
+import org.micro.cache.support.LRUCache;
+import org.micro.cache.support.LoadingCache;
+import org.micro.cache.support.OffHeapCache;
+import org.micro.cache.support.TimedCache;
+import org.micro.cache.support.TinyLFUCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * org.micro.cache 各实现的读写基准
+ * <p>
+ * 键空间为容量的2倍，读命中率约50%，写入会触发淘汰
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    @Param({"lru", "lfu", "fifo", "timed", "concurrent", "tinylfu", "loading", "offheap"})
+    public String type;
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private Cache<String, String> cache;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = newCache(type, size);
+        keys = new String[size * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key-" + i;
+        }
+        for (int i = 0; i < size; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (cache instanceof Closeable) {
+            ((Closeable) cache).close();
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+
+    @Benchmark
+    public void put() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        cache.put(key, key);
+    }
+
+    @Benchmark
+    public String computeIfAbsent() {
+        return cache.computeIfAbsent(keys[ThreadLocalRandom.current().nextInt(keys.length)], k -> k);
+    }
+
+    static Cache<String, String> newCache(String type, int size) {
+        switch (type) {
+            case "lru":
+                return new LRUCache<>(size);
+            case "lfu":
+                return new LFUCache<>(size);
+            case "fifo":
+                return new FIFOCache<>(size);
+            case "timed":
+                return new TimedCache<>(60_000);
+            case "concurrent":
+                return new ConcurrentCache<>(size);
+            case "tinylfu":
+                return new TinyLFUCache<>(size);
+            case "loading":
+                return new LoadingCache<>(size, 60_000, 0, k -> k);
+            case "offheap":
+                return new OffHeapCache<>(size * 256L, Serializer.string(), Serializer.string());
+            default:
+                throw new IllegalArgumentException("Unknown cache type: " + type);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.micro.bench;
+
+import org.micro.cache.Cache;
+import org.micro.cache.support.ConcurrentCache;
+import org.micro.cache.support.FIFOCache;
+import org.micro.cache.support.LFUCache;
+import org.micro.cache.support.LRUCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程竞争下 {@link ConcurrentCache} 与基于全局读写锁的实现的吞吐对比
+ * <p>
+ * key按偏斜分布访问，热点集中在低位；默认8个线程，可以通过 <code>-t</code> 调整线程数
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CacheContentionBenchmark {
+
+    private static final int CAPACITY = 10_000;
+    private static final int KEY_SPACE = CAPACITY * 2;
+
+    @Param({"lru", "concurrent-lru", "lfu", "concurrent-lfu", "fifo", "concurrent-fifo"})
+    public String type;
+
+    @Param({"90"})
+    public int readPercent;
+
+    private Cache<Integer, Integer> cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = newCache(type);
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put(i, i);
+        }
+    }
+
+    @Benchmark
+    public Integer readWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = (int) (KEY_SPACE * Math.pow(random.nextDouble(), 3));
+        if (random.nextInt(100) < readPercent) {
+            return cache.get(key);
+        }
+
+        cache.put(key, key);
+        return key;
+    }
+
+    static Cache<Integer, Integer> newCache(String type) {
+        switch (type) {
+            case "lru":
+                return new LRUCache<>(CAPACITY);
+            case "concurrent-lru":
+                return new ConcurrentCache<>(ConcurrentCache.Policy.LRU, CAPACITY, 0);
+            case "lfu":
+                return new LFUCache<>(CAPACITY);
+            case "concurrent-lfu":
+                return new ConcurrentCache<>(ConcurrentCache.Policy.LFU, CAPACITY, 0);
+            case "fifo":
+                return new FIFOCache<>(CAPACITY);
+            case "concurrent-fifo":
+                return new ConcurrentCache<>(ConcurrentCache.Policy.FIFO, CAPACITY, 0);
+            default:
+                throw new IllegalArgumentException("Unknown cache type: " + type);
+        }
+    }
+
+}
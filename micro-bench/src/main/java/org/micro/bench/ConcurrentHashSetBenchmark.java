@@ -0,0 +1,62 @@
+package org.micro.bench;
+
+import org.micro.collection.ConcurrentHashSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConcurrentHashSet} 读写基准，键空间为初始元素数的2倍
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentHashSetBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private ConcurrentHashSet<Integer> set;
+    private Integer[] elements;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        set = new ConcurrentHashSet<>(size);
+        elements = new Integer[size * 2];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            set.add(elements[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(elements[ThreadLocalRandom.current().nextInt(elements.length)]);
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        Integer element = elements[ThreadLocalRandom.current().nextInt(elements.length)];
+        return set.add(element) && set.remove(element);
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.micro.bench;
+
+import org.micro.extension.ExtensionLoader;
+import org.micro.metric.Metric;
+import org.micro.thread.ThreadPoolExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExtensionLoader#getExtension(String)} 基准，分别覆盖单例和多例扩展点
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtensionLoaderBenchmark {
+
+    @Benchmark
+    public Metric getSingletonExtension() {
+        return ExtensionLoader.getLoader(Metric.class).getExtension("thread");
+    }
+
+    @Benchmark
+    public ThreadPoolExecutorFactory.ThreadPool getPrototypeExtension() {
+        return ExtensionLoader.getLoader(ThreadPoolExecutorFactory.ThreadPool.class).getExtension("fixed");
+    }
+
+}
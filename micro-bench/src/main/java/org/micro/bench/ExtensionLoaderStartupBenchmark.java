@@ -0,0 +1,79 @@
+package org.micro.bench;
+
+import org.micro.extension.ExtensionLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExtensionLoader} 冷启动基准：每次调用在新的 {@link URLClassLoader} 中加载全部 Metric 扩展，
+ * scan=true 为扫描classpath（索引之前的方式），scan=default 为读取注解处理器生成的索引并扫描没有索引的jar，
+ * scan=false 为只读取索引
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class ExtensionLoaderStartupBenchmark {
+
+    @Param({"default", "false", "true"})
+    public String scan;
+
+    private URL[] classpath;
+    private URLClassLoader classLoader;
+
+    @Setup
+    public void setup() throws Exception {
+        if ("default".equals(scan)) {
+            System.clearProperty(ExtensionLoader.SCAN_KEY);
+        } else {
+            System.setProperty(ExtensionLoader.SCAN_KEY, scan);
+        }
+        String[] paths = System.getProperty("java.class.path").split(File.pathSeparator);
+        classpath = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            classpath[i] = new File(paths[i]).toURI().toURL();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() throws Exception {
+        classLoader = new URLClassLoader(classpath, ClassLoader.getSystemClassLoader().getParent());
+        // 提前初始化日志，只测量扩展点的加载
+        Class.forName("org.slf4j.LoggerFactory", true, classLoader).getMethod("getLogger", String.class).invoke(null, "bench");
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @Benchmark
+    public Object loadExtensions() throws Exception {
+        Class<?> loaderClass = Class.forName("org.micro.extension.ExtensionLoader", true, classLoader);
+        Class<?> metricClass = Class.forName("org.micro.metric.Metric", true, classLoader);
+        Object loader = loaderClass.getMethod("getLoader", Class.class, ClassLoader.class).invoke(null, metricClass, classLoader);
+        return loaderClass.getMethod("getExtensions").invoke(loader);
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.micro.bench;
+
+import org.micro.cache.LongKeyCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongKeyCache} 基本类型接口的读写基准
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongKeyCacheBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private LongKeyCache<String> cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = new LongKeyCache<>(size);
+        for (long i = 0; i < size; i++) {
+            cache.put(i, "value");
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(ThreadLocalRandom.current().nextLong(size * 2L));
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(ThreadLocalRandom.current().nextLong(size * 2L), "value");
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.micro.bench;
+
+import org.micro.commons.AntPathMatcher;
+import org.micro.commons.PathPatternSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PathPatternSet} 与逐个调用 {@link AntPathMatcher#match(String, String)} 的对比基准
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPatternSetBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int patternCount;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private List<String> patterns;
+    private PathPatternSet patternSet;
+    private int[] result;
+
+    @Setup
+    public void setup() {
+        patterns = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    patterns.add("/module" + i + "/user/info");
+                    break;
+                case 1:
+                    patterns.add("/module" + i + "/*/list");
+                    break;
+                case 2:
+                    patterns.add("/module" + i + "/**/detail");
+                    break;
+                default:
+                    patterns.add("/module" + i + "/{id}/edit");
+                    break;
+            }
+        }
+        patterns.add("/static/**/*.js");
+        patternSet = new PathPatternSet(patterns);
+        result = new int[patterns.size()];
+    }
+
+    @Benchmark
+    public int antPathMatcherLoop() {
+        int matched = 0;
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, "/static/lib/jquery/jquery.min.js")) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int patternSet() {
+        return patternSet.match("/static/lib/jquery/jquery.min.js", result);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.micro.bench;
+
+import org.micro.ImmutableURL;
+import org.micro.URL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link URL#valueOf(String)} 与 {@link ImmutableURL} 基准
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLBenchmark {
+
+    private final String simple = "micro://127.0.0.1:8080/org.micro.DemoService";
+    private final String full = "micro://127.0.0.1:8080/org.micro.DemoService"
+            + "?application=demo&group=default&version=1.0.0&timeout=3000&retries=2&loadbalance=random";
+
+    @Benchmark
+    public URL valueOfSimple() {
+        return URL.valueOf(simple);
+    }
+
+    @Benchmark
+    public URL valueOfFull() {
+        return URL.valueOf(full);
+    }
+
+    @Benchmark
+    public ImmutableURL immutableValueOfFull() {
+        return ImmutableURL.valueOf(full);
+    }
+
+    @Benchmark
+    public ImmutableURL immutableOfFull() {
+        return ImmutableURL.of(full);
+    }
+
+    @Benchmark
+    public int getIntParameter() {
+        return URL.valueOf(full).getParameter("timeout", 0);
+    }
+
+    @Benchmark
+    public int immutableGetIntParameter() {
+        return ImmutableURL.of(full).getParameter("timeout", 0);
+    }
+
+}
@@ -0,0 +1,536 @@
+package org.micro;
+
+import org.micro.cache.Cache;
+import org.micro.cache.CacheRegistry;
+import org.micro.cache.support.ConcurrentCache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable URL
+ * <p>
+ * {@link URL} 的不可变版本，可以安全地作为缓存或注册表的key：
+ * <p>
+ * 1.{@link #valueOf(String)} 从左到右扫描一遍解析，语义与 {@link URL#valueOf(String)} 一致<br>
+ * 2.参数按名称排序存放，构造时预先解析数值，类型化的 getParameter 不再解析字符串<br>
+ * 3.hashCode 和 toString 在构造时计算，toString 为规范形式，可以被 {@link #valueOf(String)} 还原<br>
+ * 4.{@link #of(String)} 返回驻留的实例，相同的URL共享同一个对象，驻留池为有界缓存，按访问频率淘汰，
+ * 以 {@link #INTERN_CACHE_NAME} 注册到 {@link CacheRegistry}<br>
+ * 5.修改类方法（addParameter等）返回新的实例
+ *
+ * @author lry
+ */
+public final class ImmutableURL implements Serializable {
+
+    private static final long serialVersionUID = 6027352812916484380L;
+
+    public static final String INTERN_CACHE_NAME = "url_intern";
+
+    private static final int INTERN_CAPACITY = 4096;
+    private static final Cache<String, ImmutableURL> INTERNED = CacheRegistry.register(INTERN_CACHE_NAME,
+            new ConcurrentCache<String, ImmutableURL>(ConcurrentCache.Policy.TINY_LFU, INTERN_CAPACITY, 0));
+
+    private static final String[] EMPTY = new String[0];
+
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String path;
+
+    /**
+     * 按名称排序的参数名
+     */
+    private final String[] names;
+    private final String[] values;
+    /**
+     * 预先解析的参数值，非数值时对应的 numeric 为false
+     */
+    private final boolean[] numeric;
+    private final long[] longValues;
+    private final boolean[] decimal;
+    private final float[] floatValues;
+    private final double[] doubleValues;
+
+    private final int hashCode;
+    private final String string;
+    private transient volatile Map<String, String> parameters;
+
+    private ImmutableURL(String protocol, String host, int port, String path, String[] names, String[] values) {
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.path = path;
+        this.names = names;
+        this.values = values;
+
+        this.numeric = new boolean[names.length];
+        this.longValues = new long[names.length];
+        this.decimal = new boolean[names.length];
+        this.floatValues = new float[names.length];
+        this.doubleValues = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String value = values[i];
+            if (isLong(value)) {
+                try {
+                    longValues[i] = Long.parseLong(value);
+                    numeric[i] = true;
+                } catch (NumberFormatException e) {
+                    // 超出long范围
+                }
+            }
+            if (isDecimal(value)) {
+                try {
+                    floatValues[i] = Float.parseFloat(value);
+                    doubleValues[i] = Double.parseDouble(value);
+                    decimal[i] = true;
+                } catch (NumberFormatException e) {
+                    // 非数值
+                }
+            }
+        }
+
+        this.string = buildString();
+        this.hashCode = string.hashCode();
+    }
+
+    public ImmutableURL(String protocol, String host, int port, String path) {
+        this(protocol, host, port, path, EMPTY, EMPTY);
+    }
+
+    public ImmutableURL(String protocol, String host, int port, String path, Map<String, String> parameters) {
+        this(protocol, host, port, path, sortedNames(parameters), parameters);
+    }
+
+    private ImmutableURL(String protocol, String host, int port, String path, String[] names, Map<String, String> parameters) {
+        this(protocol, host, port, path, names, valuesOf(names, parameters));
+    }
+
+    /**
+     * 解析URL，不驻留
+     *
+     * @param url URL字符串
+     * @return URL
+     */
+    public static ImmutableURL valueOf(String url) {
+        if (url == null || url.length() == 0) {
+            throw new NullPointerException("url is null");
+        }
+
+        int length = url.length();
+        int end = url.indexOf('?');
+        if (end < 0) {
+            end = length;
+        }
+
+        // 一次扫描找到第一个 "://" 和第一个 ":/"，"://" 优先
+        int colonSlash = -1;
+        int protocolEnd = -1;
+        int start = 0;
+        for (int i = 0; i < end - 1; i++) {
+            if (url.charAt(i) == ':' && url.charAt(i + 1) == '/') {
+                if (i + 2 < end && url.charAt(i + 2) == '/') {
+                    protocolEnd = i;
+                    start = i + 3;
+                    break;
+                }
+                if (colonSlash < 0) {
+                    colonSlash = i;
+                }
+            }
+        }
+        if (protocolEnd < 0 && colonSlash >= 0) {
+            protocolEnd = colonSlash;
+            start = colonSlash + 1;
+        }
+        if (protocolEnd == 0) {
+            throw new IllegalStateException("url missing protocol: \"" + url.substring(0, end) + "\"");
+        }
+        String protocol = protocolEnd > 0 ? url.substring(0, protocolEnd) : null;
+
+        String path = null;
+        int hostEnd = url.indexOf('/', start);
+        if (hostEnd >= 0 && hostEnd < end) {
+            path = url.substring(hostEnd + 1, end);
+        } else {
+            hostEnd = end;
+        }
+
+        int port = 0;
+        int colon = url.indexOf(':', start);
+        if (colon >= 0 && colon < hostEnd - 1) {
+            port = Integer.parseInt(url.substring(colon + 1, hostEnd));
+        } else {
+            colon = hostEnd;
+        }
+        String host = colon > start ? url.substring(start, colon) : null;
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (int i = end + 1; i < length; ) {
+            int next = url.indexOf('&', i);
+            if (next < 0) {
+                next = length;
+            }
+
+            // 去掉首尾空白
+            int from = i;
+            int to = next;
+            while (from < to && url.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && url.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                int eq = url.indexOf('=', from);
+                if (eq >= 0 && eq < to) {
+                    parameters.put(url.substring(from, eq), url.substring(eq + 1, to));
+                } else {
+                    String part = url.substring(from, to);
+                    parameters.put(part, part);
+                }
+            }
+            i = next + 1;
+        }
+
+        return new ImmutableURL(protocol, host, port, path, parameters);
+    }
+
+    /**
+     * 解析并驻留URL，相同URL字符串或相同规范形式的URL返回同一个实例
+     *
+     * @param url URL字符串
+     * @return 驻留的URL
+     */
+    public static ImmutableURL of(String url) {
+        ImmutableURL interned = INTERNED.get(url);
+        if (interned != null) {
+            return interned;
+        }
+
+        interned = valueOf(url).intern();
+        if (!url.equals(interned.string)) {
+            INTERNED.put(url, interned);
+        }
+        return interned;
+    }
+
+    /**
+     * @param url 可变URL
+     * @return 驻留的URL
+     */
+    public static ImmutableURL of(URL url) {
+        return new ImmutableURL(url.getProtocol(), url.getHost(), url.getPort(), url.getPath(), url.getParameters()).intern();
+    }
+
+    /**
+     * @return 驻留池中与本URL相等的实例，不存在时驻留本实例
+     */
+    public ImmutableURL intern() {
+        ImmutableURL interned = INTERNED.get(string);
+        if (interned != null) {
+            return interned;
+        }
+
+        INTERNED.put(string, this);
+        return this;
+    }
+
+    /**
+     * @return 可变的 {@link URL} 副本
+     */
+    public URL toURL() {
+        return new URL(protocol, host, port, path, new LinkedHashMap<>(getParameters()));
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getVersion() {
+        return getParameter(URL.VERSION_KEY, URL.VERSION_DEFAULT);
+    }
+
+    public String getGroup() {
+        return getParameter(URL.GROUP_KEY);
+    }
+
+    public String getApplication() {
+        return getParameter(URL.APPLICATION_KEY);
+    }
+
+    public String getModule() {
+        return getParameter(URL.MODULE_KEY);
+    }
+
+    public String getBackup() {
+        return getParameter(URL.BACKUP_KEY);
+    }
+
+    /**
+     * @return 只读的参数，按名称排序
+     */
+    public Map<String, String> getParameters() {
+        Map<String, String> map = parameters;
+        if (map == null) {
+            map = new LinkedHashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                map.put(names[i], values[i]);
+            }
+            parameters = map = Collections.unmodifiableMap(map);
+        }
+        return map;
+    }
+
+    private int indexOf(String name) {
+        return name == null ? -1 : Arrays.binarySearch(names, name);
+    }
+
+    public String getParameter(String name) {
+        int i = indexOf(name);
+        return i < 0 ? null : values[i];
+    }
+
+    public String getParameter(String name, String defaultValue) {
+        String value = getParameter(name);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean hasParameter(String name) {
+        int i = indexOf(name);
+        return i >= 0 && values[i].length() > 0;
+    }
+
+    public boolean getParameter(String name, boolean defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || values[i].length() == 0) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(values[i]);
+    }
+
+    public int getParameter(String name, int defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || values[i].length() == 0) {
+            return defaultValue;
+        }
+        if (numeric[i] && longValues[i] == (int) longValues[i]) {
+            return (int) longValues[i];
+        }
+        return Integer.parseInt(values[i]);
+    }
+
+    public long getParameter(String name, long defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || values[i].length() == 0) {
+            return defaultValue;
+        }
+        return numeric[i] ? longValues[i] : Long.parseLong(values[i]);
+    }
+
+    public float getParameter(String name, float defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || values[i].length() == 0) {
+            return defaultValue;
+        }
+        return decimal[i] ? floatValues[i] : Float.parseFloat(values[i]);
+    }
+
+    public double getParameter(String name, double defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || values[i].length() == 0) {
+            return defaultValue;
+        }
+        return decimal[i] ? doubleValues[i] : Double.parseDouble(values[i]);
+    }
+
+    public <E extends Enum<E>> E getParameter(String name, E defaultValue) {
+        String value = getParameter(name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+
+        for (E e : defaultValue.getDeclaringClass().getEnumConstants()) {
+            if (e.name().equals(value)) {
+                return e;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return 增加或替换参数后的新URL，参数无效时返回本实例
+     */
+    public ImmutableURL addParameter(String name, Object value) {
+        if (name == null || name.length() == 0 || value == null) {
+            return this;
+        }
+
+        String str = String.valueOf(value);
+        if (str.equals(getParameter(name))) {
+            return this;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>(getParameters());
+        map.put(name, str);
+        return new ImmutableURL(protocol, host, port, path, map);
+    }
+
+    /**
+     * @return 增加或替换参数后的新URL
+     */
+    public ImmutableURL addParameters(Map<String, String> params) {
+        if (params == null || params.isEmpty()) {
+            return this;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>(getParameters());
+        map.putAll(params);
+        return new ImmutableURL(protocol, host, port, path, map);
+    }
+
+    /**
+     * @return 删除参数后的新URL，参数不存在时返回本实例
+     */
+    public ImmutableURL removeParameter(String name) {
+        if (indexOf(name) < 0) {
+            return this;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>(getParameters());
+        map.remove(name);
+        return new ImmutableURL(protocol, host, port, path, map);
+    }
+
+    public ImmutableURL setHost(String host) {
+        return Objects.equals(this.host, host) ? this : new ImmutableURL(protocol, host, port, path, names, values);
+    }
+
+    public ImmutableURL setPort(int port) {
+        return this.port == port ? this : new ImmutableURL(protocol, host, port, path, names, values);
+    }
+
+    public ImmutableURL setPath(String path) {
+        return Objects.equals(this.path, path) ? this : new ImmutableURL(protocol, host, port, path, names, values);
+    }
+
+    public String getUri() {
+        return protocol + "://" + host + ":" + port + "/" + path;
+    }
+
+    private String buildString() {
+        StringBuilder builder = new StringBuilder(64);
+        if (protocol != null) {
+            builder.append(protocol).append("://");
+        }
+        if (host != null) {
+            builder.append(host);
+        }
+        if (port > 0) {
+            builder.append(':').append(port);
+        }
+        if (path != null) {
+            builder.append('/').append(path);
+        }
+        for (int i = 0; i < names.length; i++) {
+            builder.append(i == 0 ? '?' : '&').append(names[i]).append('=').append(values[i]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ImmutableURL)) {
+            return false;
+        }
+
+        ImmutableURL other = (ImmutableURL) obj;
+        return hashCode == other.hashCode && string.equals(other.string);
+    }
+
+    /**
+     * @return 规范形式：protocol://host:port/path?k1=v1&amp;k2=v2，参数按名称排序
+     */
+    @Override
+    public String toString() {
+        return string;
+    }
+
+    private static boolean isLong(String value) {
+        int length = value.length();
+        if (length == 0 || length > 20) {
+            return false;
+        }
+
+        int i = (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        if (i == length) {
+            return false;
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDecimal(String value) {
+        if (value.length() == 0) {
+            return false;
+        }
+
+        char c = value.charAt(0);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    private static String[] sortedNames(Map<String, String> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] names = new String[parameters.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Illegal parameter: " + entry);
+            }
+            names[i++] = entry.getKey();
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    private static String[] valuesOf(String[] names, Map<String, String> parameters) {
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = parameters.get(names[i]);
+        }
+        return values;
+    }
+
+}
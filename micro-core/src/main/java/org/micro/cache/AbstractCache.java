@@ -1,9 +1,32 @@
 package org.micro.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.micro.commons.FileLock;
+import org.micro.commons.SystemClock;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * 超时和限制大小的缓存的默认实现<br>
@@ -16,8 +39,13 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * @param <K> 键类型
  * @param <V> 值类型
  */
+@Slf4j
 public abstract class AbstractCache<K, V> implements Cache<K, V>, Iterable<V>{
 
+	/** 快照文件头 */
+	private static final int SNAPSHOT_MAGIC = 0x4D434B53;
+	private static final int SNAPSHOT_VERSION = 1;
+
 	protected Map<K, CacheObj<K, V>> cacheMap;
 
 	private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
@@ -32,10 +60,17 @@ public abstract class AbstractCache<K, V> implements Cache<K, V>, Iterable<V>{
 	/** 每个对象是否有单独的失效时长，用于决定清理过期对象是否有必要。 */
 	protected boolean existCustomTimeout;
 	
-	/** 命中数 */
-	protected int hitCount;
-	/** 丢失数 */
-	protected int missCount;
+	/** 命中、丢失、加载、淘汰和过期统计 */
+	protected final CacheStats stats = new CacheStats();
+
+	/** 过期时间轮，为<code>null</code>时只能通过 {@link #prune()} 全量清理过期对象 */
+	protected volatile TimerWheel<CacheObj<K, V>> timerWheel;
+
+	/** 合并同一个key的并发加载 */
+	private final SingleFlight<K, V> singleFlight = new SingleFlight<K, V>();
+
+	/** 定时快照 */
+	private Timer snapshotTimer;
 	
 	// ---------------------------------------------------------------- put start
 	@Override
@@ -48,61 +83,242 @@ public abstract class AbstractCache<K, V> implements Cache<K, V>, Iterable<V>{
 		writeLock.lock();
 
 		try {
-			CacheObj<K, V> co = new CacheObj<K, V>(key, object, timeout);
-			if (timeout != 0) {
-				existCustomTimeout = true;
-			}
-			if (isFull()) {
-				pruneCache();
+			putWithoutLock(key, object, timeout);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 批量加入缓存，只获取一次写锁
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		writeLock.lock();
+
+		try {
+			for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+				putWithoutLock(entry.getKey(), entry.getValue(), timeout);
 			}
-			cacheMap.put(key, co);
 		} finally {
 			writeLock.unlock();
 		}
 	}
+
+	private void putWithoutLock(K key, V object, long timeout) {
+		putWithoutLock(new CacheObj<K, V>(key, object, timeout));
+	}
+
+	private void putWithoutLock(CacheObj<K, V> co) {
+		K key = co.key;
+		long timeout = co.ttl;
+		if (timeout != 0) {
+			existCustomTimeout = true;
+		}
+		if (isFull()) {
+			pruneCache();
+		}
+		CacheObj<K, V> old = cacheMap.put(key, co);
+		if (timerWheel != null) {
+			if (old != null) {
+				timerWheel.deschedule(old);
+			}
+			if (timeout > 0) {
+				timerWheel.schedule(co, co.expireTime());
+			}
+		}
+	}
 	// ---------------------------------------------------------------- put end
 
 	// ---------------------------------------------------------------- get start
 	/**
-	 * @return 命中数
+	 * @return 命中数，超过 {@link Integer#MAX_VALUE} 时返回 {@link Integer#MAX_VALUE}
+	 * @deprecated 使用 {@link #getHitCountAsLong()}
 	 */
+	@Deprecated
 	public int getHitCount() {
-		return hitCount;
+		return (int) Math.min(stats.getHitCount(), Integer.MAX_VALUE);
 	}
 
 	/**
-	 * @return 丢失数
+	 * @return 丢失数，超过 {@link Integer#MAX_VALUE} 时返回 {@link Integer#MAX_VALUE}
+	 * @deprecated 使用 {@link #getMissCountAsLong()}
 	 */
+	@Deprecated
 	public int getMissCount() {
-		return missCount;
+		return (int) Math.min(stats.getMissCount(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCountAsLong() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public long getMissCountAsLong() {
+		return stats.getMissCount();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return stats;
 	}
 
 	@Override
 	public V get(K key) {
-		readLock.lock();
+		Lock lock = getReadLock();
+		lock.lock();
+
+		try {
+			return getWithoutLock(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 批量获取对象，只获取一次读锁
+	 */
+	@Override
+	public Map<K, V> getAll(Iterable<? extends K> keys) {
+		Map<K, V> result = new HashMap<K, V>();
+		Lock lock = getReadLock();
+		lock.lock();
 
 		try {
-			//不存在或已移除
-			final CacheObj<K, V> co = cacheMap.get(key);
-			if (co == null) {
-				missCount++;
-				return null;
+			for (K key : keys) {
+				V value = getWithoutLock(key);
+				if (value != null) {
+					result.put(key, value);
+				}
 			}
-			
-			//过期
-			if (co.isExpired() == true) {
-				// remove(key); // 此方法无法获得锁
-				cacheMap.remove(key);
+		} finally {
+			lock.unlock();
+		}
+
+		return result;
+	}
+
+	private V getWithoutLock(K key) {
+		CacheObj<K, V> co = getObjWithoutLock(key);
+		return co == null ? null : co.obj;
+	}
+
+	/**
+	 * 获取缓存对象，过期对象会被移除，统计命中数和丢失数
+	 * @param key 键
+	 * @return 缓存对象，不存在或已过期时返回<code>null</code>
+	 */
+	protected CacheObj<K, V> getObj(K key) {
+		Lock lock = getReadLock();
+		lock.lock();
+
+		try {
+			return getObjWithoutLock(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private CacheObj<K, V> getObjWithoutLock(K key) {
+		//不存在或已移除
+		final CacheObj<K, V> co = cacheMap.get(key);
+		if (co == null) {
+			stats.recordMiss();
+			return null;
+		}
 
-				missCount++;
-				return null;
+		//过期
+		if (isExpired(co)) {
+			// remove(key); // 此方法无法获得锁
+			cacheMap.remove(key);
+			if (timerWheel != null) {
+				timerWheel.deschedule(co);
 			}
 
-			//命中
-			hitCount++;
-			return co.get();
+			stats.recordExpiration();
+			stats.recordMiss();
+			return null;
+		}
+
+		//命中
+		stats.recordHit();
+		co.get();
+		return co;
+	}
+
+	/**
+	 * 读取时是否会修改 cacheMap，如按访问顺序排序的 <code>LinkedHashMap</code>，是时读取也需要持有写锁
+	 * @return 默认<code>false</code>
+	 */
+	protected boolean isAccessOrdered() {
+		return false;
+	}
+
+	private Lock getReadLock() {
+		return isAccessOrdered() ? writeLock : readLock;
+	}
+
+	/**
+	 * 判断缓存对象是否过期，默认按对象的最后访问时间和存活时长判断
+	 * @param co 缓存对象
+	 * @return 是否过期
+	 */
+	protected boolean isExpired(CacheObj<K, V> co) {
+		return co.isExpired();
+	}
+
+	/**
+	 * 获取对象，不存在时加载并放入缓存，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		CacheObj<K, V> co = getObj(key);
+		if (co != null) {
+			return co.obj;
+		}
+
+		return loadOnce(key, loader);
+	}
+
+	/**
+	 * 异步获取对象，不存在时在执行器中加载，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		CacheObj<K, V> co = getObj(key);
+		if (co != null) {
+			return CompletableFuture.completedFuture(co.obj);
+		}
+
+		return singleFlight.loadAsync(key, this::peek, loader, this::put, stats, executor);
+	}
+
+	/**
+	 * 加载对象并放入缓存，同一个key的并发加载只执行一次
+	 * @param key 键
+	 * @param loader 加载函数
+	 * @return 加载结果
+	 */
+	protected V loadOnce(K key, Function<? super K, ? extends V> loader) {
+		return singleFlight.load(key, this::peek, loader, this::put, stats);
+	}
+
+	/**
+	 * 在读锁下查询未过期的对象，不计入命中统计
+	 */
+	private V peek(K key) {
+		Lock lock = getReadLock();
+		lock.lock();
+		try {
+			CacheObj<K, V> co = cacheMap.get(key);
+			return co != null && !isExpired(co) ? co.obj : null;
 		} finally {
-			readLock.unlock();
+			lock.unlock();
 		}
 	}
 	// ---------------------------------------------------------------- get end
@@ -128,8 +344,248 @@ public abstract class AbstractCache<K, V> implements Cache<K, V>, Iterable<V>{
 			writeLock.unlock();
 		}
 	}
+
+	/**
+	 * 启用时间轮过期，已有的带失效时长的对象会被放入时间轮<br>
+	 * 容量淘汰（{@link #pruneCache()}、<code>removeEldestEntry</code>）不会从时间轮中移除对象，
+	 * 只适用于没有容量限制的缓存，如 {@link org.micro.cache.support.TimedCache}
+	 */
+	protected void enableTimerWheel() {
+		writeLock.lock();
+		try {
+			if (timerWheel != null) {
+				return;
+			}
+
+			TimerWheel<CacheObj<K, V>> wheel = new TimerWheel<CacheObj<K, V>>(SystemClock.now());
+			for (CacheObj<K, V> co : cacheMap.values()) {
+				if (co.ttl > 0) {
+					wheel.schedule(co, co.expireTime());
+				}
+			}
+			timerWheel = wheel;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 清理到期对象<br>
+	 * 启用时间轮时只处理已到期的桶，推进时间轮不持有全局锁，只在移除到期对象时短暂持有写锁；
+	 * 未启用时间轮时等同于 {@link #prune()}
+	 *
+	 * @return 清理数
+	 */
+	public int expire() {
+		TimerWheel<CacheObj<K, V>> wheel = timerWheel;
+		if (wheel == null) {
+			return prune();
+		}
+
+		List<CacheObj<K, V>> dueList = wheel.advance(SystemClock.now());
+		if (dueList.isEmpty()) {
+			return 0;
+		}
+
+		int count = 0;
+		writeLock.lock();
+		try {
+			for (CacheObj<K, V> co : dueList) {
+				// 已被替换或被淘汰策略移除
+				if (cacheMap.get(co.key) != co) {
+					continue;
+				}
+				if (isExpired(co)) {
+					cacheMap.remove(co.key);
+					stats.recordExpiration();
+					onExpire(co.key, co.obj);
+					count++;
+				} else {
+					// 到期前被访问过，按新的最后访问时间重新调度
+					wheel.schedule(co, co.expireTime());
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+
+		return count;
+	}
+
+	/**
+	 * 对象经时间轮过期移除的回调。默认无动作
+	 * @param key 键
+	 * @param cachedObject 被缓存的对象
+	 */
+	protected void onExpire(K key, V cachedObject) {
+	}
 	// ---------------------------------------------------------------- prune end
 
+	// ---------------------------------------------------------------- snapshot start
+	/**
+	 * 将未过期的对象写入快照文件，用于重启后预热<br>
+	 * 文件格式：头部 [magic][version][快照时间][count]，每个对象 [keyLen][key][valueLen][value][ttl][ttl剩余时长][accessCount]，已过期的对象不写入<br>
+	 * 先写入临时文件再替换快照文件，并用 <code>快照文件.lock</code> 的 {@link FileLock} 避免多个进程同时写入
+	 *
+	 * @param file 快照文件
+	 * @param keySerializer 键序列化器
+	 * @param valueSerializer 值序列化器
+	 * @return 写入的对象数，快照文件被其他进程锁定时返回<code>-1</code>
+	 * @throws IOException
+	 */
+	public int snapshot(File file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+		long now = SystemClock.now();
+		List<CacheObj<K, V>> entries = new ArrayList<CacheObj<K, V>>();
+		readLock.lock();
+		try {
+			for (CacheObj<K, V> co : cacheMap.values()) {
+				if (co.ttl <= 0 || co.expireTime() > now) {
+					entries.add(co);
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		FileLock fileLock = new FileLock(new File(file.getPath() + ".lock"));
+		if (!fileLock.tryLock()) {
+			return -1;
+		}
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+		boolean moved = false;
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeInt(SNAPSHOT_VERSION);
+				out.writeLong(now);
+				out.writeInt(entries.size());
+				for (CacheObj<K, V> co : entries) {
+					byte[] keyBytes = keySerializer.serialize(co.key);
+					byte[] valueBytes = valueSerializer.serialize(co.obj);
+					out.writeInt(keyBytes.length);
+					out.write(keyBytes);
+					out.writeInt(valueBytes.length);
+					out.write(valueBytes);
+					out.writeLong(co.ttl);
+					out.writeLong(co.ttl > 0 ? Math.max(1, co.expireTime() - now) : 0);
+					out.writeLong(co.accessCount);
+				}
+			}
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			moved = true;
+			return entries.size();
+		} finally {
+			// 序列化或写入失败时删除写了一半的临时文件
+			if (!moved) {
+				tmpFile.delete();
+			}
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * 从快照文件恢复对象，应在接收请求前调用<br>
+	 * 缓存中已存在的键不会被覆盖，已过期的对象被跳过，容量不足时按清理策略淘汰
+	 *
+	 * @param file 快照文件
+	 * @param keySerializer 键序列化器
+	 * @param valueSerializer 值序列化器
+	 * @return 恢复的对象数，快照文件不存在时返回<code>0</code>，被其他进程锁定时返回<code>-1</code>
+	 * @throws IOException
+	 */
+	public int restore(File file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+
+		FileLock fileLock = new FileLock(new File(file.getPath() + ".lock"));
+		if (!fileLock.tryLock()) {
+			return -1;
+		}
+
+		List<CacheObj<K, V>> entries = new ArrayList<CacheObj<K, V>>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+				throw new IOException("Illegal cache snapshot file: " + file);
+			}
+
+			long now = SystemClock.now();
+			long elapsed = Math.max(0, now - in.readLong());
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				byte[] keyBytes = new byte[in.readInt()];
+				in.readFully(keyBytes);
+				byte[] valueBytes = new byte[in.readInt()];
+				in.readFully(valueBytes);
+				long ttl = in.readLong();
+				long remaining = in.readLong() - elapsed;
+				long accessCount = in.readLong();
+				if (ttl > 0 && remaining <= 0) {
+					continue;
+				}
+
+				CacheObj<K, V> co = new CacheObj<K, V>(keySerializer.deserialize(keyBytes), valueSerializer.deserialize(valueBytes), ttl);
+				// 还原最后访问时间，使剩余存活时长与快照时一致
+				co.lastAccess = ttl > 0 ? now - (ttl - remaining) : now;
+				co.accessCount = accessCount;
+				entries.add(co);
+			}
+		} finally {
+			fileLock.release();
+		}
+
+		int count = 0;
+		writeLock.lock();
+		try {
+			for (CacheObj<K, V> co : entries) {
+				if (!cacheMap.containsKey(co.key)) {
+					putWithoutLock(co);
+					count++;
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+
+		return count;
+	}
+
+	/**
+	 * 定时写入快照
+	 *
+	 * @param file 快照文件
+	 * @param keySerializer 键序列化器
+	 * @param valueSerializer 值序列化器
+	 * @param period 间隔时长
+	 */
+	public synchronized void scheduleSnapshot(final File file, final Serializer<K> keySerializer, final Serializer<V> valueSerializer, long period) {
+		cancelSnapshotSchedule();
+		snapshotTimer = new Timer("cache-snapshot", true);
+		snapshotTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					snapshot(file, keySerializer, valueSerializer);
+				} catch (Exception e) {
+					log.error("Cache snapshot failed: " + file, e);
+				}
+			}
+		}, period, period);
+	}
+
+	/**
+	 * 取消定时快照
+	 */
+	public synchronized void cancelSnapshotSchedule() {
+		if (snapshotTimer != null) {
+			snapshotTimer.cancel();
+			snapshotTimer = null;
+		}
+	}
+	// ---------------------------------------------------------------- snapshot end
+
 	// ---------------------------------------------------------------- common start
 	@Override
 	public int capacity() {
@@ -162,17 +618,42 @@ public abstract class AbstractCache<K, V> implements Cache<K, V>, Iterable<V>{
 	public void remove(K key) {
 		writeLock.lock();
 		try {
-			cacheMap.remove(key);
+			removeWithoutLock(key);
 		} finally {
 			writeLock.unlock();
 		}
 	}
 
+	/**
+	 * 批量移除，只获取一次写锁
+	 */
+	@Override
+	public void removeAll(Iterable<? extends K> keys) {
+		writeLock.lock();
+		try {
+			for (K key : keys) {
+				removeWithoutLock(key);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void removeWithoutLock(K key) {
+		CacheObj<K, V> co = cacheMap.remove(key);
+		if (co != null && timerWheel != null) {
+			timerWheel.deschedule(co);
+		}
+	}
+
 	@Override
 	public void clear() {
 		writeLock.lock();
 		try {
 			cacheMap.clear();
+			if (timerWheel != null) {
+				timerWheel.clear();
+			}
 		} finally {
 			writeLock.unlock();
 		}
@@ -1,7 +1,12 @@
 package org.micro.cache;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * 缓存接口
@@ -88,4 +93,107 @@ public interface Cache<K, V>{
 	 * @return 缓存是否为空
 	 */
 	boolean isEmpty();
+
+	/**
+	 * @return 缓存统计，不统计的实现返回空的统计
+	 */
+	default CacheStats stats() {
+		return new CacheStats();
+	}
+
+	// ---------------------------------------------------------------- bulk start
+	/**
+	 * 批量获取对象，默认逐个调用 {@link #get(Object)}
+	 * @param keys 键
+	 * @return 存在且未过期的键值，不包含缺失的键
+	 */
+	default Map<K, V> getAll(Iterable<? extends K> keys) {
+		Map<K, V> result = new HashMap<K, V>();
+		for (K key : keys) {
+			V value = get(key);
+			if (value != null) {
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 批量加入缓存，使用默认失效时长，默认逐个调用 {@link #put(Object, Object)}
+	 * @param map 键值
+	 */
+	default void putAll(Map<? extends K, ? extends V> map) {
+		for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * 批量移除，默认逐个调用 {@link #remove(Object)}
+	 * @param keys 键
+	 */
+	default void removeAll(Iterable<? extends K> keys) {
+		for (K key : keys) {
+			remove(key);
+		}
+	}
+	// ---------------------------------------------------------------- bulk end
+
+	// ---------------------------------------------------------------- load start
+	/**
+	 * 获取对象，不存在时调用加载函数并放入缓存，加载结果为<code>null</code>时不缓存<br>
+	 * 默认实现不合并同一个key的并发加载，实现类可使用 {@link SingleFlight} 保证同一个key同时只加载一次
+	 * @param key 键
+	 * @param loader 加载函数
+	 * @return 缓存的或新加载的对象
+	 */
+	default V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+
+		value = loader.apply(key);
+		if (value != null) {
+			put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * 以 {@link CompletableFuture} 形式获取对象，便于与异步调用链组合<br>
+	 * 注：读取在调用线程中同步执行，返回已完成的future，不会切换线程；
+	 * 读取本身可能阻塞时（如文件层）使用 <code>CompletableFuture.supplyAsync(() -&gt; cache.get(key), executor)</code>
+	 * @param key 键
+	 * @return 已完成的future，值为键对应的对象
+	 */
+	default CompletableFuture<V> getAsync(K key) {
+		return CompletableFuture.completedFuture(get(key));
+	}
+
+	/**
+	 * 以 {@link CompletableFuture} 形式批量获取对象，与 {@link #getAsync(Object)} 一样在调用线程中同步执行
+	 * @param keys 键
+	 * @return 已完成的future，值为存在且未过期的键值
+	 */
+	default CompletableFuture<Map<K, V>> getAllAsync(Iterable<? extends K> keys) {
+		return CompletableFuture.completedFuture(getAll(keys));
+	}
+
+	/**
+	 * 异步获取对象，不存在时在执行器中调用加载函数并放入缓存
+	 * @param key 键
+	 * @param loader 加载函数
+	 * @param executor 执行加载的执行器
+	 * @return 缓存的或新加载的对象
+	 * @see #computeIfAbsent(Object, Function)
+	 */
+	default CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		V value = get(key);
+		if (value != null) {
+			return CompletableFuture.completedFuture(value);
+		}
+		return CompletableFuture.supplyAsync(() -> computeIfAbsent(key, loader), executor);
+	}
+	// ---------------------------------------------------------------- load end
 }
@@ -1,16 +1,20 @@
 package org.micro.cache;
 
+import org.micro.commons.SystemClock;
+
 /**
  * 缓存对象
  *
  * @param <K>
  * @param <V>
  */
-public class CacheObj<K, V> {
+public class CacheObj<K, V> extends TimerWheel.Node {
 	
 	public final K key;
 	public final V obj;
 	
+	/** 放入时间 */
+	public final long createTime;
 	/** 上次访问时间 */
 	public long lastAccess; 
 	/** 访问次数 */
@@ -22,21 +26,29 @@ public class CacheObj<K, V> {
 		this.key = key;
 		this.obj = obj;
 		this.ttl = ttl;
-		this.lastAccess = System.currentTimeMillis();
+		this.createTime = SystemClock.now();
+		this.lastAccess = createTime;
 	}
 	
+	/**
+	 * @return 按最后访问时间计算的到期时间
+	 */
+	long expireTime() {
+		return lastAccess + ttl;
+	}
+
 	/**
 	 * @return 是否过期
 	 */
 	public boolean isExpired() {
-		return (ttl > 0) && (lastAccess + ttl < System.currentTimeMillis());
+		return (ttl > 0) && (lastAccess + ttl < SystemClock.now());
 	}
 	
 	/**
 	 * @return 获得对象
 	 */
 	V get() {
-		lastAccess = System.currentTimeMillis();
+		lastAccess = SystemClock.now();
 		accessCount++;
 		return obj;
 	}
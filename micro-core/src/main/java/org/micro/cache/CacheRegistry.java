@@ -0,0 +1,51 @@
+package org.micro.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存注册表<br>
+ * 注册的缓存通过 {@link org.micro.metric.support.CacheMetric} 输出统计指标
+ *
+ * @author lry
+ */
+public final class CacheRegistry {
+
+	private static final ConcurrentMap<String, Cache<?, ?>> CACHES = new ConcurrentHashMap<String, Cache<?, ?>>();
+
+	private CacheRegistry() {
+	}
+
+	/**
+	 * 注册缓存，同名的缓存会被替换
+	 * @param name 缓存名称
+	 * @param cache 缓存
+	 * @return 注册的缓存
+	 */
+	public static <C extends Cache<?, ?>> C register(String name, C cache) {
+		if (name == null || cache == null) {
+			throw new IllegalArgumentException("name or cache is null");
+		}
+
+		CACHES.put(name, cache);
+		return cache;
+	}
+
+	/**
+	 * 注销缓存
+	 * @param name 缓存名称
+	 */
+	public static void unregister(String name) {
+		CACHES.remove(name);
+	}
+
+	/**
+	 * @return 所有注册的缓存
+	 */
+	public static Map<String, Cache<?, ?>> getCaches() {
+		return Collections.unmodifiableMap(CACHES);
+	}
+
+}
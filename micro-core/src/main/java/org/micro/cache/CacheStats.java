@@ -0,0 +1,153 @@
+package org.micro.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计<br>
+ * 使用 {@link LongAdder} 分段计数，读锁下的并发累加不会丢失，也不会在计数上产生竞争
+ *
+ * @author lry
+ */
+public class CacheStats {
+
+	/** 命中数 */
+	private final LongAdder hitCount = new LongAdder();
+	/** 丢失数 */
+	private final LongAdder missCount = new LongAdder();
+	/** 加载成功数 */
+	private final LongAdder loadSuccessCount = new LongAdder();
+	/** 加载失败数 */
+	private final LongAdder loadFailureCount = new LongAdder();
+	/** 加载总耗时（纳秒） */
+	private final LongAdder totalLoadTime = new LongAdder();
+	/** 因容量不足被淘汰的对象数 */
+	private final LongAdder evictionCount = new LongAdder();
+	/** 因过期被清理的对象数 */
+	private final LongAdder expirationCount = new LongAdder();
+	/** 因不满足写入条件（如超过记录大小上限）被拒绝写入的对象数 */
+	private final LongAdder rejectionCount = new LongAdder();
+
+	public void recordHit() {
+		hitCount.increment();
+	}
+
+	public void recordMiss() {
+		missCount.increment();
+	}
+
+	/**
+	 * @param loadTime 加载耗时（纳秒）
+	 */
+	public void recordLoadSuccess(long loadTime) {
+		loadSuccessCount.increment();
+		totalLoadTime.add(loadTime);
+	}
+
+	/**
+	 * @param loadTime 加载耗时（纳秒）
+	 */
+	public void recordLoadFailure(long loadTime) {
+		loadFailureCount.increment();
+		totalLoadTime.add(loadTime);
+	}
+
+	public void recordEviction() {
+		evictionCount.increment();
+	}
+
+	public void recordExpiration() {
+		expirationCount.increment();
+	}
+
+	public void recordRejection() {
+		rejectionCount.increment();
+	}
+
+	/**
+	 * @param count 过期清理数
+	 */
+	public void recordExpiration(int count) {
+		if (count > 0) {
+			expirationCount.add(count);
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getRequestCount() {
+		return getHitCount() + getMissCount();
+	}
+
+	/**
+	 * @return 命中率，没有请求时为<code>1.0</code>
+	 */
+	public double getHitRatio() {
+		long hit = getHitCount();
+		long request = hit + getMissCount();
+		return request == 0 ? 1.0 : (double) hit / request;
+	}
+
+	public long getLoadSuccessCount() {
+		return loadSuccessCount.sum();
+	}
+
+	public long getLoadFailureCount() {
+		return loadFailureCount.sum();
+	}
+
+	/**
+	 * @return 加载总耗时（纳秒）
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime.sum();
+	}
+
+	/**
+	 * @return 平均加载耗时（纳秒）
+	 */
+	public double getAverageLoadPenalty() {
+		long loadCount = getLoadSuccessCount() + getLoadFailureCount();
+		return loadCount == 0 ? 0.0 : (double) getTotalLoadTime() / loadCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public long getExpirationCount() {
+		return expirationCount.sum();
+	}
+
+	public long getRejectionCount() {
+		return rejectionCount.sum();
+	}
+
+	/**
+	 * 清零所有计数
+	 */
+	public void reset() {
+		hitCount.reset();
+		missCount.reset();
+		loadSuccessCount.reset();
+		loadFailureCount.reset();
+		totalLoadTime.reset();
+		evictionCount.reset();
+		expirationCount.reset();
+		rejectionCount.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", loadSuccessCount=" + getLoadSuccessCount()
+				+ ", loadFailureCount=" + getLoadFailureCount() + ", totalLoadTime=" + getTotalLoadTime()
+				+ ", evictionCount=" + getEvictionCount() + ", expirationCount=" + getExpirationCount()
+				+ ", rejectionCount=" + getRejectionCount() + "]";
+	}
+
+}
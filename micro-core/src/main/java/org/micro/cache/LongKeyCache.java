@@ -0,0 +1,436 @@
+package org.micro.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.micro.commons.SystemClock;
+
+/**
+ * long键的LRU缓存<br>
+ * 使用开放寻址的 <code>long[]</code> 键表，值、最后访问时间、存活时长和LRU链表指针都存放在并行数组中，
+ * 每个对象没有 {@link CacheObj} 和 {@link Long} 的额外开销。<br>
+ * 使用 {@link #get(long)}、{@link #put(long, Object)} 等基本类型方法时不装箱，{@link Cache} 接口方法用于兼容。<br>
+ * 过期语义同 {@link CacheObj}：按最后访问时间和存活时长判断，<code>0</code>表示永久存活；值不能为<code>null</code>。
+ *
+ * @param <V> 值类型
+ * @author lry
+ */
+public class LongKeyCache<V> implements Cache<Long, V>, Iterable<V> {
+
+	private static final int NIL = -1;
+
+	private final Lock lock = new ReentrantLock();
+
+	private final long[] keys;
+	/** 为<code>null</code>表示空槽 */
+	private final Object[] values;
+	private final long[] lastAccess;
+	private final long[] ttls;
+	/** LRU双向链表，下标为槽位，最后一个元素为哨兵 */
+	private final int[] prev;
+	private final int[] next;
+	private final int mask;
+	private final int head;
+
+	/** 返回缓存容量 */
+	protected final int capacity;
+	/** 缓存失效时长， <code>0</code> 表示没有设置 */
+	protected final long timeout;
+	private int size;
+
+	/** 命中、丢失、加载、淘汰和过期统计 */
+	private final CacheStats stats = new CacheStats();
+
+	/**
+	 * 构造，默认对象不过期
+	 *
+	 * @param capacity 容量
+	 */
+	public LongKeyCache(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param capacity 容量
+	 * @param timeout 过期时长
+	 */
+	public LongKeyCache(int capacity, long timeout) {
+		if (capacity <= 0 || capacity > (1 << 29)) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.timeout = timeout;
+
+		// 装载因子不超过0.5，保证探测链足够短
+		int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		this.mask = tableSize - 1;
+		this.keys = new long[tableSize];
+		this.values = new Object[tableSize];
+		this.lastAccess = new long[tableSize];
+		this.ttls = new long[tableSize];
+		this.prev = new int[tableSize + 1];
+		this.next = new int[tableSize + 1];
+		this.head = tableSize;
+		prev[head] = head;
+		next[head] = head;
+	}
+
+	// ---------------------------------------------------------------- put start
+	/**
+	 * 将对象加入到缓存，使用默认失效时长
+	 * @param key 键
+	 * @param object 缓存的对象
+	 */
+	public void put(long key, V object) {
+		put(key, object, timeout);
+	}
+
+	/**
+	 * 将对象加入到缓存，使用指定失效时长，缓存满时淘汰最久未使用的对象
+	 * @param key 键
+	 * @param object 缓存的对象
+	 * @param timeout 失效时长
+	 */
+	public void put(long key, V object, long timeout) {
+		if (object == null) {
+			throw new IllegalArgumentException("object is null");
+		}
+
+		long now = SystemClock.now();
+		lock.lock();
+		try {
+			int slot = indexOf(key);
+			if (slot == NIL) {
+				if (size >= capacity) {
+					evict(now);
+				}
+				slot = freeSlot(key);
+				keys[slot] = key;
+				size++;
+			} else {
+				unlink(slot);
+			}
+
+			values[slot] = object;
+			lastAccess[slot] = now;
+			ttls[slot] = timeout;
+			linkLast(slot);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(Long key, V object) {
+		put(key.longValue(), object, timeout);
+	}
+
+	@Override
+	public void put(Long key, V object, long timeout) {
+		put(key.longValue(), object, timeout);
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCount() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public long getMissCount() {
+		return stats.getMissCount();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * 从缓存中获得对象，当对象不在缓存中或已经过期返回<code>null</code>
+	 * @param key 键
+	 * @return 键对应的对象
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		long now = SystemClock.now();
+		lock.lock();
+		try {
+			int slot = indexOf(key);
+			if (slot == NIL) {
+				stats.recordMiss();
+				return null;
+			}
+
+			if (isExpired(slot, now)) {
+				delete(slot);
+				stats.recordExpiration();
+				stats.recordMiss();
+				return null;
+			}
+
+			stats.recordHit();
+			lastAccess[slot] = now;
+			unlink(slot);
+			linkLast(slot);
+			return (V) values[slot];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V get(Long key) {
+		return get(key.longValue());
+	}
+
+	/**
+	 * @param key 键
+	 * @return 是否存在未过期的对象，不影响LRU顺序
+	 */
+	public boolean containsKey(long key) {
+		long now = SystemClock.now();
+		lock.lock();
+		try {
+			int slot = indexOf(key);
+			return slot != NIL && !isExpired(slot, now);
+		} finally {
+			lock.unlock();
+		}
+	}
+	// ---------------------------------------------------------------- get end
+
+	@Override
+	public Set<Long> keys() {
+		lock.lock();
+		try {
+			Set<Long> keySet = new HashSet<Long>(size * 2);
+			for (int slot = next[head]; slot != head; slot = next[slot]) {
+				keySet.add(keys[slot]);
+			}
+			return keySet;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return 未过期对象的快照迭代器，按最久未使用到最近使用排列
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Iterator<V> iterator() {
+		long now = SystemClock.now();
+		lock.lock();
+		try {
+			List<V> list = new ArrayList<V>(size);
+			for (int slot = next[head]; slot != head; slot = next[slot]) {
+				if (!isExpired(slot, now)) {
+					list.add((V) values[slot]);
+				}
+			}
+			return list.iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 清理过期对象
+	 */
+	@Override
+	public int prune() {
+		long now = SystemClock.now();
+		int count = 0;
+		lock.lock();
+		try {
+			// 删除会移动后续槽位的对象，先收集过期的键再逐个删除
+			long[] expired = new long[size];
+			for (int slot = next[head]; slot != head; slot = next[slot]) {
+				if (isExpired(slot, now)) {
+					expired[count++] = keys[slot];
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				delete(indexOf(expired[i]));
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		stats.recordExpiration(count);
+		return count;
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	@Override
+	public boolean isFull() {
+		return size >= capacity;
+	}
+
+	/**
+	 * 从缓存中移除对象
+	 * @param key 键
+	 */
+	public void remove(long key) {
+		lock.lock();
+		try {
+			int slot = indexOf(key);
+			if (slot != NIL) {
+				delete(slot);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(Long key) {
+		remove(key.longValue());
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = null;
+			}
+			prev[head] = head;
+			next[head] = head;
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "LongKeyCache [capacity=" + capacity + ", size=" + size + ", table=" + values.length + "]";
+	}
+
+	// ---------------------------------------------------------------- table start
+	private boolean isExpired(int slot, long now) {
+		return (ttls[slot] > 0) && (lastAccess[slot] + ttls[slot] < now);
+	}
+
+	private int home(long key) {
+		// murmur3 fmix64
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+
+	private int indexOf(long key) {
+		for (int slot = home(key); values[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+		}
+		return NIL;
+	}
+
+	private int freeSlot(long key) {
+		int slot = home(key);
+		while (values[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * 淘汰最久未使用的对象
+	 */
+	private void evict(long now) {
+		int victim = next[head];
+		boolean expired = isExpired(victim, now);
+		delete(victim);
+		if (expired) {
+			stats.recordExpiration();
+		} else {
+			stats.recordEviction();
+		}
+	}
+
+	/**
+	 * 删除槽位，将后续探测链上的对象向前移动，保证查找不需要墓碑
+	 */
+	private void delete(int slot) {
+		unlink(slot);
+		size--;
+
+		int hole = slot;
+		for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+			int home = home(keys[i]);
+			// home不在(hole, i]区间内时，对象可以移动到空槽
+			boolean movable = (hole <= i) ? (home <= hole || home > i) : (home <= hole && home > i);
+			if (movable) {
+				move(i, hole);
+				hole = i;
+			}
+		}
+
+		values[hole] = null;
+	}
+
+	private void move(int from, int to) {
+		keys[to] = keys[from];
+		values[to] = values[from];
+		lastAccess[to] = lastAccess[from];
+		ttls[to] = ttls[from];
+		prev[to] = prev[from];
+		next[to] = next[from];
+		next[prev[to]] = to;
+		prev[next[to]] = to;
+	}
+
+	private void linkLast(int slot) {
+		int last = prev[head];
+		prev[slot] = last;
+		next[slot] = head;
+		next[last] = slot;
+		prev[head] = slot;
+	}
+
+	private void unlink(int slot) {
+		next[prev[slot]] = next[slot];
+		prev[next[slot]] = prev[slot];
+	}
+	// ---------------------------------------------------------------- table end
+
+}
@@ -0,0 +1,111 @@
+package org.micro.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 缓存键值的序列化器，用于把对象存放到堆外内存或文件中
+ *
+ * @param <T> 对象类型
+ */
+public interface Serializer<T> {
+
+	/**
+	 * 序列化
+	 *
+	 * @param object 对象
+	 * @return 字节数组
+	 */
+	byte[] serialize(T object);
+
+	/**
+	 * 反序列化
+	 *
+	 * @param bytes 字节数组
+	 * @return 对象
+	 */
+	T deserialize(byte[] bytes);
+
+	/**
+	 * @return 基于JDK序列化的序列化器，对象需实现 {@link Serializable}
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Serializer<T> jdk() {
+		return (Serializer<T>) JdkSerializer.INSTANCE;
+	}
+
+	/**
+	 * @return UTF-8字符串序列化器
+	 */
+	static Serializer<String> string() {
+		return StringSerializer.INSTANCE;
+	}
+
+	/**
+	 * @return 字节数组序列化器，原样存取
+	 */
+	static Serializer<byte[]> bytes() {
+		return BytesSerializer.INSTANCE;
+	}
+
+	final class JdkSerializer implements Serializer<Object> {
+
+		static final JdkSerializer INSTANCE = new JdkSerializer();
+
+		@Override
+		public byte[] serialize(Object object) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(object);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Serialize failed: " + object, e);
+			}
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public Object deserialize(byte[] bytes) {
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return in.readObject();
+			} catch (IOException | ClassNotFoundException e) {
+				throw new IllegalArgumentException("Deserialize failed", e);
+			}
+		}
+	}
+
+	final class StringSerializer implements Serializer<String> {
+
+		static final StringSerializer INSTANCE = new StringSerializer();
+
+		@Override
+		public byte[] serialize(String object) {
+			return object.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String deserialize(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	final class BytesSerializer implements Serializer<byte[]> {
+
+		static final BytesSerializer INSTANCE = new BytesSerializer();
+
+		@Override
+		public byte[] serialize(byte[] object) {
+			return object;
+		}
+
+		@Override
+		public byte[] deserialize(byte[] bytes) {
+			return bytes;
+		}
+	}
+
+}
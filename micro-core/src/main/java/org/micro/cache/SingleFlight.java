@@ -0,0 +1,155 @@
+package org.micro.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 按key合并并发加载<br>
+ * 同一个key同时只有一个加载在执行，其余调用方等待并共享同一个结果，避免缓存失效时的击穿
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+	/**
+	 * 同步加载，当前线程成为加载者时在当前线程执行加载
+	 *
+	 * @param key 键
+	 * @param loader 加载函数
+	 * @return 加载结果
+	 */
+	public V load(K key, Function<? super K, ? extends V> loader) {
+		CompletableFuture<V> call = new CompletableFuture<V>();
+		CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+		if (existing != null) {
+			return join(existing);
+		}
+
+		try {
+			V value = loader.apply(key);
+			call.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, call);
+		}
+	}
+
+	/**
+	 * 异步加载，当前调用成为加载者时在指定执行器中执行加载
+	 *
+	 * @param key 键
+	 * @param loader 加载函数
+	 * @param executor 执行器
+	 * @return 加载结果
+	 */
+	public CompletableFuture<V> loadAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		CompletableFuture<V> call = new CompletableFuture<V>();
+		CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+		if (existing != null) {
+			return existing;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					call.complete(loader.apply(key));
+				} catch (Throwable t) {
+					call.completeExceptionally(t);
+				} finally {
+					calls.remove(key, call);
+				}
+			});
+		} catch (RuntimeException e) {
+			// 执行器拒绝
+			calls.remove(key, call);
+			call.completeExceptionally(e);
+		}
+
+		return call;
+	}
+
+	/**
+	 * 同步加载并放入缓存，各缓存实现的 computeIfAbsent 共用
+	 *
+	 * @param key 键
+	 * @param peek 查询缓存，不计入命中统计，加载者执行加载前再检查一次，避免上一轮加载刚结束时的重复加载
+	 * @param loader 加载函数
+	 * @param store 加载结果不为<code>null</code>时放入缓存
+	 * @param stats 加载统计
+	 * @return 缓存的或新加载的对象
+	 */
+	public V load(K key, Function<? super K, ? extends V> peek, Function<? super K, ? extends V> loader,
+			BiConsumer<? super K, ? super V> store, CacheStats stats) {
+		return load(key, k -> loadAndStore(k, peek, loader, store, stats));
+	}
+
+	/**
+	 * 异步加载并放入缓存，各缓存实现的 computeIfAbsentAsync 共用
+	 *
+	 * @see #load(Object, Function, Function, BiConsumer, CacheStats)
+	 */
+	public CompletableFuture<V> loadAsync(K key, Function<? super K, ? extends V> peek, Function<? super K, ? extends V> loader,
+			BiConsumer<? super K, ? super V> store, CacheStats stats, Executor executor) {
+		return loadAsync(key, k -> loadAndStore(k, peek, loader, store, stats), executor);
+	}
+
+	private static <K, V> V loadAndStore(K key, Function<? super K, ? extends V> peek, Function<? super K, ? extends V> loader,
+			BiConsumer<? super K, ? super V> store, CacheStats stats) {
+		V cached = peek.apply(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		long start = System.nanoTime();
+		V value;
+		try {
+			value = loader.apply(key);
+		} catch (RuntimeException | Error e) {
+			stats.recordLoadFailure(System.nanoTime() - start);
+			throw e;
+		}
+		stats.recordLoadSuccess(System.nanoTime() - start);
+
+		if (value != null) {
+			store.accept(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return 正在加载的key数
+	 */
+	public int inFlight() {
+		return calls.size();
+	}
+
+	private static <V> V join(CompletableFuture<V> call) {
+		try {
+			return call.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CompletionException(cause);
+		}
+	}
+
+}
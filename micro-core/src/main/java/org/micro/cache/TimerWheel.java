@@ -0,0 +1,228 @@
+package org.micro.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分层时间轮<br>
+ * 按到期时间把节点放入不同精度的时间轮，每层64个桶：
+ * <ul>
+ * 		<li>第0层：每桶64ms，覆盖约4秒</li>
+ * 		<li>第1层：每桶约4秒，覆盖约4.4分钟</li>
+ * 		<li>第2层：每桶约4.4分钟，覆盖约4.7小时</li>
+ * 		<li>第3层：每桶约4.7小时，覆盖约12.4天</li>
+ * 		<li>第4层：单个溢出桶，存放更远的节点</li>
+ * </ul>
+ * {@link #advance(long)} 只遍历时间已经走过的桶，高层桶中未到期的节点会被重新调度到更低层，
+ * 因此每次推进的开销与到期节点数成正比，而与节点总数无关。<br>
+ * 时间轮使用独立的锁，不依赖缓存的全局锁。
+ *
+ * @param <T> 节点类型
+ */
+public class TimerWheel<T extends TimerWheel.Node> {
+
+	private static final int[] BUCKETS = {64, 64, 64, 64, 1};
+	private static final int[] SHIFTS = {6, 12, 18, 24, 30};
+
+	private final Lock lock = new ReentrantLock();
+	private final Node[][] wheel;
+	private long currentTime;
+	private int size;
+
+	/**
+	 * 构造
+	 *
+	 * @param now 当前时间（毫秒）
+	 */
+	public TimerWheel(long now) {
+		this.currentTime = now;
+		this.wheel = new Node[BUCKETS.length][];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Node[BUCKETS[i]];
+			for (int j = 0; j < wheel[i].length; j++) {
+				wheel[i][j] = new Sentinel();
+			}
+		}
+	}
+
+	/**
+	 * 调度节点，节点已在时间轮中时先移除再按新的到期时间放入
+	 *
+	 * @param node 节点
+	 * @param deadline 到期时间（毫秒）
+	 */
+	public void schedule(T node, long deadline) {
+		lock.lock();
+		try {
+			if (node.isScheduled()) {
+				node.unlink();
+				size--;
+			}
+			node.deadline = deadline;
+			link(node);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 从时间轮中移除节点
+	 *
+	 * @param node 节点
+	 */
+	public void deschedule(T node) {
+		lock.lock();
+		try {
+			if (node.isScheduled()) {
+				node.unlink();
+				size--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 推进时间轮，取出所有已到期的节点
+	 *
+	 * @param now 当前时间（毫秒）
+	 * @return 已到期并已从时间轮中移除的节点
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> advance(long now) {
+		List<T> expired = new ArrayList<T>();
+		lock.lock();
+		try {
+			long previousTime = currentTime;
+			if (now <= previousTime) {
+				return expired;
+			}
+			currentTime = now;
+
+			for (int i = 0; i < SHIFTS.length; i++) {
+				long previousTicks = previousTime >>> SHIFTS[i];
+				long currentTicks = now >>> SHIFTS[i];
+				if (currentTicks - previousTicks <= 0) {
+					break;
+				}
+
+				int mask = BUCKETS[i] - 1;
+				int steps = (int) Math.min(currentTicks - previousTicks + 1, BUCKETS[i]);
+				int start = (int) (previousTicks & mask);
+				for (int j = start; j < start + steps; j++) {
+					Node sentinel = wheel[i][j & mask];
+					Node node = sentinel.next;
+					// 先整桶摘下，未到期的节点重新放入时不会回到正在遍历的链表
+					sentinel.prev = sentinel;
+					sentinel.next = sentinel;
+					while (node != sentinel) {
+						Node next = node.next;
+						node.prev = null;
+						node.next = null;
+						size--;
+						if (node.deadline <= now) {
+							expired.add((T) node);
+						} else {
+							link(node);
+						}
+						node = next;
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return expired;
+	}
+
+	/**
+	 * @return 时间轮中的节点数
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 清空时间轮
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			for (Node[] buckets : wheel) {
+				for (Node sentinel : buckets) {
+					Node node = sentinel.next;
+					while (node != sentinel) {
+						Node next = node.next;
+						node.prev = null;
+						node.next = null;
+						node = next;
+					}
+					sentinel.prev = sentinel;
+					sentinel.next = sentinel;
+				}
+			}
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 放入节点所属的桶，调用方需持有锁
+	 */
+	private void link(Node node) {
+		long delay = node.deadline - currentTime;
+		int level = SHIFTS.length - 1;
+		for (int i = 0; i < SHIFTS.length - 1; i++) {
+			if (delay < (1L << SHIFTS[i + 1])) {
+				level = i;
+				break;
+			}
+		}
+
+		// 已过期的节点放入当前桶，下次推进时取出
+		long time = Math.max(node.deadline, currentTime);
+		Node sentinel = wheel[level][(int) ((time >>> SHIFTS[level]) & (BUCKETS[level] - 1))];
+		Node last = sentinel.prev;
+		node.prev = last;
+		node.next = sentinel;
+		last.next = node;
+		sentinel.prev = node;
+		size++;
+	}
+
+	/**
+	 * 时间轮节点，由时间轮维护链表指针
+	 */
+	public abstract static class Node {
+
+		long deadline;
+		Node prev;
+		Node next;
+
+		/**
+		 * @return 是否已在时间轮中
+		 */
+		boolean isScheduled() {
+			return prev != null;
+		}
+
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = null;
+			next = null;
+		}
+	}
+
+	private static final class Sentinel extends Node {
+		Sentinel() {
+			prev = this;
+			next = this;
+		}
+	}
+
+}
@@ -0,0 +1,552 @@
+package org.micro.cache.support;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.micro.cache.Cache;
+import org.micro.cache.CacheStats;
+import org.micro.cache.SingleFlight;
+import org.micro.commons.SystemClock;
+
+/**
+ * 分段并发缓存<br>
+ * 按key的hash将缓存拆分为多个段，每个段拥有独立的 {@link ConcurrentHashMap} 和淘汰链表：
+ * <ul>
+ * 		<li>读操作无锁：直接从段内 {@link ConcurrentHashMap} 读取，访问时间与访问次数为近似值</li>
+ * 		<li>写操作只锁住所在段，不同段之间互不阻塞</li>
+ * 		<li>LRU的访问只标记节点，淘汰时按CLOCK算法把被访问过的节点移到队尾（近似LRU），读操作不加锁</li>
+ * </ul>
+ * 淘汰策略见 {@link Policy}，容量平均分配到每个段（余数分给前面的段，总容量不超过设置值），淘汰只在段内进行。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V>, Iterable<V> {
+
+	/**
+	 * 淘汰策略
+	 */
+	public enum Policy {
+		/** 先进先出，淘汰段内最早放入的对象 */
+		FIFO,
+		/** 最近最久未使用，淘汰段内最久未被访问的对象 */
+		LRU,
+		/** 最少使用，淘汰段内访问次数最少的对象 */
+		LFU,
+		/**
+		 * 按LRU排列，段满时新对象与段内最久未使用的对象比较 {@link FrequencySketch} 估算的访问频率，频率高者留下，
+		 * 淘汰是均摊O(1)；读操作只累加节点的访问次数，淘汰扫描时才计入频率（近似）
+		 */
+		TINY_LFU
+	}
+
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	private final Policy policy;
+	private final Segment<K, V>[] segments;
+	private final int segmentMask;
+
+	/** 返回缓存容量，<code>0</code>表示无大小限制 */
+	protected final int capacity;
+	/** 缓存失效时长， <code>0</code> 表示没有设置 */
+	protected final long timeout;
+
+	/** 命中、丢失、加载、淘汰和过期统计 */
+	private final CacheStats stats = new CacheStats();
+
+	/** 合并同一个key的并发加载 */
+	private final SingleFlight<K, V> singleFlight = new SingleFlight<K, V>();
+
+	/**
+	 * 构造，默认LRU策略，默认对象不过期
+	 *
+	 * @param capacity 容量
+	 */
+	public ConcurrentCache(int capacity) {
+		this(Policy.LRU, capacity, 0);
+	}
+
+	/**
+	 * 构造，段数默认为CPU核数的4倍
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 容量
+	 * @param timeout 过期时长
+	 */
+	public ConcurrentCache(Policy policy, int capacity, long timeout) {
+		this(policy, capacity, timeout, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param policy 淘汰策略
+	 * @param capacity 容量
+	 * @param timeout 过期时长
+	 * @param concurrencyLevel 期望的并发写线程数，决定段数
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentCache(Policy policy, int capacity, long timeout, int concurrencyLevel) {
+		if (policy == null) {
+			throw new IllegalArgumentException("policy is null");
+		}
+		if (capacity < 0 || concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity + " or concurrencyLevel: " + concurrencyLevel);
+		}
+
+		this.policy = policy;
+		this.capacity = capacity;
+		this.timeout = timeout;
+
+		// 段数为2的幂，且每个段至少能容纳一个对象
+		int maxSegments = capacity > 0 ? Math.min(capacity, MAX_SEGMENTS) : MAX_SEGMENTS;
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel && (segmentCount << 1) <= maxSegments) {
+			segmentCount <<= 1;
+		}
+
+		this.segmentMask = segmentCount - 1;
+		this.segments = new Segment[segmentCount];
+		int segmentCapacity = capacity / segmentCount;
+		int remainder = capacity % segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<K, V>(policy, i < remainder ? segmentCapacity + 1 : segmentCapacity, stats);
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		// 扰动，避免低位相同的key集中到同一段
+		h ^= (h >>> 16);
+		h *= 0x9E3779B9;
+		return segments[(h >>> 16) & segmentMask];
+	}
+
+	// ---------------------------------------------------------------- put start
+	@Override
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	@Override
+	public void put(K key, V object, long timeout) {
+		segmentFor(key).put(key, object, timeout);
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCount() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public long getMissCount() {
+		return stats.getMissCount();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return stats;
+	}
+
+	@Override
+	public V get(K key) {
+		V value = segmentFor(key).get(key);
+		if (value == null) {
+			stats.recordMiss();
+		} else {
+			stats.recordHit();
+		}
+
+		return value;
+	}
+	// ---------------------------------------------------------------- get end
+
+	/**
+	 * 获取对象，不存在时加载并放入缓存，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+
+		return singleFlight.load(key, this::peek, loader, this::put, stats);
+	}
+
+	/**
+	 * 异步获取对象，不存在时在执行器中加载，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		V value = get(key);
+		if (value != null) {
+			return CompletableFuture.completedFuture(value);
+		}
+
+		return singleFlight.loadAsync(key, this::peek, loader, this::put, stats, executor);
+	}
+
+	/**
+	 * 查询未过期的对象，不计入命中统计
+	 */
+	private V peek(K key) {
+		return segmentFor(key).get(key);
+	}
+
+	@Override
+	public Set<K> keys() {
+		Set<K> keys = new HashSet<K>();
+		for (Segment<K, V> segment : segments) {
+			keys.addAll(segment.map.keySet());
+		}
+
+		return keys;
+	}
+
+	/**
+	 * @return 未过期对象的快照迭代器
+	 */
+	@Override
+	public Iterator<V> iterator() {
+		List<V> values = new ArrayList<V>(size());
+		long now = SystemClock.now();
+		for (Segment<K, V> segment : segments) {
+			for (Node<K, V> node : segment.map.values()) {
+				if (!node.isExpired(now)) {
+					values.add(node.value);
+				}
+			}
+		}
+
+		return values.iterator();
+	}
+
+	/**
+	 * 逐段清理过期对象，每次只锁住一个段
+	 */
+	@Override
+	public int prune() {
+		int count = 0;
+		for (Segment<K, V> segment : segments) {
+			count += segment.pruneExpired();
+		}
+
+		return count;
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return 淘汰策略
+	 */
+	public Policy policy() {
+		return policy;
+	}
+
+	@Override
+	public boolean isFull() {
+		return (capacity > 0) && (size() >= capacity);
+	}
+
+	@Override
+	public void remove(K key) {
+		segmentFor(key).remove(key);
+	}
+
+	@Override
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			size += segment.map.size();
+		}
+
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (Segment<K, V> segment : segments) {
+			if (!segment.map.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentCache [policy=" + policy + ", segments=" + segments.length + ", capacity=" + capacity + ", size=" + size() + "]";
+	}
+
+	/**
+	 * 缓存节点，同时是段内淘汰链表的节点<br>
+	 * 链表指针和recorded只在持有段锁时修改，访问时间、访问次数和访问标记允许并发下的少量丢失
+	 */
+	static final class Node<K, V> {
+
+		final K key;
+		final V value;
+		final long ttl;
+		volatile long lastAccess;
+		volatile long accessCount;
+		/** 上次淘汰扫描后是否被访问过，CLOCK算法的引用位 */
+		volatile boolean accessed;
+		/** 已计入访问频率的访问次数 */
+		long recorded;
+
+		Node<K, V> prev;
+		Node<K, V> next;
+
+		Node(K key, V value, long ttl, long now) {
+			this.key = key;
+			this.value = value;
+			this.ttl = ttl;
+			this.lastAccess = now;
+		}
+
+		boolean isExpired(long now) {
+			return (ttl > 0) && (lastAccess + ttl < now);
+		}
+	}
+
+	/**
+	 * 缓存段
+	 */
+	static final class Segment<K, V> extends ReentrantLock {
+
+		private static final long serialVersionUID = 4473281217398632462L;
+
+		final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<K, Node<K, V>>();
+		final Policy policy;
+		final int capacity;
+		final CacheStats stats;
+		/** 访问频率，TINY_LFU策略下段内对象数达到容量一半时才创建，避免空缓存占用内存，持有段锁时读写 */
+		FrequencySketch<K> sketch;
+		/** 哨兵节点，head.next为最早（最久未使用）的节点，head.prev为最新的节点 */
+		final Node<K, V> head = new Node<K, V>(null, null, 0, 0);
+
+		Segment(Policy policy, int capacity, CacheStats stats) {
+			this.policy = policy;
+			this.capacity = capacity;
+			this.stats = stats;
+			head.prev = head;
+			head.next = head;
+		}
+
+		V get(K key) {
+			Node<K, V> node = map.get(key);
+			if (node == null) {
+				return null;
+			}
+
+			long now = SystemClock.now();
+			if (node.isExpired(now)) {
+				lock();
+				try {
+					if (map.remove(key, node)) {
+						unlink(node);
+						stats.recordExpiration();
+					}
+				} finally {
+					unlock();
+				}
+				return null;
+			}
+
+			node.lastAccess = now;
+			node.accessCount++;
+			// 已标记时不再写，避免热点key的缓存行在读线程之间来回失效
+			if (!node.accessed) {
+				node.accessed = true;
+			}
+
+			return node.value;
+		}
+
+		void put(K key, V value, long ttl) {
+			Node<K, V> node = new Node<K, V>(key, value, ttl, SystemClock.now());
+			lock();
+			try {
+				if (sketch == null && policy == Policy.TINY_LFU && capacity > 0 && map.size() >= capacity / 2) {
+					sketch = new FrequencySketch<K>(Math.max(capacity, 16));
+				}
+				if (sketch != null) {
+					sketch.increment(key);
+				}
+
+				Node<K, V> old = map.put(key, node);
+				if (old != null) {
+					unlink(old);
+				} else if (capacity > 0 && map.size() > capacity) {
+					Node<K, V> victim = victim();
+					if (!admit(node, victim)) {
+						map.remove(key, node);
+						stats.recordEviction();
+						return;
+					}
+					evict(victim);
+				}
+				linkLast(node);
+			} finally {
+				unlock();
+			}
+		}
+
+		void remove(K key) {
+			lock();
+			try {
+				Node<K, V> node = map.remove(key);
+				if (node != null) {
+					unlink(node);
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			lock();
+			try {
+				map.clear();
+				head.prev = head;
+				head.next = head;
+				sketch = null;
+			} finally {
+				unlock();
+			}
+		}
+
+		int pruneExpired() {
+			int count = 0;
+			long now = SystemClock.now();
+			lock();
+			try {
+				for (Node<K, V> node = head.next; node != head; ) {
+					Node<K, V> next = node.next;
+					if (node.isExpired(now) && map.remove(node.key, node)) {
+						unlink(node);
+						count++;
+					}
+					node = next;
+				}
+			} finally {
+				unlock();
+			}
+
+			stats.recordExpiration(count);
+			return count;
+		}
+
+		/**
+		 * TINY_LFU策略下，新对象的访问频率高于段内最久未使用的对象时才准入，调用方需持有段锁
+		 */
+		private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+			if (sketch == null || victim == head) {
+				return true;
+			}
+
+			recordAccess(victim);
+			return sketch.frequency(candidate.key) > sketch.frequency(victim.key);
+		}
+
+		/**
+		 * 选择淘汰的对象，调用方需持有段锁<br>
+		 * LRU和TINY_LFU按CLOCK算法：从最早的节点开始，被访问过的节点清除标记后移到队尾，最多扫描一轮
+		 */
+		private Node<K, V> victim() {
+			Node<K, V> victim = head.next;
+			if (policy == Policy.LFU) {
+				for (Node<K, V> node = head.next; node != head; node = node.next) {
+					if (node.accessCount < victim.accessCount) {
+						victim = node;
+					}
+				}
+			} else if (policy != Policy.FIFO) {
+				for (int i = map.size(); i > 0 && victim != head && victim.accessed; i--) {
+					victim.accessed = false;
+					recordAccess(victim);
+					unlink(victim);
+					linkLast(victim);
+					victim = head.next;
+				}
+			}
+
+			return victim;
+		}
+
+		/**
+		 * 把节点自上次记录以来的访问次数计入访问频率，调用方需持有段锁
+		 */
+		private void recordAccess(Node<K, V> node) {
+			long count = node.accessCount;
+			if (sketch != null) {
+				for (long i = Math.min(count - node.recorded, 15); i > 0; i--) {
+					sketch.increment(node.key);
+				}
+			}
+			node.recorded = count;
+		}
+
+		/**
+		 * 淘汰对象，调用方需持有段锁
+		 */
+		private void evict(Node<K, V> victim) {
+			if (victim != head) {
+				map.remove(victim.key, victim);
+				unlink(victim);
+				stats.recordEviction();
+			}
+		}
+
+		private void linkLast(Node<K, V> node) {
+			Node<K, V> last = head.prev;
+			node.prev = last;
+			node.next = head;
+			last.next = node;
+			head.prev = node;
+		}
+
+		private void unlink(Node<K, V> node) {
+			if (node.prev == null) {
+				return;
+			}
+
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+		}
+	}
+
+}
@@ -57,6 +57,7 @@ public class FIFOCache<K, V> extends AbstractCache<K, V> {
 			CacheObj<K, V> co = values.next();
 			if (co.isExpired()) {
 				values.remove();
+				stats.recordExpiration();
 				count++;
 			}
 			if (first == null) {
@@ -67,6 +68,7 @@ public class FIFOCache<K, V> extends AbstractCache<K, V> {
 		// 清理结束后依旧是满的，则删除第一个被缓存的对象
 		if (isFull() && null != first) {
 			cacheMap.remove(first.key);
+			stats.recordEviction();
 			count++;
 		}
 		return count;
@@ -6,7 +6,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 
 /**
- * 使用LFU缓存文件，以解决频繁读取文件引起的性能问题
+ * 使用LFU缓存文件，以解决频繁读取文件引起的性能问题<br>
+ * 文件内容以堆内 <code>byte[]</code> 缓存，大文件或需要直接写入通道时使用 {@link MappedFileCache}
  * @author lry
  */
 public class FileLFUCache {
@@ -172,7 +173,15 @@ public class FileLFUCache {
 		FileInputStream in = null;
 		try {
 			in = new FileInputStream(file);
-			in.read(bytes);
+			// read不保证一次读满，循环直到读完或文件被截断
+			int offset = 0;
+			while (offset < bytes.length) {
+				int n = in.read(bytes, offset, bytes.length - offset);
+				if (n < 0) {
+					throw new IOException("Unexpected end of file: " + file);
+				}
+				offset += n;
+			}
 		}finally {
 			if(in!=null){
 				in.close();
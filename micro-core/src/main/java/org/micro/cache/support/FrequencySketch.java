@@ -0,0 +1,121 @@
+package org.micro.cache.support;
+
+/**
+ * Count-Min Sketch 访问频率估算器<br>
+ * 每个计数器占4bit（最大15），一个long存放16个计数器，每个key映射到4个计数器，估算值取其中最小值。<br>
+ * 累计写入达到采样上限后所有计数器减半（老化），使频率能反映近期的访问分布。<br>
+ * 非线程安全，由调用方加锁。
+ *
+ * @param <E> 元素类型
+ */
+public class FrequencySketch<E> {
+
+	private static final long[] SEEDS = {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int additions;
+
+	/**
+	 * 构造
+	 *
+	 * @param maximumSize 缓存的最大容量，决定计数器数量和老化周期
+	 */
+	public FrequencySketch(int maximumSize) {
+		int size = Math.max(1, maximumSize);
+		int tableSize = 1;
+		while (tableSize < size && tableSize < (1 << 30)) {
+			tableSize <<= 1;
+		}
+
+		this.table = new long[tableSize];
+		this.tableMask = tableSize - 1;
+		this.sampleSize = (size > Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : size * 10;
+	}
+
+	/**
+	 * @param e 元素
+	 * @return 元素的估算访问频率，最大15
+	 */
+	public int frequency(E e) {
+		int hash = spread(e.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * 增加元素的访问频率，计数器已达到15时不再增加
+	 *
+	 * @param e 元素
+	 */
+	public void increment(E e) {
+		int hash = spread(e.hashCode());
+		int start = (hash & 3) << 2;
+
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+
+		if (added && (++additions == sampleSize)) {
+			reset();
+		}
+	}
+
+	/**
+	 * 清空所有计数器
+	 */
+	public void clear() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 0L;
+		}
+		additions = 0;
+	}
+
+	private boolean incrementAt(int i, int j) {
+		int offset = j << 2;
+		long mask = (0xfL << offset);
+		if ((table[i] & mask) != mask) {
+			table[i] += (1L << offset);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * 所有计数器减半
+	 */
+	private void reset() {
+		int count = 0;
+		for (int i = 0; i < table.length; i++) {
+			count += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions = (additions >>> 1) - (count >>> 2);
+	}
+
+	private int indexOf(int item, int i) {
+		long hash = (item + SEEDS[i]) * SEEDS[i];
+		hash += (hash >>> 32);
+		return ((int) hash) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+}
@@ -61,6 +61,7 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 			co = values.next();
 			if (co.isExpired()) {
 				values.remove();
+				stats.recordExpiration();
 				onRemove(co.key, co.obj);
 				count++;
 				continue;
@@ -83,6 +84,7 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 				co1.accessCount -= minAccessCount;
 				if (co1.accessCount <= 0) {
 					values.remove();
+					stats.recordEviction();
 					onRemove(co1.key, co1.obj);
 					count++;
 				}
@@ -99,6 +101,11 @@ public class LFUCache<K, V> extends AbstractCache<K, V> {
 	 */
 	protected void onRemove(K key, V cachedObject) {
 	}
+
+	@Override
+	protected void onExpire(K key, V cachedObject) {
+		onRemove(key, cachedObject);
+	}
 	
 	@Override
 	public Set<K> keys() {
@@ -14,7 +14,8 @@ import org.micro.cache.CacheObj;
  * 当对象被访问时放入缓存，当缓存满了，最久未被使用的对象将被移除。<br>
  * 此缓存基于LinkedHashMap，因此当被缓存的对象每被访问一次，这个对象的key就到链表头部。<br>
  * 这个算法简单并且非常快，他比FIFO有一个显著优势是经常使用的对象不太可能被移除缓存。<br>
- * 缺点是当缓存满时，不能被很快的访问。
+ * 缺点是当缓存满时，不能被很快的访问。<br>
+ * 访问会调整链表顺序，读取同样持有写锁。
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -49,11 +50,23 @@ public class LRUCache<K, V> extends AbstractCache<K, V> {
 					return false;
 				}
 				//当链表元素大于容量时，移除最老（最久未被使用）的元素
-				return size() > LRUCache.this.capacity;
+				if (size() > LRUCache.this.capacity) {
+					stats.recordEviction();
+					return true;
+				}
+				return false;
 			}
 		};
 	}
 
+	/**
+	 * <code>LinkedHashMap</code>按访问顺序排序，get会移动链表节点
+	 */
+	@Override
+	protected boolean isAccessOrdered() {
+		return true;
+	}
+
 	// ---------------------------------------------------------------- prune
 
 	/**
@@ -74,6 +87,7 @@ public class LRUCache<K, V> extends AbstractCache<K, V> {
 				count++;
 			}
 		}
+		stats.recordExpiration(count);
 		return count;
 	}
 	
@@ -0,0 +1,179 @@
+package org.micro.cache.support;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.micro.cache.CacheObj;
+import org.micro.cache.SingleFlight;
+import org.micro.commons.SystemClock;
+import org.micro.thread.NamedThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 自动加载缓存<br>
+ * 对象按放入时间计算两个时长：
+ * <ul>
+ * 		<li>刷新时长(refreshAfterWrite)：超过后继续返回旧值，同时在执行器中异步重新加载，加载完成后替换旧值</li>
+ * 		<li>过期时长(expireAfterWrite)：超过后对象失效，调用方同步加载</li>
+ * </ul>
+ * 热点key在刷新时长和过期时长之间总能命中，不会在过期的瞬间全部穿透到加载函数。<br>
+ * 同一个key的同步加载和异步刷新都只执行一次，刷新执行器满时放弃本次刷新，旧值继续返回。<br>
+ * 异步刷新与同步加载一样计入加载统计，刷新失败时打印warn日志，旧值继续返回。<br>
+ * 淘汰策略同 {@link LRUCache}。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+@Slf4j
+public class LoadingCache<K, V> extends LRUCache<K, V> {
+
+	private static final int DEFAULT_REFRESH_QUEUE_SIZE = 1024;
+
+	private final Function<? super K, ? extends V> loader;
+	private final Executor refreshExecutor;
+	private final SingleFlight<K, V> refreshes = new SingleFlight<K, V>();
+
+	/** 刷新时长，<code>0</code>表示不刷新 */
+	protected final long refreshAfterWrite;
+	/** 过期时长，<code>0</code>表示不过期 */
+	protected final long expireAfterWrite;
+
+	/**
+	 * 构造<br>
+	 * 使用所有自动加载缓存共享的有界刷新执行器，执行器的线程为守护线程且空闲时回收，不需要关闭
+	 * @param capacity 容量
+	 * @param refreshAfterWrite 刷新时长
+	 * @param expireAfterWrite 过期时长
+	 * @param loader 加载函数
+	 */
+	public LoadingCache(int capacity, long refreshAfterWrite, long expireAfterWrite, Function<? super K, ? extends V> loader) {
+		this(capacity, refreshAfterWrite, expireAfterWrite, loader, SharedRefreshExecutor.INSTANCE);
+	}
+
+	/**
+	 * 构造
+	 * @param capacity 容量
+	 * @param refreshAfterWrite 刷新时长
+	 * @param expireAfterWrite 过期时长
+	 * @param loader 加载函数
+	 * @param refreshExecutor 刷新执行器，应为有界执行器，拒绝时放弃本次刷新
+	 */
+	public LoadingCache(int capacity, long refreshAfterWrite, long expireAfterWrite,
+			Function<? super K, ? extends V> loader, Executor refreshExecutor) {
+		super(capacity, 0);
+		if (loader == null || refreshExecutor == null) {
+			throw new IllegalArgumentException("loader or refreshExecutor is null");
+		}
+		if (refreshAfterWrite < 0 || expireAfterWrite < 0
+				|| (refreshAfterWrite > 0 && expireAfterWrite > 0 && refreshAfterWrite >= expireAfterWrite)) {
+			throw new IllegalArgumentException("Illegal refreshAfterWrite: " + refreshAfterWrite + " or expireAfterWrite: " + expireAfterWrite);
+		}
+
+		this.loader = loader;
+		this.refreshExecutor = refreshExecutor;
+		this.refreshAfterWrite = refreshAfterWrite;
+		this.expireAfterWrite = expireAfterWrite;
+	}
+
+	/**
+	 * 获取对象<br>
+	 * 不存在或已过期时同步加载，超过刷新时长时返回旧值并异步刷新
+	 */
+	@Override
+	public V get(K key) {
+		CacheObj<K, V> co = getObj(key);
+		if (co == null) {
+			return loadOnce(key, loader);
+		}
+
+		if (refreshAfterWrite > 0 && SystemClock.now() - co.createTime >= refreshAfterWrite) {
+			refresh(key);
+		}
+
+		return co.obj;
+	}
+
+	/**
+	 * 在刷新执行器中重新加载对象，同一个key同时只有一个刷新
+	 * @param key 键
+	 * @return 加载结果，执行器拒绝或加载失败时异常完成
+	 */
+	public CompletableFuture<V> refresh(K key) {
+		return refreshes.loadAsync(key, k -> {
+			long start = System.nanoTime();
+			V value;
+			try {
+				value = loader.apply(k);
+			} catch (RuntimeException | Error e) {
+				stats.recordLoadFailure(System.nanoTime() - start);
+				log.warn("Refresh failed, keep the old value of key: {}", k, e);
+				throw e;
+			}
+			stats.recordLoadSuccess(System.nanoTime() - start);
+
+			if (value != null) {
+				put(k, value);
+			}
+			return value;
+		}, refreshExecutor);
+	}
+
+	/**
+	 * 对象超过自身的存活时长或超过过期时长均视为过期
+	 */
+	@Override
+	protected boolean isExpired(CacheObj<K, V> co) {
+		return co.isExpired() || (expireAfterWrite > 0 && SystemClock.now() - co.createTime >= expireAfterWrite);
+	}
+
+	@Override
+	protected boolean isPruneExpiredActive() {
+		return expireAfterWrite > 0 || super.isPruneExpiredActive();
+	}
+
+	@Override
+	protected int pruneCache() {
+		if (isPruneExpiredActive() == false) {
+			return 0;
+		}
+		int count = 0;
+		Iterator<CacheObj<K, V>> values = cacheMap.values().iterator();
+		while (values.hasNext()) {
+			if (isExpired(values.next())) {
+				values.remove();
+				count++;
+			}
+		}
+		stats.recordExpiration(count);
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadingCache [capacity=" + capacity + ", size=" + cacheMap.size() + ", refreshAfterWrite=" + refreshAfterWrite
+				+ ", expireAfterWrite=" + expireAfterWrite + ", refreshing=" + refreshes.inFlight() + "]";
+	}
+
+	/**
+	 * 默认的刷新执行器，首次使用时创建
+	 */
+	private static final class SharedRefreshExecutor {
+
+		static final Executor INSTANCE = create();
+
+		private static Executor create() {
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(DEFAULT_REFRESH_QUEUE_SIZE), new NamedThreadFactory("cache-refresh", true));
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+}
@@ -0,0 +1,291 @@
+package org.micro.cache.support;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.micro.commons.SystemClock;
+
+/**
+ * 使用内存映射缓存文件，读取不经过堆内存拷贝<br>
+ * 文件通过 {@link FileChannel#map} 以只读方式映射，返回只读的 {@link ByteBuffer} 视图，可以直接写入响应通道。<br>
+ * 超过2G的文件按 {@link Integer#MAX_VALUE} 分段映射，见 {@link #getFileBuffers(File)}。<br>
+ * 文件的修改时间或大小变化后缓存失效并重新映射，按映射的总字节数做LRU淘汰。<br>
+ * 注：被淘汰的映射在没有引用后由GC释放。
+ *
+ * @author lry
+ */
+public class MappedFileCache {
+
+	private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+	private final Lock lock = new ReentrantLock();
+	/** 按访问顺序排列的映射文件 */
+	private final LinkedHashMap<File, MappedFile> cache = new LinkedHashMap<File, MappedFile>(16, 0.75f, true);
+
+	/** 映射总字节数上限 */
+	protected final long capacity;
+	/** 缓存的最大文件大小，文件大于此大小时映射但不缓存，<code>0</code>表示不限制 */
+	protected final long maxFileSize;
+	/** 两次检查文件修改时间和大小的最小间隔，<code>0</code>表示每次读取都检查 */
+	protected final long checkInterval;
+
+	/** 已映射的字节数 */
+	protected long usedSize;
+
+	/**
+	 * 构造<br>
+	 * 最大文件大小为缓存容量的一半，每次读取都检查文件是否变化
+	 * @param capacity 映射总字节数上限
+	 */
+	public MappedFileCache(long capacity) {
+		this(capacity, capacity / 2, 0);
+	}
+
+	/**
+	 * 构造
+	 * @param capacity 映射总字节数上限
+	 * @param maxFileSize 缓存的最大文件大小，<code>0</code>表示不限制
+	 * @param checkInterval 检查文件变化的最小间隔（毫秒）
+	 */
+	public MappedFileCache(long capacity, long maxFileSize, long checkInterval) {
+		this.capacity = capacity;
+		this.maxFileSize = maxFileSize;
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * @return 映射总字节数上限
+	 */
+	public long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return 已映射的字节数
+	 */
+	public long getUsedSize() {
+		lock.lock();
+		try {
+			return usedSize;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return 缓存的文件数
+	 */
+	public int getCachedFilesCount() {
+		lock.lock();
+		try {
+			return cache.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 移除文件的映射
+	 * @param file 文件
+	 */
+	public void remove(File file) {
+		lock.lock();
+		try {
+			MappedFile mapped = cache.remove(file);
+			if (mapped != null) {
+				usedSize -= mapped.length;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			cache.clear();
+			usedSize = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// ---------------------------------------------------------------- get
+
+	/**
+	 * 获得文件内容的只读视图，文件不能超过2G
+	 * @param path 文件路径
+	 * @return 只读 {@link ByteBuffer}，position为0
+	 * @throws IOException
+	 */
+	public ByteBuffer getFileBuffer(String path) throws IOException {
+		return getFileBuffer(new File(path));
+	}
+
+	/**
+	 * 获得文件内容的只读视图，文件不能超过2G
+	 * @param file 文件
+	 * @return 只读 {@link ByteBuffer}，position为0
+	 * @throws IOException
+	 */
+	public ByteBuffer getFileBuffer(File file) throws IOException {
+		ByteBuffer[] buffers = getFileBuffers(file);
+		if (buffers.length > 1) {
+			throw new IOException("File is larger then max buffer size, use getFileBuffers: " + file);
+		}
+
+		return buffers[0];
+	}
+
+	/**
+	 * 获得文件内容的只读视图，超过2G的文件按顺序分为多段
+	 * @param file 文件
+	 * @return 只读 {@link ByteBuffer} 数组，每次调用返回新的视图，互不影响position
+	 * @throws IOException
+	 */
+	public ByteBuffer[] getFileBuffers(File file) throws IOException {
+		return getMappedFile(file).buffers();
+	}
+
+	/**
+	 * 将文件内容写入通道，不经过堆内存拷贝
+	 * @param file 文件
+	 * @param channel 目标通道
+	 * @return 写入的字节数
+	 * @throws IOException
+	 */
+	public long transferTo(File file, WritableByteChannel channel) throws IOException {
+		long written = 0;
+		for (ByteBuffer buffer : getFileBuffers(file)) {
+			while (buffer.hasRemaining()) {
+				written += channel.write(buffer);
+			}
+		}
+
+		return written;
+	}
+
+	private MappedFile getMappedFile(File file) throws IOException {
+		long now = SystemClock.now();
+		lock.lock();
+		try {
+			MappedFile mapped = cache.get(file);
+			if (mapped != null) {
+				if (checkInterval > 0 && now - mapped.checkTime < checkInterval) {
+					return mapped;
+				}
+				if (mapped.lastModified == file.lastModified() && mapped.length == file.length()) {
+					mapped.checkTime = now;
+					return mapped;
+				}
+
+				// 文件已变化
+				cache.remove(file);
+				usedSize -= mapped.length;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		// 映射不持有锁，并发映射同一文件时后放入的覆盖先放入的
+		MappedFile mapped = map(file, now);
+		if ((maxFileSize != 0 && mapped.length > maxFileSize) || mapped.length > capacity) {
+			return mapped;
+		}
+
+		lock.lock();
+		try {
+			MappedFile old = cache.put(file, mapped);
+			if (old != null) {
+				usedSize -= old.length;
+			}
+			usedSize += mapped.length;
+
+			Iterator<MappedFile> iterator = cache.values().iterator();
+			while (usedSize > capacity && iterator.hasNext()) {
+				MappedFile eldest = iterator.next();
+				if (eldest == mapped) {
+					continue;
+				}
+				iterator.remove();
+				usedSize -= eldest.length;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return mapped;
+	}
+
+	private static MappedFile map(File file, long now) throws IOException {
+		if (!file.exists()) {
+			throw new FileNotFoundException("File not exist: " + file);
+		}
+		if (!file.isFile()) {
+			throw new IOException("Not a file:" + file);
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			// 先取修改时间，映射期间文件被修改时下次检查会重新映射
+			long lastModified = file.lastModified();
+			long length = channel.size();
+			int chunks = (int) Math.max(1, (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+			ByteBuffer[] buffers = new ByteBuffer[chunks];
+			for (int i = 0; i < chunks; i++) {
+				long position = i * MAX_CHUNK_SIZE;
+				buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_CHUNK_SIZE, length - position));
+			}
+
+			return new MappedFile(buffers, length, lastModified, now);
+		}
+	}
+
+	/**
+	 * 已映射的文件
+	 */
+	private static final class MappedFile {
+
+		final ByteBuffer[] buffers;
+		final long length;
+		final long lastModified;
+		volatile long checkTime;
+
+		MappedFile(ByteBuffer[] buffers, long length, long lastModified, long checkTime) {
+			this.buffers = buffers;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.checkTime = checkTime;
+		}
+
+		ByteBuffer[] buffers() {
+			ByteBuffer[] views = new ByteBuffer[buffers.length];
+			for (int i = 0; i < buffers.length; i++) {
+				views[i] = buffers[i].asReadOnlyBuffer();
+			}
+			return views;
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.lock();
+		try {
+			return "MappedFileCache [capacity=" + capacity + ", used=" + usedSize + ", files=" + cache.size() + "]";
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,666 @@
+package org.micro.cache.support;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.micro.cache.Cache;
+import org.micro.cache.CacheStats;
+import org.micro.cache.SingleFlight;
+import org.micro.cache.Serializer;
+import org.micro.commons.SystemClock;
+
+/**
+ * 堆外缓存<br>
+ * 键值经 {@link Serializer} 序列化后以 <code>[keyLength][valueLength][key][value]</code> 的记录格式存放在堆外：
+ * <ul>
+ * 		<li>内存层：固定大小的直接内存 {@link ByteBuffer} 分块(slab)，追加写入，总大小不超过内存预算</li>
+ * 		<li>文件层（可选）：内存映射文件按同样大小分块，内存层淘汰的冷数据溢写到这里，总大小不超过文件预算</li>
+ * </ul>
+ * 内存层写满时，最早写入的分块整块淘汰：其中仍然有效的记录溢写到文件层（未配置文件层则丢弃）；
+ * 文件层写满时，最早写入的分块整块丢弃。文件层的记录被读取时会重新提升到内存层。<br>
+ * 堆上只保留键到记录位置的索引，缓存数据量增长不会增加堆的占用。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class OffHeapCache<K, V> implements Cache<K, V>, Iterable<V>, Closeable {
+
+	/** 默认分块大小 */
+	public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+	private static final int HEADER_SIZE = 8;
+
+	private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+	private final Lock readLock = cacheLock.readLock();
+	private final Lock writeLock = cacheLock.writeLock();
+
+	private final Serializer<K> keySerializer;
+	private final Serializer<V> valueSerializer;
+	private final Map<K, Entry<K>> index = new HashMap<K, Entry<K>>();
+	private final long timeout;
+	private final int slabSize;
+
+	private final Tier<K> memory;
+	private final Tier<K> disk;
+	private final File spillFile;
+	private final RandomAccessFile spillAccess;
+
+	/** 命中、丢失、加载、淘汰和过期统计 */
+	private final CacheStats stats = new CacheStats();
+
+	/** 合并同一个key的并发加载 */
+	private final SingleFlight<K, V> singleFlight = new SingleFlight<K, V>();
+
+	/**
+	 * 构造，只使用内存层，默认对象不过期
+	 *
+	 * @param memoryBytes 内存预算（字节）
+	 * @param keySerializer 键序列化器
+	 * @param valueSerializer 值序列化器
+	 */
+	public OffHeapCache(long memoryBytes, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+		this(memoryBytes, 0, null, (int) Math.min(DEFAULT_SLAB_SIZE, memoryBytes), keySerializer, valueSerializer, 0);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param memoryBytes 内存预算（字节）
+	 * @param diskBytes 文件层预算（字节），<code>0</code>表示不使用文件层
+	 * @param spillDir 溢写文件目录，<code>null</code>时使用系统临时目录
+	 * @param slabSize 分块大小（字节），单条记录不能超过分块大小
+	 * @param keySerializer 键序列化器
+	 * @param valueSerializer 值序列化器
+	 * @param timeout 过期时长
+	 */
+	public OffHeapCache(long memoryBytes, long diskBytes, File spillDir, int slabSize,
+						Serializer<K> keySerializer, Serializer<V> valueSerializer, long timeout) {
+		if (slabSize <= HEADER_SIZE || memoryBytes < slabSize) {
+			throw new IllegalArgumentException("Illegal slabSize: " + slabSize + " or memoryBytes: " + memoryBytes);
+		}
+		if (keySerializer == null || valueSerializer == null) {
+			throw new IllegalArgumentException("serializer is null");
+		}
+
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+		this.timeout = timeout;
+		this.slabSize = slabSize;
+		this.memory = new Tier<K>((int) Math.min(Integer.MAX_VALUE, memoryBytes / slabSize));
+
+		if (diskBytes >= slabSize) {
+			try {
+				this.spillFile = File.createTempFile("micro-offheap-", ".spill", spillDir);
+				this.spillFile.deleteOnExit();
+				this.spillAccess = new RandomAccessFile(spillFile, "rw");
+			} catch (IOException e) {
+				throw new IllegalStateException("Create spill file failed in " + spillDir, e);
+			}
+			this.disk = new Tier<K>((int) Math.min(Integer.MAX_VALUE, diskBytes / slabSize));
+		} else {
+			this.spillFile = null;
+			this.spillAccess = null;
+			this.disk = null;
+		}
+	}
+
+	// ---------------------------------------------------------------- put start
+	@Override
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	/**
+	 * 将对象加入到缓存，记录超过分块大小时不缓存并移除已有的旧值，计为拒绝写入
+	 */
+	@Override
+	public void put(K key, V object, long timeout) {
+		byte[] keyBytes = keySerializer.serialize(key);
+		byte[] valueBytes = valueSerializer.serialize(object);
+		int length = HEADER_SIZE + keyBytes.length + valueBytes.length;
+
+		writeLock.lock();
+		try {
+			Entry<K> old = index.remove(key);
+			if (old != null) {
+				release(old);
+			}
+			// 先移除旧值，避免之后读到过期的数据
+			if (length > slabSize) {
+				stats.recordRejection();
+				return;
+			}
+
+			Entry<K> entry = new Entry<K>(key, timeout);
+			writeRecord(memory, entry, keyBytes, valueBytes);
+			index.put(key, entry);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCount() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public long getMissCount() {
+		return stats.getMissCount();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return stats;
+	}
+
+	@Override
+	public V get(K key) {
+		byte[] valueBytes = null;
+		boolean expired = false;
+		boolean promote = false;
+		readLock.lock();
+		try {
+			Entry<K> entry = index.get(key);
+			if (entry != null) {
+				long now = SystemClock.now();
+				if (entry.isExpired(now)) {
+					expired = true;
+				} else {
+					entry.lastAccess = now;
+					valueBytes = readValue(entry);
+					promote = entry.tier == disk;
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		if (valueBytes == null) {
+			stats.recordMiss();
+			if (expired) {
+				removeExpired(key);
+			}
+			return null;
+		}
+
+		stats.recordHit();
+		if (promote) {
+			promote(key);
+		}
+
+		return valueSerializer.deserialize(valueBytes);
+	}
+	// ---------------------------------------------------------------- get end
+
+	/**
+	 * 获取对象，不存在时加载并放入缓存，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+
+		return singleFlight.load(key, this::peek, loader, this::put, stats);
+	}
+
+	/**
+	 * 异步获取对象，不存在时在执行器中加载，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		V value = get(key);
+		if (value != null) {
+			return CompletableFuture.completedFuture(value);
+		}
+
+		return singleFlight.loadAsync(key, this::peek, loader, this::put, stats, executor);
+	}
+
+	/**
+	 * 在读锁下查询未过期的对象，不计入命中统计
+	 */
+	private V peek(K key) {
+		byte[] valueBytes = null;
+		readLock.lock();
+		try {
+			Entry<K> entry = index.get(key);
+			if (entry != null && !entry.isExpired(SystemClock.now())) {
+				valueBytes = readValue(entry);
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		return valueBytes == null ? null : valueSerializer.deserialize(valueBytes);
+	}
+
+	private void removeExpired(K key) {
+		writeLock.lock();
+		try {
+			Entry<K> entry = index.get(key);
+			if (entry != null && entry.isExpired(SystemClock.now())) {
+				index.remove(key);
+				release(entry);
+				stats.recordExpiration();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * 文件层的记录被访问后提升回内存层
+	 */
+	private void promote(K key) {
+		writeLock.lock();
+		try {
+			Entry<K> entry = index.get(key);
+			if (entry == null || entry.tier != disk) {
+				return;
+			}
+
+			ByteBuffer record = entry.region.read(entry.offset, entry.length);
+			byte[] keyBytes = new byte[record.getInt()];
+			byte[] valueBytes = new byte[record.getInt()];
+			record.get(keyBytes);
+			record.get(valueBytes);
+			release(entry);
+			writeRecord(memory, entry, keyBytes, valueBytes);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private byte[] readValue(Entry<K> entry) {
+		ByteBuffer record = entry.region.read(entry.offset, entry.length);
+		int keyLength = record.getInt();
+		byte[] valueBytes = new byte[record.getInt()];
+		record.position(record.position() + keyLength);
+		record.get(valueBytes);
+		return valueBytes;
+	}
+
+	/**
+	 * 写入记录并更新索引位置，调用方需持有写锁
+	 */
+	private void writeRecord(Tier<K> tier, Entry<K> entry, byte[] keyBytes, byte[] valueBytes) {
+		int length = HEADER_SIZE + keyBytes.length + valueBytes.length;
+		Region<K> region = allocate(tier, length);
+		ByteBuffer buffer = region.buffer.duplicate();
+		buffer.position(region.writeOffset);
+		buffer.putInt(keyBytes.length);
+		buffer.putInt(valueBytes.length);
+		buffer.put(keyBytes);
+		buffer.put(valueBytes);
+
+		entry.tier = tier;
+		entry.region = region;
+		entry.offset = region.writeOffset;
+		entry.length = length;
+		region.writeOffset += length;
+		region.liveBytes += length;
+		region.entries.add(entry);
+		tier.usedBytes += length;
+	}
+
+	/**
+	 * 在分层中分配空间，当前分块写满时切换到下一个分块，下一个分块已被使用时整块淘汰
+	 */
+	private Region<K> allocate(Tier<K> tier, int length) {
+		Region<K> current = tier.current();
+		if (current != null && slabSize - current.writeOffset >= length) {
+			return current;
+		}
+
+		tier.head = (tier.head + 1) % tier.regions.length;
+		Region<K> next = tier.regions[tier.head];
+		if (next == null) {
+			next = new Region<K>(tier == memory ? ByteBuffer.allocateDirect(slabSize) : mapSpill(tier.head));
+			tier.regions[tier.head] = next;
+		} else {
+			evict(tier, next);
+		}
+
+		return next;
+	}
+
+	/**
+	 * 整块淘汰：内存层的有效记录溢写到文件层，文件层的有效记录直接丢弃
+	 */
+	private void evict(Tier<K> tier, Region<K> region) {
+		List<Entry<K>> entries = region.entries;
+		region.entries = new ArrayList<Entry<K>>();
+		long now = SystemClock.now();
+		for (Entry<K> entry : entries) {
+			if (entry.region != region || index.get(entry.key) != entry) {
+				continue;
+			}
+
+			if (tier == memory && disk != null && !entry.isExpired(now)) {
+				ByteBuffer record = region.read(entry.offset, entry.length);
+				byte[] keyBytes = new byte[record.getInt()];
+				byte[] valueBytes = new byte[record.getInt()];
+				record.get(keyBytes);
+				record.get(valueBytes);
+				tier.usedBytes -= entry.length;
+				writeRecord(disk, entry, keyBytes, valueBytes);
+			} else {
+				index.remove(entry.key);
+				tier.usedBytes -= entry.length;
+				if (entry.isExpired(now)) {
+					stats.recordExpiration();
+				} else {
+					stats.recordEviction();
+				}
+			}
+		}
+
+		region.writeOffset = 0;
+		region.liveBytes = 0;
+	}
+
+	private ByteBuffer mapSpill(int regionIndex) {
+		try {
+			return spillAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) regionIndex * slabSize, slabSize);
+		} catch (IOException e) {
+			throw new IllegalStateException("Map spill file failed: " + spillFile, e);
+		}
+	}
+
+	/**
+	 * 释放记录占用的空间统计，空间在分块被整块淘汰时回收
+	 */
+	private void release(Entry<K> entry) {
+		entry.region.liveBytes -= entry.length;
+		entry.tier.usedBytes -= entry.length;
+		entry.region = null;
+	}
+
+	@Override
+	public Set<K> keys() {
+		readLock.lock();
+		try {
+			return new HashSet<K>(index.keySet());
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * @return 未过期对象的快照迭代器，会反序列化全部对象
+	 */
+	@Override
+	public Iterator<V> iterator() {
+		List<V> values = new ArrayList<V>();
+		readLock.lock();
+		try {
+			long now = SystemClock.now();
+			for (Entry<K> entry : index.values()) {
+				if (!entry.isExpired(now)) {
+					values.add(valueSerializer.deserialize(readValue(entry)));
+				}
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		return values.iterator();
+	}
+
+	/**
+	 * 清理过期对象的索引，空间在分块被整块淘汰时回收
+	 */
+	@Override
+	public int prune() {
+		writeLock.lock();
+		try {
+			int count = 0;
+			long now = SystemClock.now();
+			Iterator<Entry<K>> iterator = index.values().iterator();
+			while (iterator.hasNext()) {
+				Entry<K> entry = iterator.next();
+				if (entry.isExpired(now)) {
+					iterator.remove();
+					release(entry);
+					count++;
+				}
+			}
+			stats.recordExpiration(count);
+			return count;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return 不限制对象个数，只限制字节数，返回<code>0</code>
+	 */
+	@Override
+	public int capacity() {
+		return 0;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return 内存层所有分块都已分配且已写满
+	 */
+	@Override
+	public boolean isFull() {
+		readLock.lock();
+		try {
+			return memory.regions[memory.regions.length - 1] != null && memory.usedBytes >= memory.capacity(slabSize);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void remove(K key) {
+		writeLock.lock();
+		try {
+			Entry<K> entry = index.remove(key);
+			if (entry != null) {
+				release(entry);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		writeLock.lock();
+		try {
+			index.clear();
+			memory.reset();
+			if (disk != null) {
+				disk.reset();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		readLock.lock();
+		try {
+			return index.size();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return 内存层有效记录的字节数
+	 */
+	public long getMemoryUsedBytes() {
+		readLock.lock();
+		try {
+			return memory.usedBytes;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * @return 文件层有效记录的字节数
+	 */
+	public long getDiskUsedBytes() {
+		readLock.lock();
+		try {
+			return disk == null ? 0 : disk.usedBytes;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * 释放全部分块并删除溢写文件
+	 */
+	@Override
+	public void close() throws IOException {
+		writeLock.lock();
+		try {
+			index.clear();
+			memory.release();
+			if (disk != null) {
+				disk.release();
+				spillAccess.close();
+				if (!spillFile.delete()) {
+					spillFile.deleteOnExit();
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapCache [size=" + size() + ", memoryUsed=" + getMemoryUsedBytes() + ", diskUsed=" + getDiskUsedBytes() + "]";
+	}
+
+	/**
+	 * 记录索引
+	 */
+	private static final class Entry<K> {
+
+		final K key;
+		final long ttl;
+		volatile long lastAccess;
+
+		Tier<K> tier;
+		Region<K> region;
+		int offset;
+		int length;
+
+		Entry(K key, long ttl) {
+			this.key = key;
+			this.ttl = ttl;
+			this.lastAccess = SystemClock.now();
+		}
+
+		boolean isExpired(long now) {
+			return (ttl > 0) && (lastAccess + ttl < now);
+		}
+	}
+
+	/**
+	 * 一个分块
+	 */
+	private static final class Region<K> {
+
+		final ByteBuffer buffer;
+		int writeOffset;
+		int liveBytes;
+		List<Entry<K>> entries = new ArrayList<Entry<K>>();
+
+		Region(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		ByteBuffer read(int offset, int length) {
+			ByteBuffer record = buffer.duplicate();
+			record.position(offset);
+			record.limit(offset + length);
+			return record;
+		}
+	}
+
+	/**
+	 * 一层存储，分块按环形顺序写入
+	 */
+	private static final class Tier<K> {
+
+		Region<K>[] regions;
+		int head = -1;
+		long usedBytes;
+
+		@SuppressWarnings("unchecked")
+		Tier(int regionCount) {
+			this.regions = new Region[Math.max(1, regionCount)];
+		}
+
+		Region<K> current() {
+			return head < 0 ? null : regions[head];
+		}
+
+		long capacity(int slabSize) {
+			return (long) regions.length * slabSize;
+		}
+
+		void reset() {
+			for (Region<K> region : regions) {
+				if (region != null) {
+					region.writeOffset = 0;
+					region.liveBytes = 0;
+					region.entries = new ArrayList<Entry<K>>();
+				}
+			}
+			head = -1;
+			usedBytes = 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		void release() {
+			regions = new Region[regions.length];
+			head = -1;
+			usedBytes = 0;
+		}
+	}
+
+}
@@ -11,7 +11,8 @@ import org.micro.cache.CacheObj;
 
 /**
  * 定时缓存<br>
- * 此缓存没有容量限制，对象只有在过期后才会被移除
+ * 此缓存没有容量限制，对象只有在过期后才会被移除<br>
+ * 过期对象由时间轮管理，定时清理只处理已到期的桶，见 {@link AbstractCache#expire()}
  *
  * @param <K> 键类型
  * @param <V> 值类型
@@ -32,6 +33,7 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
         this.capacity = 0;
         this.timeout = timeout;
         cacheMap = new HashMap<K, CacheObj<K, V>>();
+        enableTimerWheel();
     }
 
     // ---------------------------------------------------------------- prune
@@ -50,16 +52,20 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
             co = values.next();
             if (co.isExpired()) {
                 values.remove();
+                if (timerWheel != null) {
+                    timerWheel.deschedule(co);
+                }
                 count++;
             }
         }
+        stats.recordExpiration(count);
         return count;
     }
 
     // ---------------------------------------------------------------- auto prune
 
     /**
-     * 定时清理
+     * 定时清理，每次只推进时间轮并移除已到期的对象
      *
      * @param delay 间隔时长
      */
@@ -71,7 +77,7 @@ public class TimedCache<K, V> extends AbstractCache<K, V> {
         pruneTimer.schedule(new TimerTask() {
             @Override
             public void run() {
-                prune();
+                expire();
             }
         }, delay, delay);
     }
@@ -0,0 +1,520 @@
+package org.micro.cache.support;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.micro.cache.Cache;
+import org.micro.cache.CacheStats;
+import org.micro.cache.SingleFlight;
+import org.micro.commons.SystemClock;
+
+/**
+ * W-TinyLFU 缓存<br>
+ * 缓存空间分为两部分：
+ * <ul>
+ * 		<li>窗口区（约1%容量）：LRU，新对象总是先进入窗口区，用于容纳突发的新热点</li>
+ * 		<li>主区（约99%容量）：分段LRU，由试用区(probation)和保护区(protected, 占主区80%)组成，试用区对象再次被访问后晋升到保护区</li>
+ * </ul>
+ * 窗口区满时，被挤出的对象作为候选者与试用区的淘汰者比较 {@link FrequencySketch} 估算的访问频率，频率高者留下。<br>
+ * 准入和淘汰都是O(1)，不需要像 {@link LFUCache} 一样遍历全部对象。<br>
+ * 读操作无锁：直接从 {@link ConcurrentHashMap} 读取，访问事件（频率累加、区域调整）写入有损的环形读缓冲区，
+ * 积累到一定数量后由 tryLock 成功的读线程或下一次写操作在锁内批量处理，缓冲区满时丢弃事件，不阻塞读。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class TinyLFUCache<K, V> implements Cache<K, V>, Iterable<V> {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	/** 读缓冲区大小，2的幂 */
+	private static final int READ_BUFFER_SIZE = 128;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	/** 读缓冲区积累到该数量时尝试处理 */
+	private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 4;
+
+	private final Lock lock = new ReentrantLock();
+	private final ConcurrentHashMap<K, Node<K, V>> cacheMap;
+	private final FrequencySketch<K> sketch;
+
+	private final Node<K, V> window = Node.sentinel();
+	private final Node<K, V> probation = Node.sentinel();
+	private final Node<K, V> protect = Node.sentinel();
+
+	private final int capacity;
+	private final long timeout;
+	private final int windowMax;
+	private final int protectedMax;
+	private int windowSize;
+	private int protectedSize;
+
+	/** 读缓冲区，元素为命中的节点或未命中的key */
+	private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<Object>(READ_BUFFER_SIZE);
+	private final AtomicLong readBufferWriteCount = new AtomicLong();
+	/** 只在持有锁时修改 */
+	private volatile long readBufferReadCount;
+
+	/** 命中、丢失、加载、淘汰和过期统计 */
+	private final CacheStats stats = new CacheStats();
+
+	/** 合并同一个key的并发加载 */
+	private final SingleFlight<K, V> singleFlight = new SingleFlight<K, V>();
+
+	/**
+	 * 构造，默认对象不过期
+	 *
+	 * @param capacity 容量
+	 */
+	public TinyLFUCache(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * 构造
+	 *
+	 * @param capacity 容量
+	 * @param timeout 过期时长
+	 */
+	public TinyLFUCache(int capacity, long timeout) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.timeout = timeout;
+		this.windowMax = Math.max(1, capacity / 100);
+		this.protectedMax = (int) ((capacity - windowMax) * 0.8);
+		this.cacheMap = new ConcurrentHashMap<K, Node<K, V>>(capacity + 1, 1.0f);
+		this.sketch = new FrequencySketch<K>(capacity);
+	}
+
+	// ---------------------------------------------------------------- put start
+	@Override
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	@Override
+	public void put(K key, V object, long timeout) {
+		Node<K, V> node = new Node<K, V>(key, object, timeout);
+		lock.lock();
+		try {
+			drainReadBuffer();
+			sketch.increment(key);
+			Node<K, V> old = cacheMap.put(key, node);
+			if (old != null) {
+				// 替换旧值，保留所在区域
+				node.queue = old.queue;
+				old.replaceWith(node);
+				onAccess(node);
+				return;
+			}
+
+			node.queue = WINDOW;
+			node.linkBefore(window);
+			windowSize++;
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+	// ---------------------------------------------------------------- put end
+
+	// ---------------------------------------------------------------- get start
+	/**
+	 * @return 命中数
+	 */
+	public long getHitCount() {
+		return stats.getHitCount();
+	}
+
+	/**
+	 * @return 丢失数
+	 */
+	public long getMissCount() {
+		return stats.getMissCount();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * 无锁读取，访问事件写入读缓冲区
+	 */
+	@Override
+	public V get(K key) {
+		Node<K, V> node = cacheMap.get(key);
+		if (node == null) {
+			stats.recordMiss();
+			afterRead(key);
+			return null;
+		}
+
+		long now = SystemClock.now();
+		if (node.isExpired(now)) {
+			lock.lock();
+			try {
+				if (cacheMap.get(key) == node) {
+					removeNode(node);
+					stats.recordExpiration();
+				}
+			} finally {
+				lock.unlock();
+			}
+			stats.recordMiss();
+			return null;
+		}
+
+		stats.recordHit();
+		node.lastAccess = now;
+		afterRead(node);
+		return node.value;
+	}
+
+	/**
+	 * 记录访问事件，缓冲区满时丢弃；积累到一定数量时尝试获取锁处理，获取不到时留给持有锁的线程
+	 *
+	 * @param event 命中的节点或未命中的key
+	 */
+	private void afterRead(Object event) {
+		long readCount = readBufferReadCount;
+		long writeCount = readBufferWriteCount.get();
+		long pending = writeCount - readCount;
+		if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+			readBuffer.lazySet((int) writeCount & READ_BUFFER_MASK, event);
+			pending++;
+		}
+
+		if (pending >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+			try {
+				drainReadBuffer();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * 在锁内处理读缓冲区的访问事件：累加访问频率，调整命中节点所在区域
+	 */
+	@SuppressWarnings("unchecked")
+	private void drainReadBuffer() {
+		long readCount = readBufferReadCount;
+		long writeCount = readBufferWriteCount.get();
+		for (; readCount < writeCount; readCount++) {
+			int index = (int) readCount & READ_BUFFER_MASK;
+			Object event = readBuffer.get(index);
+			// 已占位还未写入
+			if (event == null) {
+				break;
+			}
+
+			readBuffer.lazySet(index, null);
+			if (event instanceof Node) {
+				Node<K, V> node = (Node<K, V>) event;
+				sketch.increment(node.key);
+				// 已被移除、替换或清空的节点不再调整
+				if (node.prev != null && cacheMap.get(node.key) == node) {
+					onAccess(node);
+				}
+			} else {
+				sketch.increment((K) event);
+			}
+		}
+		readBufferReadCount = readCount;
+	}
+	// ---------------------------------------------------------------- get end
+
+	/**
+	 * 获取对象，不存在时加载并放入缓存，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+
+		return singleFlight.load(key, this::peek, loader, this::put, stats);
+	}
+
+	/**
+	 * 异步获取对象，不存在时在执行器中加载，同一个key的并发加载只执行一次
+	 */
+	@Override
+	public CompletableFuture<V> computeIfAbsentAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+		V value = get(key);
+		if (value != null) {
+			return CompletableFuture.completedFuture(value);
+		}
+
+		return singleFlight.loadAsync(key, this::peek, loader, this::put, stats, executor);
+	}
+
+	/**
+	 * 查询未过期的对象，不计入命中统计和访问频率
+	 */
+	private V peek(K key) {
+		Node<K, V> node = cacheMap.get(key);
+		return node != null && !node.isExpired(SystemClock.now()) ? node.value : null;
+	}
+
+	/**
+	 * 窗口区溢出时，将窗口区最旧的对象移入试用区，并在缓存超过容量时做一次准入比较
+	 */
+	private void evict() {
+		while (windowSize > windowMax) {
+			Node<K, V> candidate = window.next;
+			candidate.unlink();
+			windowSize--;
+			candidate.queue = PROBATION;
+			candidate.linkBefore(probation);
+
+			if (cacheMap.size() > capacity) {
+				Node<K, V> victim = probation.next;
+				if (victim == candidate) {
+					victim = (protect.next != protect) ? protect.next : candidate;
+				}
+
+				if (victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+					removeNode(victim);
+				} else {
+					removeNode(candidate);
+				}
+				stats.recordEviction();
+			}
+		}
+	}
+
+	/**
+	 * 访问时调整对象所在区域
+	 */
+	private void onAccess(Node<K, V> node) {
+		node.unlink();
+		if (node.queue == WINDOW) {
+			node.linkBefore(window);
+		} else if (node.queue == PROBATION) {
+			node.queue = PROTECTED;
+			node.linkBefore(protect);
+			protectedSize++;
+			// 保护区溢出，最旧的对象降级到试用区
+			while (protectedSize > protectedMax) {
+				Node<K, V> demoted = protect.next;
+				demoted.unlink();
+				protectedSize--;
+				demoted.queue = PROBATION;
+				demoted.linkBefore(probation);
+			}
+		} else {
+			node.linkBefore(protect);
+		}
+	}
+
+	private void removeNode(Node<K, V> node) {
+		cacheMap.remove(node.key);
+		node.unlink();
+		if (node.queue == WINDOW) {
+			windowSize--;
+		} else if (node.queue == PROTECTED) {
+			protectedSize--;
+		}
+	}
+
+	@Override
+	public Set<K> keys() {
+		lock.lock();
+		try {
+			return new HashSet<K>(cacheMap.keySet());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return 未过期对象的快照迭代器
+	 */
+	@Override
+	public Iterator<V> iterator() {
+		lock.lock();
+		try {
+			long now = SystemClock.now();
+			List<V> values = new ArrayList<V>(cacheMap.size());
+			for (Node<K, V> node : cacheMap.values()) {
+				if (!node.isExpired(now)) {
+					values.add(node.value);
+				}
+			}
+			return values.iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 清理过期对象
+	 */
+	@Override
+	public int prune() {
+		lock.lock();
+		try {
+			int count = 0;
+			long now = SystemClock.now();
+			Iterator<Node<K, V>> values = cacheMap.values().iterator();
+			while (values.hasNext()) {
+				Node<K, V> node = values.next();
+				if (node.isExpired(now)) {
+					values.remove();
+					node.unlink();
+					if (node.queue == WINDOW) {
+						windowSize--;
+					} else if (node.queue == PROTECTED) {
+						protectedSize--;
+					}
+					count++;
+				}
+			}
+			stats.recordExpiration(count);
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long timeout() {
+		return timeout;
+	}
+
+	@Override
+	public boolean isFull() {
+		return cacheMap.size() >= capacity;
+	}
+
+	@Override
+	public void remove(K key) {
+		lock.lock();
+		try {
+			drainReadBuffer();
+			Node<K, V> node = cacheMap.get(key);
+			if (node != null) {
+				removeNode(node);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			drainReadBuffer();
+			cacheMap.clear();
+			window.prev = window.next = window;
+			probation.prev = probation.next = probation;
+			protect.prev = protect.next = protect;
+			windowSize = 0;
+			protectedSize = 0;
+			sketch.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		return cacheMap.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return cacheMap.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "TinyLFUCache [capacity=" + capacity + ", size=" + cacheMap.size() + ", window=" + windowSize + ", protected=" + protectedSize + "]";
+	}
+
+	/**
+	 * 缓存节点，同时是所在区域LRU链表的节点<br>
+	 * 链表指针和所在区域只在持有锁时读写，最后访问时间由无锁的读操作更新
+	 */
+	private static final class Node<K, V> {
+
+		final K key;
+		final V value;
+		final long ttl;
+		volatile long lastAccess;
+		int queue;
+
+		Node<K, V> prev;
+		Node<K, V> next;
+
+		Node(K key, V value, long ttl) {
+			this.key = key;
+			this.value = value;
+			this.ttl = ttl;
+			this.lastAccess = SystemClock.now();
+		}
+
+		static <K, V> Node<K, V> sentinel() {
+			Node<K, V> head = new Node<K, V>(null, null, 0);
+			head.prev = head;
+			head.next = head;
+			return head;
+		}
+
+		boolean isExpired(long now) {
+			return (ttl > 0) && (lastAccess + ttl < now);
+		}
+
+		void linkBefore(Node<K, V> head) {
+			Node<K, V> last = head.prev;
+			prev = last;
+			next = head;
+			last.next = this;
+			head.prev = this;
+		}
+
+		void unlink() {
+			if (prev == null) {
+				return;
+			}
+			prev.next = next;
+			next.prev = prev;
+			prev = null;
+			next = null;
+		}
+
+		void replaceWith(Node<K, V> node) {
+			node.prev = prev;
+			node.next = next;
+			prev.next = node;
+			next.prev = node;
+			prev = null;
+			next = null;
+		}
+	}
+
+}
@@ -1,12 +1,20 @@
 package org.micro.commons;
 
+import org.micro.cache.Cache;
+import org.micro.cache.CacheRegistry;
+import org.micro.cache.CacheStats;
+import org.micro.cache.support.ConcurrentCache;
+
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * The Ant Path Matcher
+ * <p>
+ * 模式的分词结果和段匹配器缓存在有界的 {@link ConcurrentCache} 中（{@link ConcurrentCache.Policy#TINY_LFU}），
+ * 模式数超过容量时按访问频率淘汰，命中率逐步下降而不是关闭缓存。
+ * 设置 {@link #setCacheName(String)} 后缓存注册到 {@link CacheRegistry}，命中率通过 {@link org.micro.metric.support.CacheMetric} 输出。
  *
  * @author lry
  * @link org.springframework.util.AntPathMatcher
@@ -15,7 +23,7 @@ public class AntPathMatcher {
 
     public static final String DEFAULT_PATH_SEPARATOR = "/";
 
-    private static final int CACHE_TURNOFF_THRESHOLD = 65536;
+    public static final int DEFAULT_CACHE_CAPACITY = 65536;
 
     private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^/]+?\\}");
 
@@ -32,9 +40,11 @@ public class AntPathMatcher {
 
     private volatile Boolean cachePatterns;
 
-    private final Map<String, String[]> tokenizedPatternCache = new ConcurrentHashMap<>(256);
+    private String cacheName;
+
+    private volatile Cache<String, String[]> tokenizedPatternCache = newCache(DEFAULT_CACHE_CAPACITY);
 
-    private final Map<String, AntPathStringMatcher> stringMatcherCache = new ConcurrentHashMap<>(256);
+    private volatile Cache<String, AntPathStringMatcher> stringMatcherCache = newCache(DEFAULT_CACHE_CAPACITY);
 
 
     public AntPathMatcher() {
@@ -68,10 +78,59 @@ public class AntPathMatcher {
         this.cachePatterns = cachePatterns;
     }
 
-    private void deactivatePatternCache() {
-        this.cachePatterns = false;
-        this.tokenizedPatternCache.clear();
-        this.stringMatcherCache.clear();
+    /**
+     * 重建缓存，已缓存的模式会被丢弃
+     *
+     * @param cacheCapacity 每个缓存的容量
+     */
+    public synchronized void setCacheCapacity(int cacheCapacity) {
+        if (cacheCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal cacheCapacity: " + cacheCapacity);
+        }
+
+        this.tokenizedPatternCache = newCache(cacheCapacity);
+        this.stringMatcherCache = newCache(cacheCapacity);
+        registerCaches();
+    }
+
+    /**
+     * 按名称注册缓存，指标名为 cache_{cacheName}_tokenized_{指标} 和 cache_{cacheName}_matcher_{指标}
+     *
+     * @param cacheName 缓存名称，为null时注销
+     */
+    public synchronized void setCacheName(String cacheName) {
+        if (this.cacheName != null) {
+            CacheRegistry.unregister(this.cacheName + "_tokenized");
+            CacheRegistry.unregister(this.cacheName + "_matcher");
+        }
+
+        this.cacheName = cacheName;
+        registerCaches();
+    }
+
+    private void registerCaches() {
+        if (cacheName != null) {
+            CacheRegistry.register(cacheName + "_tokenized", tokenizedPatternCache);
+            CacheRegistry.register(cacheName + "_matcher", stringMatcherCache);
+        }
+    }
+
+    private static <V> Cache<String, V> newCache(int capacity) {
+        return new ConcurrentCache<>(ConcurrentCache.Policy.TINY_LFU, capacity, 0);
+    }
+
+    /**
+     * @return 模式分词缓存的统计
+     */
+    public CacheStats getTokenizedPatternCacheStats() {
+        return tokenizedPatternCache.stats();
+    }
+
+    /**
+     * @return 段匹配器缓存的统计
+     */
+    public CacheStats getStringMatcherCacheStats() {
+        return stringMatcherCache.stats();
     }
 
 
@@ -257,20 +316,16 @@ public class AntPathMatcher {
     }
 
     protected String[] tokenizePattern(String pattern) {
-        String[] tokenized = null;
         Boolean cachePatterns = this.cachePatterns;
-        if (cachePatterns == null || cachePatterns.booleanValue()) {
-            tokenized = this.tokenizedPatternCache.get(pattern);
+        if (cachePatterns != null && !cachePatterns.booleanValue()) {
+            return tokenizePath(pattern);
         }
+
+        Cache<String, String[]> cache = this.tokenizedPatternCache;
+        String[] tokenized = cache.get(pattern);
         if (tokenized == null) {
             tokenized = tokenizePath(pattern);
-            if (cachePatterns == null && this.tokenizedPatternCache.size() >= CACHE_TURNOFF_THRESHOLD) {
-                deactivatePatternCache();
-                return tokenized;
-            }
-            if (cachePatterns == null || cachePatterns.booleanValue()) {
-                this.tokenizedPatternCache.put(pattern, tokenized);
-            }
+            cache.put(pattern, tokenized);
         }
         return tokenized;
     }
@@ -306,20 +361,16 @@ public class AntPathMatcher {
     }
 
     protected AntPathStringMatcher getStringMatcher(String pattern) {
-        AntPathStringMatcher matcher = null;
         Boolean cachePatterns = this.cachePatterns;
-        if (cachePatterns == null || cachePatterns.booleanValue()) {
-            matcher = this.stringMatcherCache.get(pattern);
+        if (cachePatterns != null && !cachePatterns.booleanValue()) {
+            return new AntPathStringMatcher(pattern, this.caseSensitive);
         }
+
+        Cache<String, AntPathStringMatcher> cache = this.stringMatcherCache;
+        AntPathStringMatcher matcher = cache.get(pattern);
         if (matcher == null) {
             matcher = new AntPathStringMatcher(pattern, this.caseSensitive);
-            if (cachePatterns == null && this.stringMatcherCache.size() >= CACHE_TURNOFF_THRESHOLD) {
-                deactivatePatternCache();
-                return matcher;
-            }
-            if (cachePatterns == null || cachePatterns.booleanValue()) {
-                this.stringMatcherCache.put(pattern, matcher);
-            }
+            cache.put(pattern, matcher);
         }
         return matcher;
     }
@@ -0,0 +1,26 @@
+package org.micro.commons;
+
+import org.micro.extension.SPI;
+
+/**
+ * 时钟<br>
+ * <br>
+ * 墙上时间用于记录时间戳，单调时间用于计算耗时，不受系统时间调整的影响<br>
+ * 默认实现为 {@link SystemClock.CachedClock}，可以通过系统属性 {@code micro.clock} 或 {@link SystemClock#setClock(Clock)} 切换
+ *
+ * @author lry
+ */
+@SPI(value = "cached", single = true)
+public interface Clock {
+
+    /**
+     * @return 墙上时间（毫秒），同 {@link System#currentTimeMillis()}
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return 单调时间（纳秒），同 {@link System#nanoTime()}，只能用于计算耗时
+     */
+    long nanoTime();
+
+}
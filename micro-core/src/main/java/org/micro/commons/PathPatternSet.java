@@ -0,0 +1,524 @@
+package org.micro.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The Path Pattern Set
+ * <p>
+ * 将一组Ant风格的路径模式一次性编译为按路径段组织的前缀树（NFA），匹配时只扫描一遍路径，
+ * 同时推进所有模式的状态，返回匹配的模式下标。匹配语义与 {@link AntPathMatcher#match(String, String)} 一致。
+ * <p>
+ * 1.普通段通过哈希表查找，路径段的哈希在扫描时计算，不截取子串<br>
+ * 2.含 *、? 和 {name} 的段在原字符串上回溯匹配；{name:regex} 形式的段使用正则，需要截取子串<br>
+ * 3.** 段可以匹配0到多个路径段<br>
+ * 4.状态集合使用线程本地的数组，匹配过程不创建对象（{@link #matchAll(String)} 除外）
+ *
+ * @author lry
+ * @see AntPathMatcher
+ */
+public class PathPatternSet {
+
+    private static final Pattern SIMPLE_VARIABLE = Pattern.compile("\\{[^/{}:]+\\}");
+
+    private final String[] patterns;
+    private final char separator;
+    private final boolean caseSensitive;
+
+    /**
+     * 模式是否包含 ** 段，包含时不比较结尾的分隔符
+     */
+    private final boolean[] doubleWildcard;
+    /**
+     * 模式是否以分隔符结尾
+     */
+    private final boolean[] endsWithSeparator;
+
+    private final Node absoluteRoot;
+    private final Node relativeRoot;
+    /**
+     * 按节点id索引的所有节点，线程本地的状态集合只保存id
+     */
+    private final Node[] nodes;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    public PathPatternSet(Collection<String> patterns) {
+        this(patterns, AntPathMatcher.DEFAULT_PATH_SEPARATOR, true);
+    }
+
+    /**
+     * 编译模式集合
+     *
+     * @param patterns      模式，下标按集合的迭代顺序
+     * @param pathSeparator 路径分隔符，只支持单个字符
+     * @param caseSensitive 是否区分大小写
+     */
+    public PathPatternSet(Collection<String> patterns, String pathSeparator, boolean caseSensitive) {
+        if (patterns == null) {
+            throw new IllegalArgumentException("'patterns' is required");
+        }
+        if (pathSeparator == null || pathSeparator.length() != 1) {
+            throw new IllegalArgumentException("Illegal pathSeparator: " + pathSeparator);
+        }
+
+        this.patterns = patterns.toArray(new String[0]);
+        this.separator = pathSeparator.charAt(0);
+        this.caseSensitive = caseSensitive;
+        this.doubleWildcard = new boolean[this.patterns.length];
+        this.endsWithSeparator = new boolean[this.patterns.length];
+
+        List<Node> nodes = new ArrayList<>();
+        this.absoluteRoot = new Node(nodes, false, caseSensitive);
+        this.relativeRoot = new Node(nodes, false, caseSensitive);
+        for (int i = 0; i < this.patterns.length; i++) {
+            add(nodes, i, this.patterns[i]);
+        }
+        for (Node node : nodes) {
+            node.freeze();
+        }
+
+        this.nodes = nodes.toArray(new Node[0]);
+        int nodeCount = this.nodes.length;
+        int patternCount = this.patterns.length;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(nodeCount, patternCount));
+    }
+
+    private void add(List<Node> nodes, int index, String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern is null");
+        }
+
+        Node node = pattern.indexOf(separator) == 0 ? absoluteRoot : relativeRoot;
+        endsWithSeparator[index] = pattern.length() > 0 && pattern.charAt(pattern.length() - 1) == separator;
+        for (String token : AntPathMatcher.tokenizeToStringArray(pattern, String.valueOf(separator), false, true)) {
+            if ("**".equals(token)) {
+                doubleWildcard[index] = true;
+                if (node.doubleStar == null) {
+                    node.doubleStar = new Node(nodes, true, caseSensitive);
+                }
+                node = node.doubleStar;
+            } else if (token.indexOf('*') == -1 && token.indexOf('?') == -1 && token.indexOf('{') == -1) {
+                node = node.literalBuilder.computeIfAbsent(token, k -> new Node(nodes, false, caseSensitive));
+            } else {
+                Segment segment = node.globBuilder.keySet().stream().filter(s -> s.token.equals(token)).findFirst().orElse(null);
+                if (segment == null) {
+                    segment = new Segment(token, caseSensitive);
+                    node.globBuilder.put(segment, new Node(nodes, false, caseSensitive));
+                }
+                node = node.globBuilder.get(segment);
+            }
+        }
+        node.terminalBuilder.add(index);
+    }
+
+    /**
+     * @return 模式数
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * @param index 模式下标
+     * @return 模式
+     */
+    public String getPattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * @return 所有模式
+     */
+    public List<String> getPatterns() {
+        List<String> list = new ArrayList<>(patterns.length);
+        Collections.addAll(list, patterns);
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @param path 路径
+     * @return 是否有模式匹配
+     */
+    public boolean matches(String path) {
+        return match(path, null) > 0;
+    }
+
+    /**
+     * @param path 路径
+     * @return 匹配的最小模式下标，没有匹配时返回-1
+     */
+    public int matchFirst(String path) {
+        Scratch sc = scratch.get();
+        return match(path, sc.single) > 0 ? sc.single[0] : -1;
+    }
+
+    /**
+     * 返回匹配的模式，不创建对象
+     *
+     * @param path   路径
+     * @param result 按升序存放匹配的模式下标，超出长度的部分不存放，为null时找到第一个匹配即返回
+     * @return 匹配的模式数
+     */
+    public int match(String path, int[] result) {
+        if (path == null) {
+            return 0;
+        }
+
+        Scratch sc = scratch.get();
+        int length = path.length();
+        boolean absolute = length > 0 && path.charAt(0) == separator;
+        sc.clear();
+        sc.count = 0;
+        sc.addClosure(absolute ? absoluteRoot : relativeRoot);
+
+        int i = 0;
+        while (i < length) {
+            if (path.charAt(i) == separator) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int hash = 0;
+            for (; i < length; i++) {
+                char c = path.charAt(i);
+                if (c == separator) {
+                    break;
+                }
+                hash = 31 * hash + fold(c);
+            }
+
+            int[] current = sc.states;
+            int count = sc.count;
+            sc.swap();
+            sc.clear();
+            for (int s = 0; s < count; s++) {
+                Node node = nodes[current[s]];
+                if (node.isDoubleStar) {
+                    sc.addClosure(node);
+                }
+                Node literal = node.findLiteral(path, start, i, hash);
+                if (literal != null) {
+                    sc.addClosure(literal);
+                }
+                for (int g = 0; g < node.globs.length; g++) {
+                    if (node.globs[g].matches(path, start, i)) {
+                        sc.addClosure(node.globChildren[g]);
+                    }
+                }
+            }
+            if (sc.count == 0) {
+                return 0;
+            }
+        }
+
+        return accept(sc, length > 0 && path.charAt(length - 1) == separator, result);
+    }
+
+    private int accept(Scratch sc, boolean pathEndsWithSeparator, int[] result) {
+        sc.generation++;
+        int matched = 0;
+        for (int s = 0; s < sc.count; s++) {
+            Node node = nodes[sc.states[s]];
+            for (int index : node.terminals) {
+                if (doubleWildcard[index] || endsWithSeparator[index] == pathEndsWithSeparator) {
+                    matched = sc.hit(index, matched);
+                }
+            }
+
+            // 同AntPathMatcher："test/*" 匹配 "test/"
+            if (pathEndsWithSeparator) {
+                for (int g = 0; g < node.globs.length; g++) {
+                    if (node.globs[g].singleWildcard) {
+                        for (int index : node.globChildren[g].terminals) {
+                            if (!doubleWildcard[index]) {
+                                matched = sc.hit(index, matched);
+                            }
+                        }
+                    }
+                }
+            }
+            if (result == null && matched > 0) {
+                return matched;
+            }
+        }
+
+        if (result != null) {
+            // 插入排序，匹配数通常很小
+            int[] hits = sc.hits;
+            for (int a = 1; a < matched; a++) {
+                int v = hits[a];
+                int b = a - 1;
+                while (b >= 0 && hits[b] > v) {
+                    hits[b + 1] = hits[b];
+                    b--;
+                }
+                hits[b + 1] = v;
+            }
+            System.arraycopy(hits, 0, result, 0, Math.min(matched, result.length));
+        }
+
+        return matched;
+    }
+
+    /**
+     * @param path 路径
+     * @return 匹配的模式，按下标升序
+     */
+    public List<String> matchAll(String path) {
+        int[] result = new int[patterns.length];
+        int matched = match(path, result);
+        List<String> list = new ArrayList<>(matched);
+        for (int i = 0; i < matched; i++) {
+            list.add(patterns[result[i]]);
+        }
+        return list;
+    }
+
+    private int fold(char c) {
+        return fold(c, caseSensitive);
+    }
+
+    private static int fold(char c, boolean caseSensitive) {
+        return caseSensitive ? c : Segment.lower(c);
+    }
+
+    @Override
+    public String toString() {
+        return "PathPatternSet [patterns=" + patterns.length + ", nodes=" + nodes.length + "]";
+    }
+
+    /**
+     * 前缀树节点，编译完成后只读
+     */
+    private static final class Node {
+
+        final int id;
+        final boolean isDoubleStar;
+        final boolean caseSensitive;
+
+        Map<String, Node> literalBuilder = new HashMap<>();
+        Map<Segment, Node> globBuilder = new LinkedHashMap<>();
+        List<Integer> terminalBuilder = new ArrayList<>();
+
+        String[] literals;
+        Node[] literalChildren;
+        /**
+         * 开放寻址表，存放literals下标+1，0表示空
+         */
+        int[] literalTable;
+        int literalMask;
+
+        Segment[] globs;
+        Node[] globChildren;
+        Node doubleStar;
+        int[] terminals;
+
+        Node(List<Node> nodes, boolean isDoubleStar, boolean caseSensitive) {
+            this.id = nodes.size();
+            this.isDoubleStar = isDoubleStar;
+            this.caseSensitive = caseSensitive;
+            nodes.add(this);
+        }
+
+        void freeze() {
+            literals = literalBuilder.keySet().toArray(new String[0]);
+            literalChildren = new Node[literals.length];
+            int tableSize = Integer.highestOneBit(Math.max(1, literals.length * 2 - 1)) << 1;
+            literalTable = new int[tableSize];
+            literalMask = tableSize - 1;
+            for (int i = 0; i < literals.length; i++) {
+                literalChildren[i] = literalBuilder.get(literals[i]);
+                int slot = hash(literals[i]) & literalMask;
+                while (literalTable[slot] != 0) {
+                    slot = (slot + 1) & literalMask;
+                }
+                literalTable[slot] = i + 1;
+            }
+
+            globs = globBuilder.keySet().toArray(new Segment[0]);
+            globChildren = globBuilder.values().toArray(new Node[0]);
+            terminals = new int[terminalBuilder.size()];
+            for (int i = 0; i < terminals.length; i++) {
+                terminals[i] = terminalBuilder.get(i);
+            }
+
+            literalBuilder = null;
+            globBuilder = null;
+            terminalBuilder = null;
+        }
+
+        private int hash(String literal) {
+            int h = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                h = 31 * h + fold(literal.charAt(i), caseSensitive);
+            }
+            return h;
+        }
+
+        Node findLiteral(String path, int start, int end, int hash) {
+            if (literals.length == 0) {
+                return null;
+            }
+
+            for (int slot = hash & literalMask; literalTable[slot] != 0; slot = (slot + 1) & literalMask) {
+                int index = literalTable[slot] - 1;
+                String literal = literals[index];
+                if (literal.length() == end - start && regionEquals(literal, path, start)) {
+                    return literalChildren[index];
+                }
+            }
+            return null;
+        }
+
+        private boolean regionEquals(String literal, String path, int start) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (fold(literal.charAt(i), caseSensitive) != fold(path.charAt(start + i), caseSensitive)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 含通配符的路径段
+     */
+    private static final class Segment {
+
+        final String token;
+        final boolean caseSensitive;
+        /**
+         * 段为 "*"
+         */
+        final boolean singleWildcard;
+        /**
+         * 只含 * 和 ? 时在原字符串上匹配
+         */
+        final char[] glob;
+        /**
+         * 含正则变量时使用 {@link AntPathMatcher.AntPathStringMatcher}
+         */
+        final AntPathMatcher.AntPathStringMatcher regex;
+
+        Segment(String token, boolean caseSensitive) {
+            this.token = token;
+            this.caseSensitive = caseSensitive;
+            this.singleWildcard = "*".equals(token);
+
+            // {name} 等价于 *
+            String simplified = SIMPLE_VARIABLE.matcher(token).replaceAll("*");
+            if (simplified.indexOf('{') == -1 && simplified.indexOf('}') == -1) {
+                this.glob = simplified.toCharArray();
+                this.regex = null;
+            } else {
+                this.glob = null;
+                this.regex = new AntPathMatcher.AntPathStringMatcher(token, caseSensitive);
+            }
+        }
+
+        boolean matches(String path, int start, int end) {
+            if (glob == null) {
+                return regex.matchStrings(path.substring(start, end), null);
+            }
+
+            int p = 0;
+            int s = start;
+            int star = -1;
+            int mark = 0;
+            while (s < end) {
+                char c = path.charAt(s);
+                if (p < glob.length && glob[p] != '*' && (glob[p] == '?' ? !isLineTerminator(c) : equals(glob[p], c))) {
+                    p++;
+                    s++;
+                } else if (p < glob.length && glob[p] == '*') {
+                    star = p++;
+                    mark = s;
+                } else if (star >= 0 && !isLineTerminator(path.charAt(mark))) {
+                    // 回溯：上一个 * 多匹配一个字符（正则的 . 不匹配换行符）
+                    p = star + 1;
+                    s = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (p < glob.length && glob[p] == '*') {
+                p++;
+            }
+            return p == glob.length;
+        }
+
+        private boolean equals(char a, char b) {
+            return a == b || (!caseSensitive && lower(a) == lower(b));
+        }
+
+        /**
+         * 与 {@link Pattern#CASE_INSENSITIVE} 一致，只忽略ASCII字符的大小写
+         */
+        static char lower(char c) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+
+        static boolean isLineTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+    }
+
+    /**
+     * 线程本地的状态集合，只保存节点id和模式下标，不引用节点，线程池中的线程不会因此持有已丢弃的模式集合
+     */
+    private static final class Scratch {
+
+        int[] states;
+        int[] next;
+        int count;
+        final int[] marks;
+        final int[] patternMarks;
+        final int[] hits;
+        final int[] single = new int[1];
+        int generation;
+
+        Scratch(int nodeCount, int patternCount) {
+            this.states = new int[nodeCount];
+            this.next = new int[nodeCount];
+            this.marks = new int[nodeCount];
+            this.patternMarks = new int[patternCount];
+            this.hits = new int[patternCount];
+        }
+
+        void clear() {
+            generation++;
+            count = 0;
+        }
+
+        void swap() {
+            int[] tmp = states;
+            states = next;
+            next = tmp;
+        }
+
+        void addClosure(Node node) {
+            while (node != null && marks[node.id] != generation) {
+                marks[node.id] = generation;
+                states[count++] = node.id;
+                node = node.doubleStar;
+            }
+        }
+
+        int hit(int index, int matched) {
+            if (patternMarks[index] != generation) {
+                patternMarks[index] = generation;
+                hits[matched++] = index;
+            }
+            return matched;
+        }
+    }
+
+}
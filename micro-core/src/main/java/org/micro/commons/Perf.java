@@ -1,11 +1,30 @@
 package org.micro.commons;
 
+import org.micro.metric.Histogram;
+
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 性能测试工具<br>
+ * <br>
+ * 1.闭环模式（rate为0）：每个线程执行完一个任务立即执行下一个，耗时从任务开始计算<br>
+ * 2.开环模式（rate大于0）：所有线程合计按固定速率发起任务，耗时从计划开始时间计算，
+ * 被测服务变慢时排队的时间也计入耗时，避免协调遗漏（coordinated omission）<br>
+ * 3.预热期间的任务不计入统计；设置duration时按时长运行，否则每个线程执行loopCount次<br>
+ * 4.每个reportInterval打印一次区间的TPS和p50/p99/p999/max耗时，结束后打印汇总，
+ * 设置reportFile时按文件后缀（.csv/.json）输出报告<br>
  *
  * @author lry
  */
@@ -13,32 +32,130 @@ public abstract class Perf implements Closeable {
 
     private int threadCount = 16;
     private int loopCount = 1000000;
-    private int logInterval = 0;
-    private long startTime;
-    private AtomicLong counter = new AtomicLong(0);
-    private AtomicLong failCounter = new AtomicLong(0);
+    private long duration = 0;
+    private long warmup = 0;
+    private double rate = 0;
+    private long reportInterval = 1000;
+    private File reportFile;
+
+    private long startNanos;
+    private long measureStartNanos;
+    private final LongAdder counter = new LongAdder();
+    private final LongAdder failCounter = new LongAdder();
+    private final LongAdder totalFailCounter = new LongAdder();
+    private final AtomicReference<Histogram> intervalHistogram = new AtomicReference<>(new Histogram());
+    private final Histogram totalHistogram = new Histogram();
+    private final List<Interval> intervals = Collections.synchronizedList(new ArrayList<>());
+    private Interval total;
 
     public abstract TaskInThread buildTaskInThread();
 
     public void run() throws Exception {
-        this.startTime = System.currentTimeMillis();
         TaskThread[] tasks = new TaskThread[threadCount];
         for (int i = 0; i < tasks.length; i++) {
             TaskInThread t = buildTaskInThread();
             t.initTask();
-            tasks[i] = new TaskThread(t);
+            tasks[i] = new TaskThread(t, i);
         }
 
+        this.startNanos = System.nanoTime();
+        this.measureStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(warmup);
         for (TaskThread task : tasks) {
             task.start();
         }
 
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(reportInterval);
+        long lastNanos = measureStartNanos;
+        long nextReport = measureStartNanos + intervalNanos;
+        while (!isDone(tasks)) {
+            joinUntil(tasks, nextReport);
+            long now = System.nanoTime();
+            if (now >= nextReport) {
+                report(lastNanos, now);
+                lastNanos = now;
+                nextReport = Math.max(nextReport + intervalNanos, now + 1);
+            }
+        }
+
+        long end = System.nanoTime();
+        if (counter.sum() > 0 || failCounter.sum() > 0) {
+            report(lastNanos, end);
+        }
         for (TaskThread task : tasks) {
-            task.join();
             task.task.close();
         }
 
-        System.out.println("===done===");
+        this.total = new Interval((end - startNanos) / 1e9, Math.max(1, end - measureStartNanos) / 1e9,
+                totalHistogram, totalHistogram.getCount(), totalFailCounter.sum());
+        System.out.println("===done=== " + total);
+        if (reportFile != null) {
+            writeReport(reportFile);
+        }
+    }
+
+    private boolean isDone(TaskThread[] tasks) {
+        for (TaskThread task : tasks) {
+            if (task.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void joinUntil(TaskThread[] tasks, long deadline) throws InterruptedException {
+        for (TaskThread task : tasks) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(task, remaining);
+        }
+    }
+
+    private synchronized void report(long fromNanos, long toNanos) {
+        Histogram histogram = intervalHistogram.getAndSet(new Histogram());
+        long count = counter.sumThenReset();
+        long failed = failCounter.sumThenReset();
+        Interval interval = new Interval((toNanos - startNanos) / 1e9, Math.max(1, toNanos - fromNanos) / 1e9,
+                histogram, count, failed);
+        intervals.add(interval);
+        System.out.println(interval);
+    }
+
+    /**
+     * 输出报告，文件后缀为.json时输出JSON，否则输出CSV
+     *
+     * @param file 报告文件
+     * @throws IOException 写文件失败
+     */
+    public void writeReport(File file) throws IOException {
+        boolean json = file.getName().endsWith(".json");
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            if (json) {
+                writer.println("{");
+                writer.println("  \"threadCount\": " + threadCount + ", \"rate\": " + rate
+                        + ", \"warmup\": " + warmup + ", \"duration\": " + duration + ",");
+                writer.println("  \"intervals\": [");
+                synchronized (intervals) {
+                    for (int i = 0; i < intervals.size(); i++) {
+                        writer.println("    " + intervals.get(i).toJson() + (i < intervals.size() - 1 ? "," : ""));
+                    }
+                }
+                writer.println("  ],");
+                writer.println("  \"total\": " + (total == null ? "null" : total.toJson()));
+                writer.println("}");
+            } else {
+                writer.println(Interval.CSV_HEADER);
+                synchronized (intervals) {
+                    for (Interval interval : intervals) {
+                        writer.println(interval.toCsv());
+                    }
+                }
+                if (total != null) {
+                    writer.println(total.toCsv());
+                }
+            }
+        }
     }
 
     @Override
@@ -46,41 +163,240 @@ public abstract class Perf implements Closeable {
 
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * @param loopCount 每个线程的执行次数，设置duration时不生效
+     */
+    public void setLoopCount(int loopCount) {
+        this.loopCount = loopCount;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param duration 运行时长（毫秒，不含预热），0表示按loopCount运行
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public long getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * @param warmup 预热时长（毫秒）
+     */
+    public void setWarmup(long warmup) {
+        this.warmup = warmup;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate 所有线程合计的目标速率（次/秒），0表示闭环模式
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public long getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @param reportInterval 区间统计的打印周期（毫秒）
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * @return 每个区间的统计
+     */
+    public List<Interval> getIntervals() {
+        return Collections.unmodifiableList(intervals);
+    }
+
+    /**
+     * @return 汇总统计，运行结束前为null
+     */
+    public Interval getTotal() {
+        return total;
+    }
+
+    /**
+     * @return 预热后所有任务的耗时分布（纳秒）
+     */
+    public Histogram getHistogram() {
+        return totalHistogram;
+    }
+
     class TaskThread extends Thread {
-        private TaskInThread task;
+        private final TaskInThread task;
+        private final int index;
 
-        private TaskThread(TaskInThread task) {
+        private TaskThread(TaskInThread task, int index) {
             this.task = task;
+            this.index = index;
         }
 
         @Override
         public void run() {
-            long logInterval = Perf.this.logInterval;
-            if (logInterval <= 0) {
-                logInterval = threadCount * loopCount / 10;
-            }
+            // 开环模式下每个线程的发起间隔，各线程错开发起时间
+            long intervalNanos = rate > 0 ? (long) (1e9 * threadCount / rate) : 0;
+            long next = startNanos + intervalNanos * index / threadCount;
+            long endNanos = duration > 0 ? measureStartNanos + TimeUnit.MILLISECONDS.toNanos(duration) : Long.MAX_VALUE;
+
+            for (long i = 0; duration > 0 || i < loopCount; i++) {
+                long intended;
+                if (intervalNanos > 0) {
+                    intended = next;
+                    next += intervalNanos;
+                    waitUntil(intended);
+                } else {
+                    intended = System.nanoTime();
+                }
+                if (intended >= endNanos) {
+                    break;
+                }
 
-            for (int i = 0; i < loopCount; i++) {
+                boolean failed = false;
                 try {
-                    long count = counter.incrementAndGet();
                     task.doTask();
-                    if (count % logInterval == 0) {
-                        long end = System.currentTimeMillis();
-                        long total = counter.get();
-                        String tps = String.format("%.4f", count * 1000.0 / (end - startTime));
-                        String elapsed = String.format("%.4f", (end - startTime) * 1.0 / (counter.get() - failCounter.get()));
-                        long failed = failCounter.get();
-                        String failRate = String.format("%.4f", failCounter.get() * 1.0 / counter.get() * 100);
-
-                        System.out.println(String.format("Total=%st, TPS=%st/s, Elapsed=%sms, Failed=%st, FailRate=%s%%.", total, tps, elapsed, failed, failRate));
-                    }
                 } catch (Exception e) {
-                    e.printStackTrace();
-                    failCounter.incrementAndGet();
-                    System.out.println("The total failure(" + e.getMessage() + ") " + failCounter.get() + " of " + counter.get() + " request!!!");
+                    failed = true;
+                    System.out.println("The task failure(" + e.getMessage() + ") in thread " + getName());
+                }
+
+                // 耗时从计划开始时间计算，包括等待被测服务的排队时间
+                long latency = System.nanoTime() - intended;
+                if (intended >= measureStartNanos) {
+                    if (failed) {
+                        failCounter.increment();
+                        totalFailCounter.increment();
+                    } else {
+                        counter.increment();
+                        intervalHistogram.get().record(latency);
+                        totalHistogram.record(latency);
+                    }
                 }
             }
         }
+
+        private void waitUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    /**
+     * 区间统计，耗时单位为微秒
+     */
+    public static final class Interval {
+
+        static final String CSV_HEADER = "time_s,count,failed,tps,mean_us,p50_us,p99_us,p999_us,max_us";
+
+        private final double time;
+        private final long count;
+        private final long failed;
+        private final double tps;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Interval(double time, double seconds, Histogram histogram, long count, long failed) {
+            this.time = time;
+            this.count = count;
+            this.failed = failed;
+            this.tps = count / seconds;
+            this.mean = histogram.getMean() / 1000;
+            this.p50 = histogram.getValueAtPercentile(50) / 1000;
+            this.p99 = histogram.getValueAtPercentile(99) / 1000;
+            this.p999 = histogram.getValueAtPercentile(99.9) / 1000;
+            this.max = histogram.getMax() / 1000;
+        }
+
+        /**
+         * @return 区间结束时距开始运行的秒数
+         */
+        public double getTime() {
+            return time;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public double getTps() {
+            return tps;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%.3f,%d,%d,%.2f,%.1f,%d,%d,%d,%d", time, count, failed, tps, mean, p50, p99, p999, max);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"time\": %.3f, \"count\": %d, \"failed\": %d, \"tps\": %.2f, \"mean\": %.1f, "
+                    + "\"p50\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}", time, count, failed, tps, mean, p50, p99, p999, max);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%.1fs] Total=%st, TPS=%.2ft/s, Failed=%st, Latency(us): mean=%.1f, p50=%s, p99=%s, p999=%s, max=%s.",
+                    time, count, tps, failed, mean, p50, p99, p999, max);
+        }
     }
 
     public static abstract class TaskInThread implements Closeable {
@@ -96,4 +412,4 @@ public abstract class Perf implements Closeable {
 
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package org.micro.commons;
 
+import org.micro.extension.Extension;
+import org.micro.extension.ExtensionLoader;
+
 import java.sql.Timestamp;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -8,47 +11,180 @@ import java.util.concurrent.atomic.AtomicLong;
  * 微时间<br>
  * <br>
  * 高并发场景下System.currentTimeMillis()的性能问题的优化<br>
+ * 时钟实现通过 {@link Clock} 扩展点加载，系统属性 {@code micro.clock} 指定扩展名，默认为 cached<br>
  *
  * @author lry
  */
 public class SystemClock {
 
-    private final long period;
-    private final AtomicLong now;
+    public static final String CLOCK_KEY = "micro.clock";
 
-    private SystemClock(long period) {
-        this.period = period;
-        this.now = new AtomicLong(System.currentTimeMillis());
-        scheduleClockUpdating();
-    }
+    private static volatile Clock clock = loadClock();
 
-    private static class InstanceHolder {
-        static final SystemClock INSTANCE = new SystemClock(1);
+    private SystemClock() {
     }
 
-    private static SystemClock instance() {
-        return InstanceHolder.INSTANCE;
+    private static Clock loadClock() {
+        ExtensionLoader<Clock> loader = ExtensionLoader.getLoader(Clock.class);
+        String name = System.getProperty(CLOCK_KEY);
+        return (name == null || name.length() == 0) ? loader.getExtension() : loader.getExtension(name);
     }
 
-    private void scheduleClockUpdating() {
-        ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1, r -> {
-            Thread thread = new Thread(r, "system-clock");
-            thread.setDaemon(true);
-            return thread;
-        });
-        scheduler.scheduleAtFixedRate(() -> now.set(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    /**
+     * @return 当前使用的时钟
+     */
+    public static Clock getClock() {
+        return clock;
     }
 
-    private long currentTimeMillis() {
-        return now.get();
+    /**
+     * 切换时钟，如测试时使用 {@link ManualClock}
+     *
+     * @param clock 时钟，为null时恢复为扩展点加载的时钟
+     */
+    public static void setClock(Clock clock) {
+        SystemClock.clock = clock == null ? loadClock() : clock;
     }
 
     public static long now() {
-        return instance().currentTimeMillis();
+        return clock.currentTimeMillis();
+    }
+
+    /**
+     * @return 单调时间（纳秒）
+     */
+    public static long nanoTime() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * @param startNanos {@link #nanoTime()} 的返回值
+     * @return 从startNanos到现在的毫秒数
+     */
+    public static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - startNanos);
     }
 
     public static String nowString() {
-        return new Timestamp(instance().currentTimeMillis()).toString();
+        return new Timestamp(clock.currentTimeMillis()).toString();
+    }
+
+    /**
+     * 后台线程每毫秒刷新一次的时钟，读取只是一次volatile读
+     *
+     * @author lry
+     */
+    @Extension("cached")
+    public static class CachedClock implements Clock {
+
+        private final long period;
+        private volatile long millis;
+        private volatile long nanos;
+
+        public CachedClock() {
+            this(1);
+        }
+
+        public CachedClock(long period) {
+            this.period = period;
+            this.millis = System.currentTimeMillis();
+            this.nanos = System.nanoTime();
+            scheduleClockUpdating();
+        }
+
+        private void scheduleClockUpdating() {
+            ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "system-clock");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(() -> {
+                millis = System.currentTimeMillis();
+                nanos = System.nanoTime();
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return millis;
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+
+    }
+
+    /**
+     * 直接调用 {@link System#currentTimeMillis()} 和 {@link System#nanoTime()} 的时钟，精度最高
+     *
+     * @author lry
+     */
+    @Extension("system")
+    public static class NativeClock implements Clock {
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+    }
+
+    /**
+     * 手动推进的时钟，用于测试过期、超时等依赖时间的逻辑
+     *
+     * @author lry
+     */
+    @Extension("manual")
+    public static class ManualClock implements Clock {
+
+        private final AtomicLong millis;
+        private final AtomicLong nanos = new AtomicLong();
+
+        public ManualClock() {
+            this(System.currentTimeMillis());
+        }
+
+        public ManualClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return millis.get();
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanos.get();
+        }
+
+        /**
+         * 设置墙上时间，不影响单调时间
+         *
+         * @param millis 墙上时间（毫秒）
+         */
+        public void setTime(long millis) {
+            this.millis.set(millis);
+        }
+
+        /**
+         * 同时推进墙上时间和单调时间
+         *
+         * @param duration 时长
+         * @param unit     时间单位
+         */
+        public void advance(long duration, TimeUnit unit) {
+            millis.addAndGet(unit.toMillis(duration));
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+
     }
 
-}
\ No newline at end of file
+}
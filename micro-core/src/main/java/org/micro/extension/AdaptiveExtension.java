@@ -0,0 +1,282 @@
+package org.micro.extension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.micro.commons.SystemClock;
+
+/**
+ * 自适应扩展选择器
+ * <p>
+ * 按运行时的耗时和错误率在扩展点的多个实现之间选择：
+ * <p>
+ * 1.每个实现维护耗时和错误率的指数加权移动平均（EWMA）以及进行中的调用数<br>
+ * 2.每次随机取两个候选（power of two choices），选择代价低的一个：代价 = EWMA耗时 × (进行中调用数 + 1) / 成功率<br>
+ * 3.没有样本的实现代价最低，会被优先探测；耗时和错误率都按未更新的时长衰减，变慢或出错后长时间未被选中的实现会重新获得流量，
+ * 再次记录时历史值的权重同样衰减，恢复后的实现以新样本为准<br>
+ * 4.候选实现随 {@link ExtensionLoader#reload()} 自动更新
+ * <p>
+ * 通过 {@link #invoke(Function)} 调用时自动记录耗时和结果，异步调用可以通过 {@link #select()} 和
+ * {@link #record(String, long, boolean)} 自行记录。
+ *
+ * @param <T> 扩展点类型
+ * @author lry
+ */
+public final class AdaptiveExtension<T> {
+
+    /**
+     * EWMA的权重
+     */
+    private static final double ALPHA = 0.2;
+    /**
+     * 成功率的下限，避免全部失败时代价无穷大
+     */
+    private static final double MIN_SUCCESS_RATE = 0.01;
+
+    private final ExtensionLoader<T> loader;
+    private final Set<String> names;
+    private final long decayNanos;
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile Candidates candidates;
+
+    AdaptiveExtension(ExtensionLoader<T> loader) {
+        this(loader, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 构造
+     *
+     * @param loader 扩展点加载器
+     * @param decay  耗时和错误率的衰减时长，超过该时长未更新的耗时和错误率衰减为原来的1/e
+     * @param unit   时间单位
+     * @param names  候选的实现类ID，为空时为所有实现
+     */
+    public AdaptiveExtension(ExtensionLoader<T> loader, long decay, TimeUnit unit, String... names) {
+        if (loader == null || decay <= 0) {
+            throw new IllegalArgumentException("Illegal loader: " + loader + " or decay: " + decay);
+        }
+
+        this.loader = loader;
+        this.decayNanos = unit.toNanos(decay);
+        this.names = names.length == 0 ? null : new HashSet<>(Arrays.asList(names));
+    }
+
+    /**
+     * 选择一个实现
+     *
+     * @return 实现类ID，没有候选时返回null
+     */
+    public String select() {
+        Stats[] current = candidates().stats;
+        if (current.length == 0) {
+            return null;
+        }
+        if (current.length == 1) {
+            return current[0].name;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(current.length);
+        int b = random.nextInt(current.length - 1);
+        if (b >= a) {
+            b++;
+        }
+
+        long now = SystemClock.nanoTime();
+        return current[a].cost(now) <= current[b].cost(now) ? current[a].name : current[b].name;
+    }
+
+    /**
+     * 选择一个实现并调用，记录耗时和结果
+     *
+     * @param call 调用
+     * @param <R>  返回值类型
+     * @return 调用的返回值
+     * @throws IllegalStateException 没有候选实现
+     */
+    public <R> R invoke(Function<? super T, ? extends R> call) {
+        String name = select();
+        if (name == null) {
+            throw new IllegalStateException(loader + ": No extension to select");
+        }
+
+        Stats stat = stats(name);
+        stat.inflight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            R result = call.apply(loader.getExtension(name));
+            success = true;
+            return result;
+        } finally {
+            stat.inflight.decrementAndGet();
+            stat.record(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param name         实现类ID
+     * @param latencyNanos 耗时（纳秒）
+     * @param success      是否成功
+     */
+    public void record(String name, long latencyNanos, boolean success) {
+        stats(name).record(latencyNanos, success);
+    }
+
+    /**
+     * @param name 实现类ID
+     * @return 实现的统计，没有时返回null
+     */
+    public Stats getStats(String name) {
+        return stats.get(name);
+    }
+
+    /**
+     * @return 当前候选实现类ID
+     */
+    public List<String> getCandidates() {
+        List<String> list = new ArrayList<>();
+        for (Stats stat : candidates().stats) {
+            list.add(stat.name);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private Stats stats(String name) {
+        Stats stat = stats.get(name);
+        return stat != null ? stat : stats.computeIfAbsent(name, key -> new Stats(key, decayNanos));
+    }
+
+    private Candidates candidates() {
+        Object version = loader.version();
+        Candidates current = candidates;
+        if (current == null || current.version != version) {
+            List<Stats> list = new ArrayList<>();
+            for (String name : loader.getExtensionNames()) {
+                if (names == null || names.contains(name)) {
+                    list.add(stats(name));
+                }
+            }
+            candidates = current = new Candidates(version, list.toArray(new Stats[0]));
+        }
+
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveExtension" + Arrays.toString(candidates().stats);
+    }
+
+    /**
+     * 与加载器快照对应的候选实现
+     */
+    private static final class Candidates {
+
+        final Object version;
+        final Stats[] stats;
+
+        Candidates(Object version, Stats[] stats) {
+            this.version = version;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * 实现的运行统计
+     */
+    public static final class Stats {
+
+        private final String name;
+        private final long decayNanos;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile double latency;
+        private volatile double errorRate;
+        private volatile long count;
+        private volatile long lastUpdate;
+
+        Stats(String name, long decayNanos) {
+            this.name = name;
+            this.decayNanos = decayNanos;
+        }
+
+        synchronized void record(long latencyNanos, boolean success) {
+            long now = SystemClock.nanoTime();
+            double error = success ? 0 : 1;
+            if (count == 0) {
+                latency = latencyNanos;
+                errorRate = error;
+            } else {
+                // 历史值的权重随未更新的时长衰减
+                double weight = (1 - ALPHA) * decay(now);
+                latency = latencyNanos + weight * (latency - latencyNanos);
+                errorRate = error + weight * (errorRate - error);
+            }
+            count++;
+            lastUpdate = now;
+        }
+
+        double cost(long now) {
+            if (count == 0) {
+                return 0;
+            }
+
+            double decay = decay(now);
+            return (latency * decay + 1) * (inflight.get() + 1) / Math.max(1 - errorRate * decay, MIN_SUCCESS_RATE);
+        }
+
+        private double decay(long now) {
+            return Math.exp(-(double) Math.max(0, now - lastUpdate) / decayNanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return 耗时的EWMA（纳秒），未衰减
+         */
+        public double getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return 错误率的EWMA，未衰减
+         */
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        /**
+         * @return 进行中的调用数
+         */
+        public int getInflight() {
+            return inflight.get();
+        }
+
+        /**
+         * @return 记录的调用数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[latency=%.0fns, errorRate=%.3f, inflight=%d, count=%d]", name, latency, errorRate, inflight.get(), count);
+        }
+    }
+
+}
@@ -6,6 +6,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.net.URL;
@@ -16,6 +19,16 @@ import java.util.concurrent.ConcurrentMap;
 
 /**
  * The ExtensionLoader
+ * <p>
+ * 1.优先读取 {@link ExtensionProcessor} 编译时生成的索引，带索引的jar不再解析配置文件和逐个检查实现类；
+ * 未经注解处理器编译的jar（没有索引）回退到扫描 META-INF/、META-INF/neural/ 和 META-INF/services/，
+ * 设置 -Dmicro.extension.scan=true 时忽略索引全部扫描；所有jar都经注解处理器编译时，设置 -Dmicro.extension.scan=false
+ * 只读取索引，跳过回退扫描<br>
+ * 2.单例通过每个实现类ID一个的 {@link Holder} 获取，创建后的读取无锁<br>
+ * 3.多例通过缓存的 {@link MethodHandle} 构造器创建<br>
+ * 4.实现类、单例和构造器保存在 {@link Snapshot} 中，{@link #reload()} 在旁路构建新快照后原子替换，
+ * 并发的 getExtension 不会被阻塞，实现类未变化的单例沿用原实例<br>
+ * 5.{@link #getAdaptive()} 按运行时的耗时和错误率在实现类之间选择，见 {@link AdaptiveExtension}
  *
  * @param <T>
  * @author lry
@@ -23,100 +36,137 @@ import java.util.concurrent.ConcurrentMap;
 @Slf4j
 public class ExtensionLoader<T> {
 
+    /**
+     * 为true时忽略索引，扫描classpath；为false时只读取索引，不扫描没有索引的jar；未设置时读取索引并扫描没有索引的jar
+     */
+    public static final String SCAN_KEY = "micro.extension.scan";
+
     private Class<T> type;
-    private ClassLoader classLoader;
-    private volatile boolean init = false;
+    private volatile ClassLoader classLoader;
+    private final SPI spi;
+    private final boolean single;
+    private volatile Snapshot<T> snapshot;
+    private volatile AdaptiveExtension<T> adaptive;
+    /**
+     * 通过 {@link #addExtensionClass(Class)} 手动添加的实现类，重新加载时保留
+     */
+    private final Map<String, Class<T>> addedClasses = new LinkedHashMap<String, Class<T>>();
     private static final String PREFIX_DEFAULT = "META-INF/";
     private static final String PREFIX_NEURAL = "META-INF/neural/";
     private static final String PREFIX_SERVICES = "META-INF/services/";
-    private ConcurrentMap<String, T> singletonInstances = null;
-    private ConcurrentMap<String, Class<T>> extensionClasses = null;
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
     private static ConcurrentMap<Class<?>, ExtensionLoader<?>> extensionLoaders = new ConcurrentHashMap<Class<?>, ExtensionLoader<?>>();
+    /**
+     * 每个ClassLoader的索引
+     */
+    private static final Map<ClassLoader, Index> INDEXES = Collections.synchronizedMap(new WeakHashMap<ClassLoader, Index>());
 
     private ExtensionLoader(Class<T> type, ClassLoader classLoader) {
         this.type = type;
         this.classLoader = classLoader;
+        this.spi = type.getAnnotation(SPI.class);
+        this.single = spi != null && spi.single();
+    }
+
+    private Snapshot<T> snapshot() {
+        Snapshot<T> current = snapshot;
+        if (current == null) {
+            current = this.loadSnapshot();
+        }
+
+        return current;
     }
 
-    private void checkInit() {
-        if (!init) {
-            loadExtensionClasses();
+    private synchronized Snapshot<T> loadSnapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot<T>(this.loadExtensionClasses(), null);
         }
+
+        return snapshot;
     }
 
     public Class<T> getExtensionClass(String name) {
-        this.checkInit();
-        return extensionClasses.get(name);
+        return snapshot().classes.get(name);
     }
 
-    public T getExtension() {
-        this.checkInit();
+    /**
+     * @return 所有实现类ID，只读
+     */
+    public Set<String> getExtensionNames() {
+        return snapshot().classes.keySet();
+    }
 
-        SPI spi = type.getAnnotation(SPI.class);
+    public T getExtension() {
         if (spi == null || spi.value().length() == 0) {
             throw new RuntimeException(type.getName() + ": The default implementation ID(@SPI.value()) is not set");
-        } else {
-            try {
-                if (spi.single()) {
-                    return this.getSingletonInstance(spi.value());
-                } else {
-                    Class<T> clz = extensionClasses.get(spi.value());
-                    if (clz == null) {
-                        return null;
-                    }
-
-                    return clz.newInstance();
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(type.getName() + ": Error when getExtension ", e);
-            }
         }
+
+        return this.getExtension(spi.value());
     }
 
     public T getExtension(String name) {
-        this.checkInit();
+        Snapshot<T> current = snapshot();
         if (name == null) {
             return null;
         }
 
         try {
-            SPI spi = type.getAnnotation(SPI.class);
-            if (spi.single()) {
-                return this.getSingletonInstance(name);
+            if (single) {
+                return this.getSingletonInstance(current, name);
             } else {
-                Class<T> clz = extensionClasses.get(name);
-                if (clz == null) {
-                    return null;
-                }
-
-                return clz.newInstance();
+                return this.newInstance(current, name);
             }
-        } catch (Exception e) {
-            throw new RuntimeException(type.getName() + ": Error when getExtension ", e);
+        } catch (Throwable t) {
+            throw new RuntimeException(type.getName() + ": Error when getExtension ", t);
         }
     }
 
-    private T getSingletonInstance(String name) throws InstantiationException, IllegalAccessException {
-        T obj = singletonInstances.get(name);
-        if (obj != null) {
-            return obj;
+    private T getSingletonInstance(Snapshot<T> current, String name) throws Throwable {
+        Holder<T> holder = current.singletons.get(name);
+        if (holder == null) {
+            if (!current.classes.containsKey(name)) {
+                return null;
+            }
+            holder = current.singletons.computeIfAbsent(name, k -> new Holder<T>());
         }
 
-        Class<T> clz = extensionClasses.get(name);
-        if (clz == null) {
-            return null;
+        T obj = holder.value;
+        if (obj == null) {
+            // 只锁住同一个实现类ID的首次创建
+            synchronized (holder) {
+                obj = holder.value;
+                if (obj == null) {
+                    obj = this.newInstance(current, name);
+                    holder.value = obj;
+                }
+            }
         }
 
-        synchronized (singletonInstances) {
-            obj = singletonInstances.get(name);
-            if (obj != null) {
-                return obj;
+        return obj;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance(Snapshot<T> current, String name) throws Throwable {
+        MethodHandle constructor = current.constructors.get(name);
+        if (constructor == null) {
+            Class<T> clz = current.classes.get(name);
+            if (clz == null) {
+                return null;
+            }
+
+            try {
+                constructor = MethodHandles.publicLookup().findConstructor(clz, MethodType.methodType(void.class));
+            } catch (IllegalAccessException e) {
+                // 外部类不可访问的public内部类
+                Constructor<T> reflected = clz.getConstructor();
+                reflected.setAccessible(true);
+                constructor = MethodHandles.lookup().unreflectConstructor(reflected);
             }
-            obj = clz.newInstance();
-            singletonInstances.put(name, obj);
+            constructor = constructor.asType(CONSTRUCTOR_TYPE);
+            current.constructors.putIfAbsent(name, constructor);
         }
 
-        return obj;
+        return (T) constructor.invokeExact();
     }
 
     public void addExtensionClass(Class<T> clz) {
@@ -124,35 +174,179 @@ public class ExtensionLoader<T> {
             return;
         }
 
-        checkInit();
         checkExtensionType(clz);
         String npiName = getSpiName(clz);
-        synchronized (extensionClasses) {
-            if (extensionClasses.containsKey(npiName)) {
+        synchronized (this) {
+            Snapshot<T> current = snapshot();
+            if (current.classes.containsKey(npiName)) {
                 throw new RuntimeException(clz.getName() + ": Error npiName already exist " + npiName);
-            } else {
-                extensionClasses.put(npiName, clz);
             }
+
+            Map<String, Class<T>> classes = new LinkedHashMap<String, Class<T>>(current.classes);
+            classes.put(npiName, clz);
+            addedClasses.put(npiName, clz);
+            snapshot = new Snapshot<T>(classes, current);
         }
     }
 
-    private synchronized void loadExtensionClasses() {
-        if (init) {
-            return;
+    /**
+     * 重新读取索引或扫描classpath，原子替换实现类，用于ClassLoader中新增jar之后
+     */
+    public void reload() {
+        this.reload(classLoader);
+    }
+
+    /**
+     * 使用新的ClassLoader重新加载实现类并原子替换，加载期间的 getExtension 继续使用原实现类<br>
+     * 实现类ID和实现类都未变化的单例沿用原实例，其他单例在下次获取时创建，被替换的单例不会被关闭
+     *
+     * @param classLoader 新的ClassLoader，例如包含新jar的 {@link java.net.URLClassLoader}
+     */
+    public synchronized void reload(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        INDEXES.remove(classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader);
+
+        Map<String, Class<T>> classes = this.loadExtensionClasses();
+        for (Map.Entry<String, Class<T>> entry : addedClasses.entrySet()) {
+            if (!classes.containsKey(entry.getKey())) {
+                classes.put(entry.getKey(), entry.getValue());
+            }
         }
 
-        extensionClasses = this.loadExtensionClasses(PREFIX_DEFAULT);
-        ConcurrentMap<String, Class<T>> neuralExtensionClasses = this.loadExtensionClasses(PREFIX_NEURAL);
+        Snapshot<T> previous = snapshot;
+        snapshot = new Snapshot<T>(classes, previous);
+        log.info("{}: Reloaded extensions {}", type.getName(), classes.keySet());
+    }
+
+    /**
+     * @return 在所有实现类之间自适应选择的选择器，每个加载器一个
+     */
+    public AdaptiveExtension<T> getAdaptive() {
+        AdaptiveExtension<T> current = adaptive;
+        if (current == null) {
+            synchronized (this) {
+                current = adaptive;
+                if (current == null) {
+                    adaptive = current = new AdaptiveExtension<T>(this);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * @return 当前快照，重新加载后变化
+     */
+    Object version() {
+        return snapshot();
+    }
+
+    private Map<String, Class<T>> loadExtensionClasses() {
+        String scan = System.getProperty(SCAN_KEY);
+        if (Boolean.parseBoolean(scan)) {
+            return this.scanExtensionClasses(Collections.<String>emptySet());
+        }
+
+        Index index = getIndex(classLoader);
+        List<String[]> indexed = index.types.get(type.getName());
+        ConcurrentMap<String, Class<T>> extensionClasses = indexed == null ? new ConcurrentHashMap<String, Class<T>>() : this.loadIndexedClasses(indexed);
+        if ("false".equalsIgnoreCase(scan)) {
+            return extensionClasses;
+        }
+
+        // 没有索引的jar回退到扫描，与索引中的实现类合并，同名时以索引为准
+        for (Map.Entry<String, Class<T>> entry : this.scanExtensionClasses(index.roots).entrySet()) {
+            extensionClasses.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        return extensionClasses;
+    }
+
+    /**
+     * 扫描配置文件
+     *
+     * @param indexedRoots 带索引的classpath根路径，其下的配置文件已经包含在索引中，跳过
+     */
+    private ConcurrentMap<String, Class<T>> scanExtensionClasses(Set<String> indexedRoots) {
+        ConcurrentMap<String, Class<T>> extensionClasses = this.loadExtensionClasses(PREFIX_DEFAULT, indexedRoots);
+        ConcurrentMap<String, Class<T>> neuralExtensionClasses = this.loadExtensionClasses(PREFIX_NEURAL, indexedRoots);
         if (!neuralExtensionClasses.isEmpty()) {
             extensionClasses.putAll(neuralExtensionClasses);
         }
-        ConcurrentMap<String, Class<T>> serviceExtensionClasses = this.loadExtensionClasses(PREFIX_SERVICES);
+        ConcurrentMap<String, Class<T>> serviceExtensionClasses = this.loadExtensionClasses(PREFIX_SERVICES, indexedRoots);
         if (!serviceExtensionClasses.isEmpty()) {
             extensionClasses.putAll(serviceExtensionClasses);
         }
 
-        singletonInstances = new ConcurrentHashMap<String, T>();
-        init = true;
+        return extensionClasses;
+    }
+
+    /**
+     * 按索引加载实现类，注解处理器已检查构造器，只检查类型
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<String, Class<T>> loadIndexedClasses(List<String[]> indexed) {
+        ConcurrentMap<String, Class<T>> map = new ConcurrentHashMap<>();
+        for (String[] entry : indexed) {
+            try {
+                Class<?> clz = classLoader == null ? Class.forName(entry[1]) : Class.forName(entry[1], true, classLoader);
+                if (!type.isAssignableFrom(clz)) {
+                    throw new RuntimeException(clz.getName() + ": Error is not instanceof " + type.getName());
+                }
+                if (map.putIfAbsent(entry[0], (Class<T>) clz) != null) {
+                    throw new RuntimeException(clz.getName() + ": Error npiName already exist " + entry[0]);
+                }
+            } catch (Exception e) {
+                log.error(type.getName() + ": Error load npi class", e);
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * 读取ClassLoader下所有jar的索引，每个ClassLoader只读取一次
+     */
+    private static Index getIndex(ClassLoader classLoader) {
+        ClassLoader key = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+        Index index = INDEXES.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        index = new Index();
+        Set<String> lines = new HashSet<String>();
+        try {
+            Enumeration<URL> urls = key.getResources(ExtensionProcessor.INDEX_RESOURCE);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                index.roots.add(getRoot(url, ExtensionProcessor.INDEX_RESOURCE));
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.trim().split(" ");
+                        if (parts.length != 3 || !lines.add(line.trim())) {
+                            continue;
+                        }
+                        index.types.computeIfAbsent(parts[0], k -> new ArrayList<String[]>()).add(new String[]{parts[1], parts[2]});
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading extension index: " + ExtensionProcessor.INDEX_RESOURCE, e);
+        }
+
+        INDEXES.put(key, index);
+        return index;
+    }
+
+    /**
+     * @return 资源所在的classpath根路径，如 jar:file:/a.jar!/ 或 file:/classes/
+     */
+    private static String getRoot(URL url, String resource) {
+        String path = url.toExternalForm();
+        return path.endsWith(resource) ? path.substring(0, path.length() - resource.length()) : path;
     }
 
     public static <T> ExtensionLoader<T> getLoader(Class<T> type) {
@@ -208,7 +402,7 @@ public class ExtensionLoader<T> {
      * @return
      */
     public List<T> getExtensions(String key) {
-        checkInit();
+        Map<String, Class<T>> extensionClasses = snapshot().classes;
         if (extensionClasses.size() == 0) {
             return Collections.emptyList();
         }
@@ -246,6 +440,58 @@ public class ExtensionLoader<T> {
         return exts;
     }
 
+    /**
+     * 编译时生成的索引
+     */
+    private static final class Index {
+        /**
+         * key为扩展点接口，value为[实现类ID, 实现类]
+         */
+        final Map<String, List<String[]>> types = new HashMap<String, List<String[]>>();
+        /**
+         * 带索引的classpath根路径
+         */
+        final Set<String> roots = new HashSet<String>();
+    }
+
+    /**
+     * 单例的持有者，创建后无锁读取
+     */
+    private static final class Holder<T> {
+        volatile T value;
+    }
+
+    /**
+     * 实现类、单例和构造器的快照，实现类只读，整体通过volatile引用原子替换
+     */
+    private static final class Snapshot<T> {
+
+        final Map<String, Class<T>> classes;
+        final ConcurrentMap<String, Holder<T>> singletons = new ConcurrentHashMap<String, Holder<T>>();
+        final ConcurrentMap<String, MethodHandle> constructors = new ConcurrentHashMap<String, MethodHandle>();
+
+        Snapshot(Map<String, Class<T>> classes, Snapshot<T> previous) {
+            this.classes = Collections.unmodifiableMap(new LinkedHashMap<String, Class<T>>(classes));
+            if (previous == null) {
+                return;
+            }
+
+            // 实现类未变化时沿用单例和构造器
+            for (Map.Entry<String, Class<T>> entry : this.classes.entrySet()) {
+                if (previous.classes.get(entry.getKey()) != entry.getValue()) {
+                    continue;
+                }
+
+                // 共享同一个持有者，替换前后并发的首次创建也只有一个实例
+                singletons.put(entry.getKey(), previous.singletons.computeIfAbsent(entry.getKey(), k -> new Holder<T>()));
+                MethodHandle constructor = previous.constructors.get(entry.getKey());
+                if (constructor != null) {
+                    constructors.put(entry.getKey(), constructor);
+                }
+            }
+        }
+    }
+
     private void checkExtensionType(Class<T> clz) {
         // 1) is public class
         if (!type.isAssignableFrom(clz)) {
@@ -272,7 +518,7 @@ public class ExtensionLoader<T> {
         throw new RuntimeException(clz.getName() + ": Error has no public no-args constructor");
     }
 
-    private ConcurrentMap<String, Class<T>> loadExtensionClasses(String prefix) {
+    private ConcurrentMap<String, Class<T>> loadExtensionClasses(String prefix, Set<String> indexedRoots) {
         String fullName = prefix + type.getName();
         List<String> classNames = new ArrayList<>();
 
@@ -290,7 +536,9 @@ public class ExtensionLoader<T> {
 
             while (urls.hasMoreElements()) {
                 URL url = urls.nextElement();
-                this.parseUrl(type, url, classNames);
+                if (!indexedRoots.contains(getRoot(url, fullName))) {
+                    this.parseUrl(type, url, classNames);
+                }
             }
         } catch (Exception e) {
             throw new RuntimeException("ExtensionLoader loadExtensionClasses error, prefix: " + prefix + " type: " + type, e);
@@ -0,0 +1,140 @@
+package org.micro.extension;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 扩展点索引的注解处理器
+ * <p>
+ * 编译时收集所有 {@link Extension} 实现类，按实现的 {@link SPI} 接口写入 {@link #INDEX_RESOURCE}，
+ * 每行为：扩展点接口 实现类ID 实现类，{@link ExtensionLoader} 读取索引后不再扫描classpath。
+ * 缺少public无参构造器或未实现任何 {@link SPI} 接口的实现类只打印警告，不写入索引。
+ * <p>
+ * 通过 META-INF/services/javax.annotation.processing.Processor 注册，依赖micro-core的模块编译时自动生效。
+ *
+ * @author lry
+ */
+@SupportedAnnotationTypes("org.micro.extension.Extension")
+public class ExtensionProcessor extends AbstractProcessor {
+
+    /**
+     * 扩展点索引文件
+     */
+    public static final String INDEX_RESOURCE = "META-INF/micro/extensions.idx";
+
+    private final Set<String> lines = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!lines.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Extension.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+            if (!isInstantiable(type)) {
+                warn(type, className + ": Extension without public no-args constructor is not indexed");
+                continue;
+            }
+
+            Set<String> spis = new LinkedHashSet<>();
+            collectSpis(type.asType(), spis);
+            if (spis.isEmpty()) {
+                warn(type, className + ": Extension without @SPI interface is not indexed");
+                continue;
+            }
+
+            Extension extension = type.getAnnotation(Extension.class);
+            String name = extension.value().length() > 0 ? extension.value() : type.getSimpleName().toString();
+            for (String spi : spis) {
+                lines.add(spi + " " + name + " " + className);
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isInstantiable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (type.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectSpis(TypeMirror mirror, Set<String> spis) {
+        if (mirror.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+
+        TypeElement type = (TypeElement) ((DeclaredType) mirror).asElement();
+        if (type.getAnnotation(SPI.class) != null) {
+            spis.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        }
+        for (TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(mirror)) {
+            collectSpis(superType, spis);
+        }
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error writing extension index: " + e.getMessage());
+        }
+    }
+
+    private void warn(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+}
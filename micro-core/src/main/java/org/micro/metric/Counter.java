@@ -0,0 +1,42 @@
+package org.micro.metric;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单调递增的计数器
+ * <p>
+ * 基于 {@link LongAdder}，高并发递增时不会在同一个缓存行上竞争。通过 {@link MetricRegistry#counter(String, String)} 注册。
+ *
+ * @author lry
+ */
+public final class Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {
+    }
+
+    public void inc() {
+        adder.increment();
+    }
+
+    /**
+     * @param n 增量，必须为非负数
+     */
+    public void inc(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Counter cannot decrease: " + n);
+        }
+        adder.add(n);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+
+}
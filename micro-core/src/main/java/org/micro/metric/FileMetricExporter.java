@@ -0,0 +1,90 @@
+package org.micro.metric;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 文件推送器，用于离线分析
+ * <p>
+ * 每次采样按 {@link MetricSnapshot#writeSamples(StringBuilder)} 的格式追加到文件，每行为：序列 取值 采样时间（毫秒）。
+ * 文件超过最大大小时重命名为 {文件名}.1（覆盖已有的），再写入新文件。
+ *
+ * @author lry
+ */
+public final class FileMetricExporter implements MetricExporter, Closeable {
+
+    private static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    private final File file;
+    private final long maxBytes;
+    private final StringBuilder buffer = new StringBuilder(4096);
+    private Writer writer;
+    private long bytes;
+
+    public FileMetricExporter(File file) {
+        this(file, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param file     输出文件
+     * @param maxBytes 文件的最大大小（字节）
+     */
+    public FileMetricExporter(File file, long maxBytes) {
+        if (file == null || maxBytes <= 0) {
+            throw new IllegalArgumentException("Illegal file: " + file + " or maxBytes: " + maxBytes);
+        }
+
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized void export(MetricSnapshot snapshot) throws IOException {
+        buffer.setLength(0);
+        snapshot.writeSamples(buffer);
+
+        if (writer != null && bytes + buffer.length() > maxBytes) {
+            writer.close();
+            writer = null;
+            Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (writer == null) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent);
+            }
+            bytes = file.length();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        }
+
+        writer.append(buffer);
+        writer.flush();
+        bytes += buffer.length();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileMetricExporter[" + file + "]";
+    }
+
+}
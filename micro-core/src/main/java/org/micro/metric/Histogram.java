@@ -0,0 +1,208 @@
+package org.micro.metric;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values (usually nanoseconds).
+ * <p>
+ * Values are recorded into log-linear buckets: every power of two is split into 8 sub-buckets,
+ * so percentiles are accurate to within 12.5% while the whole histogram is a fixed array of
+ * 496 counters. Recording is a single atomic increment and never allocates.
+ *
+ * @author lry
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative values are recorded as zero.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the value at the given percentile, e.g. {@code 99.9}.
+     *
+     * @param percentile percentile in [0, 100]
+     * @return the upper bound of the bucket holding the percentile, or {@code 0} if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Returns the values at the given percentiles with a single pass over the buckets.
+     *
+     * @param percentiles percentiles in [0, 100], in ascending order
+     * @return the values, see {@link #getValueAtPercentile(double)}
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+
+        long maxValue = max.get();
+        long seen = 0;
+        int index = -1;
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentiles[p])) / 100.0 * total));
+            while (seen < rank && index < BUCKETS - 1) {
+                seen += snapshot[++index];
+            }
+            values[p] = seen >= rank ? Math.min(upperBound(index), maxValue) : maxValue;
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns a copy of the recorded values, e.g. to compute the values recorded afterwards with {@link #since(Histogram)}.
+     *
+     * @return the copy
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.counts.set(i, counts.get(i));
+        }
+        copy.count.add(count.sum());
+        copy.sum.add(sum.sum());
+        copy.max.set(max.get());
+        return copy;
+    }
+
+    /**
+     * Returns the values recorded since {@code previous} was copied from this histogram. The max of the result
+     * is the upper bound of its highest non-empty bucket, capped by the max of this histogram.
+     *
+     * @param previous an earlier {@link #copy()} of this histogram
+     * @return the values recorded in between
+     */
+    public Histogram since(Histogram previous) {
+        Histogram interval = new Histogram();
+        long total = 0;
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = counts.get(i) - previous.counts.get(i);
+            if (n > 0) {
+                interval.counts.set(i, n);
+                total += n;
+                highest = i;
+            }
+        }
+
+        interval.count.add(total);
+        interval.sum.add(Math.max(0, sum.sum() - previous.sum.sum()));
+        if (highest >= 0) {
+            interval.max.set(Math.min(upperBound(highest), max.get()));
+        }
+        return interval;
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently with a reset may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram [count=" + getCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "]";
+    }
+
+}
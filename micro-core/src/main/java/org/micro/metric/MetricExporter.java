@@ -0,0 +1,20 @@
+package org.micro.metric;
+
+/**
+ * 指标推送器
+ * <p>
+ * 通过 {@link MetricRegistry#addExporter(MetricExporter)} 注册，每次采样后在采样线程中调用，实现不应长时间阻塞。
+ *
+ * @author lry
+ */
+public interface MetricExporter {
+
+    /**
+     * 推送一次采样
+     *
+     * @param snapshot 快照
+     * @throws Exception 推送失败
+     */
+    void export(MetricSnapshot snapshot) throws Exception;
+
+}
@@ -0,0 +1,386 @@
+package org.micro.metric;
+
+import lombok.extern.slf4j.Slf4j;
+import org.micro.commons.SystemClock;
+import org.micro.thread.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 指标注册表
+ * <p>
+ * 与按需构建Map的 {@link Metric} 不同，注册表中的指标在启动时预先注册，采集流程为：
+ * <p>
+ * 1.通过 {@link #gauge(String, String, DoubleSupplier)}、{@link #counter(String, String)}、{@link #histogram(String, String)} 注册指标，
+ * MBean等句柄在注册时获取一次，之后每次采样直接读取<br>
+ * 2.{@link #start(long, TimeUnit)} 启动单个采样线程，按周期把所有指标采样到一个 double[] 中，生成不可变的 {@link MetricSnapshot}，
+ * 采样过程中不装箱、不构建Map<br>
+ * 3.每次采样后把快照推送给所有 {@link MetricExporter}，如 {@link FileMetricExporter}；
+ * {@link PrometheusHttpServer} 则在被拉取时读取最近一次的快照
+ * <p>
+ * 指标名称需要符合Prometheus的命名规则：[a-zA-Z_:][a-zA-Z0-9_:]*
+ *
+ * @author lry
+ */
+@Slf4j
+public final class MetricRegistry implements Closeable {
+
+    private static final MetricRegistry DEFAULT = new MetricRegistry();
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern INVALID_CHARS = Pattern.compile("[^a-zA-Z0-9_:]+");
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.99", "0.999"};
+
+    private final Map<String, Family> registered = new LinkedHashMap<>();
+    private final List<MetricExporter> exporters = new CopyOnWriteArrayList<>();
+    private volatile Family[] families = new Family[0];
+    private volatile MetricSnapshot snapshot;
+    /**
+     * 采样序号，{@link PerSample} 据此判断是否需要重新读取
+     */
+    private final AtomicLong sampleCount = new AtomicLong();
+    private ScheduledExecutorService scheduled;
+    private boolean jvmRegistered;
+
+    /**
+     * @return 默认的指标注册表
+     */
+    public static MetricRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 注册计数器，同名的计数器已存在时返回已有的计数器
+     *
+     * @param name 指标名称
+     * @param help 指标说明
+     * @return 计数器
+     */
+    public synchronized Counter counter(String name, String help) {
+        Family family = registered.get(name);
+        if (family != null && family.metric instanceof Counter) {
+            return (Counter) family.metric;
+        }
+
+        Counter counter = new Counter();
+        register(new Family(name, help, Type.COUNTER, new String[]{name}, counter,
+                (values, offset) -> values[offset] = counter.get()));
+        return counter;
+    }
+
+    /**
+     * 注册直方图，输出为Prometheus的summary：p50、p99、p999分位值以及总和与次数。同名的直方图已存在时返回已有的直方图
+     *
+     * @param name 指标名称
+     * @param help 指标说明
+     * @return 直方图
+     */
+    public synchronized Histogram histogram(String name, String help) {
+        Family family = registered.get(name);
+        if (family != null && family.metric instanceof Histogram) {
+            return (Histogram) family.metric;
+        }
+
+        Histogram histogram = new Histogram();
+        String[] series = new String[QUANTILES.length + 2];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            series[i] = name + "{quantile=\"" + QUANTILES[i] + "\"}";
+        }
+        series[QUANTILES.length] = name + "_sum";
+        series[QUANTILES.length + 1] = name + "_count";
+        register(new Family(name, help, Type.SUMMARY, series, histogram, (values, offset) -> {
+            long[] percentiles = histogram.getValuesAtPercentiles(PERCENTILES);
+            for (int i = 0; i < percentiles.length; i++) {
+                values[offset + i] = percentiles[i];
+            }
+            values[offset + percentiles.length] = histogram.getSum();
+            values[offset + percentiles.length + 1] = histogram.getCount();
+        }));
+        return histogram;
+    }
+
+    /**
+     * 注册仪表，每次采样时调用一次supplier
+     *
+     * @param name     指标名称
+     * @param help     指标说明
+     * @param supplier 取值函数
+     * @throws IllegalArgumentException 名称不合法或已注册
+     */
+    public synchronized void gauge(String name, String help, DoubleSupplier supplier) {
+        register(new Family(name, help, Type.GAUGE, new String[]{name}, supplier,
+                (values, offset) -> values[offset] = supplier.getAsDouble()));
+    }
+
+    /**
+     * 注册由外部维护的单调递增值，如GC次数，每次采样时调用一次supplier
+     *
+     * @param name     指标名称
+     * @param help     指标说明
+     * @param supplier 取值函数
+     * @throws IllegalArgumentException 名称不合法或已注册
+     */
+    public synchronized void counter(String name, String help, DoubleSupplier supplier) {
+        register(new Family(name, help, Type.COUNTER, new String[]{name}, supplier,
+                (values, offset) -> values[offset] = supplier.getAsDouble()));
+    }
+
+    /**
+     * 注销指标
+     *
+     * @param name 指标名称
+     * @return 是否存在
+     */
+    public synchronized boolean remove(String name) {
+        if (registered.remove(name) == null) {
+            return false;
+        }
+
+        families = registered.values().toArray(new Family[0]);
+        return true;
+    }
+
+    /**
+     * 注册JVM的内存、GC、线程、类加载和CPU指标，重复调用只注册一次
+     *
+     * @return this
+     */
+    public synchronized MetricRegistry registerJvmMetrics() {
+        if (jvmRegistered) {
+            return this;
+        }
+
+        // 每次采样只读取一次内存使用量，多个指标共享
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        PerSample<MemoryUsage> heap = new PerSample<>(memory::getHeapMemoryUsage);
+        PerSample<MemoryUsage> nonHeap = new PerSample<>(memory::getNonHeapMemoryUsage);
+        gauge("jvm_memory_heap_used_bytes", "Used heap memory", () -> heap.get().getUsed());
+        gauge("jvm_memory_heap_committed_bytes", "Committed heap memory", () -> heap.get().getCommitted());
+        gauge("jvm_memory_heap_max_bytes", "Max heap memory", () -> heap.get().getMax());
+        gauge("jvm_memory_nonheap_used_bytes", "Used non-heap memory", () -> nonHeap.get().getUsed());
+        gauge("jvm_memory_nonheap_committed_bytes", "Committed non-heap memory", () -> nonHeap.get().getCommitted());
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = "jvm_gc_" + INVALID_CHARS.matcher(gc.getName()).replaceAll("_").toLowerCase();
+            counter(name + "_collections_total", "Collection count of " + gc.getName(), gc::getCollectionCount);
+            counter(name + "_seconds_total", "Collection time of " + gc.getName(), () -> gc.getCollectionTime() / 1000.0);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge("jvm_threads_live", "Live threads", threads::getThreadCount);
+        gauge("jvm_threads_daemon", "Daemon threads", threads::getDaemonThreadCount);
+        gauge("jvm_threads_peak", "Peak live threads", threads::getPeakThreadCount);
+
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        gauge("jvm_classes_loaded", "Loaded classes", classes::getLoadedClassCount);
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        gauge("system_load_average", "System load average of the last minute", os::getSystemLoadAverage);
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+            gauge("process_cpu_load", "Recent CPU usage of the process in [0, 1]", sunOs::getProcessCpuLoad);
+            gauge("system_cpu_load", "Recent CPU usage of the system in [0, 1]", sunOs::getSystemCpuLoad);
+            counter("process_cpu_seconds_total", "CPU time used by the process", () -> sunOs.getProcessCpuTime() / 1e9);
+        }
+
+        jvmRegistered = true;
+        return this;
+    }
+
+    public void addExporter(MetricExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    public void removeExporter(MetricExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * 立即采样所有指标，取值失败的指标记为NaN
+     *
+     * @return 快照
+     */
+    public MetricSnapshot sample() {
+        sampleCount.incrementAndGet();
+        Family[] current = families;
+        int size = 0;
+        for (Family family : current) {
+            size += family.series.length;
+        }
+
+        double[] values = new double[size];
+        int offset = 0;
+        for (Family family : current) {
+            try {
+                family.sampler.sample(values, offset);
+            } catch (Exception e) {
+                Arrays.fill(values, offset, offset + family.series.length, Double.NaN);
+                log.debug("Sample metric [{}] error", family.name, e);
+            }
+            offset += family.series.length;
+        }
+
+        MetricSnapshot result = new MetricSnapshot(SystemClock.now(), current, values);
+        snapshot = result;
+        return result;
+    }
+
+    /**
+     * @return 最近一次的快照，未采样过时返回null
+     */
+    public MetricSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 启动采样线程，按周期采样并推送给所有 {@link MetricExporter}
+     *
+     * @param period 采样周期
+     * @param unit   时间单位
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        stop();
+        scheduled = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("micro-metric-sampler", true));
+        scheduled.scheduleAtFixedRate(() -> {
+            try {
+                MetricSnapshot current = sample();
+                for (MetricExporter exporter : exporters) {
+                    try {
+                        exporter.export(current);
+                    } catch (Exception e) {
+                        log.warn("Export metrics by [{}] error", exporter, e);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Sample metrics error", e);
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * 停止采样线程
+     */
+    public synchronized void stop() {
+        if (scheduled != null) {
+            scheduled.shutdown();
+            scheduled = null;
+        }
+    }
+
+    /**
+     * @return 采样线程是否已启动
+     */
+    public synchronized boolean isRunning() {
+        return scheduled != null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void register(Family family) {
+        if (!NAME_PATTERN.matcher(family.name).matches()) {
+            throw new IllegalArgumentException("Illegal metric name: " + family.name);
+        }
+        if (registered.containsKey(family.name)) {
+            throw new IllegalArgumentException("Metric already registered: " + family.name);
+        }
+
+        registered.put(family.name, family);
+        families = registered.values().toArray(new Family[0]);
+    }
+
+    /**
+     * 指标类型
+     */
+    public enum Type {
+
+        GAUGE("gauge"), COUNTER("counter"), SUMMARY("summary");
+
+        private final String value;
+
+        Type(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 把指标的取值写入采样数组的offset处
+     */
+    interface Sampler {
+
+        void sample(double[] values, int offset);
+
+    }
+
+    /**
+     * 一个指标及其输出的所有序列
+     */
+    static final class Family {
+
+        final String name;
+        final String help;
+        final Type type;
+        final String[] series;
+        final Object metric;
+        final Sampler sampler;
+
+        Family(String name, String help, Type type, String[] series, Object metric, Sampler sampler) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.series = series;
+            this.metric = metric;
+            this.sampler = sampler;
+        }
+    }
+
+    /**
+     * 同一次采样中只读取一次的取值，供多个指标共享
+     */
+    private final class PerSample<V> {
+
+        private final Supplier<V> supplier;
+        private long sampled = -1;
+        private V value;
+
+        PerSample(Supplier<V> supplier) {
+            this.supplier = supplier;
+        }
+
+        synchronized V get() {
+            long current = sampleCount.get();
+            if (sampled != current || value == null) {
+                value = supplier.get();
+                sampled = current;
+            }
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package org.micro.metric;
+
+/**
+ * 一次采样的不可变快照
+ * <p>
+ * 所有序列的取值保存在一个 double[] 中，按注册顺序排列，输出时直接写入 {@link StringBuilder} 而不装箱。
+ *
+ * @author lry
+ */
+public final class MetricSnapshot {
+
+    private final long timestamp;
+    private final MetricRegistry.Family[] families;
+    private final double[] values;
+
+    MetricSnapshot(long timestamp, MetricRegistry.Family[] families, double[] values) {
+        this.timestamp = timestamp;
+        this.families = families;
+        this.values = values;
+    }
+
+    /**
+     * @return 采样时间（毫秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return 序列数
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * 获取序列的取值
+     *
+     * @param series 序列名称，带标签的序列如：name{quantile="0.99"}
+     * @return 取值，不存在时返回NaN
+     */
+    public double get(String series) {
+        int offset = 0;
+        for (MetricRegistry.Family family : families) {
+            for (int i = 0; i < family.series.length; i++) {
+                if (family.series[i].equals(series)) {
+                    return values[offset + i];
+                }
+            }
+            offset += family.series.length;
+        }
+
+        return Double.NaN;
+    }
+
+    /**
+     * 按Prometheus文本格式（0.0.4）输出，包含HELP和TYPE
+     *
+     * @param out 输出
+     * @return out
+     */
+    public StringBuilder writePrometheus(StringBuilder out) {
+        int offset = 0;
+        for (MetricRegistry.Family family : families) {
+            if (family.help != null) {
+                out.append("# HELP ").append(family.name).append(' ');
+                escapeHelp(out, family.help);
+                out.append('\n');
+            }
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.getValue()).append('\n');
+            for (int i = 0; i < family.series.length; i++) {
+                out.append(family.series[i]).append(' ');
+                appendValue(out, values[offset + i]);
+                out.append('\n');
+            }
+            offset += family.series.length;
+        }
+
+        return out;
+    }
+
+    /**
+     * 按Prometheus文本格式输出所有序列并带上采样时间，不包含HELP和TYPE，用于离线保存
+     *
+     * @param out 输出
+     * @return out
+     */
+    public StringBuilder writeSamples(StringBuilder out) {
+        int offset = 0;
+        for (MetricRegistry.Family family : families) {
+            for (int i = 0; i < family.series.length; i++) {
+                out.append(family.series[i]).append(' ');
+                appendValue(out, values[offset + i]);
+                out.append(' ').append(timestamp).append('\n');
+            }
+            offset += family.series.length;
+        }
+
+        return out;
+    }
+
+    private static void appendValue(StringBuilder out, double value) {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void escapeHelp(StringBuilder out, String help) {
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return writePrometheus(new StringBuilder(values.length * 48)).toString();
+    }
+
+}
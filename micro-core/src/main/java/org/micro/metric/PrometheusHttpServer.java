@@ -0,0 +1,162 @@
+package org.micro.metric;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.micro.thread.NamedThreadFactory;
+import org.micro.util.StackProfiler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prometheus拉取端点
+ * <p>
+ * 基于JDK内置的 {@link HttpServer}，在 {@link #PATH} 上按Prometheus文本格式输出 {@link MetricRegistry} 最近一次的快照；
+ * 注册表未启动采样时，每次拉取即时采样一次。
+ * 通过 {@link #addProfiler(StackProfiler)} 还可以下载线程栈剖析器的采样。请求在单个后台线程中处理，输出缓冲区在请求间复用。
+ *
+ * @author lry
+ */
+@Slf4j
+public final class PrometheusHttpServer implements Closeable {
+
+    public static final String PATH = "/metrics";
+    public static final String PROFILE_PATH = "/profile/folded";
+    public static final String STUCK_PATH = "/profile/stuck";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final MetricRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final StringBuilder buffer = new StringBuilder(8192);
+
+    /**
+     * @param registry 指标注册表
+     * @param port     监听端口，0表示随机端口
+     * @throws IOException 端口绑定失败
+     */
+    public PrometheusHttpServer(MetricRegistry registry, int port) throws IOException {
+        this(registry, new InetSocketAddress(port));
+    }
+
+    public PrometheusHttpServer(MetricRegistry registry, InetSocketAddress address) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(address, 16);
+        this.executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("micro-metric-http", true));
+        server.createContext(PATH, this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Prometheus metrics exported on http://{}:{}{}", address.getHostString(), getPort(), PATH);
+    }
+
+    /**
+     * 增加线程栈剖析器的下载端点：{@link #PROFILE_PATH} 下载folded格式的采样，带参数reset=true时下载后清空；
+     * {@link #STUCK_PATH} 输出被标记为卡住的线程栈
+     *
+     * @param profiler 线程栈剖析器
+     * @return this
+     */
+    public PrometheusHttpServer addProfiler(StackProfiler profiler) {
+        server.createContext(PROFILE_PATH, exchange -> {
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"profile.folded\"");
+            send(exchange, TEXT_CONTENT_TYPE, () -> {
+                profiler.writeFolded(buffer);
+                if ("true".equals(getParameter(exchange, "reset"))) {
+                    profiler.reset();
+                }
+            });
+        });
+        server.createContext(STUCK_PATH, exchange -> send(exchange, TEXT_CONTENT_TYPE, () -> {
+            for (String stuck : profiler.getStuckThreads()) {
+                buffer.append(stuck);
+            }
+        }));
+        return this;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        send(exchange, CONTENT_TYPE, () -> {
+            // 注册表未启动采样时最近的快照可能已过时，每次拉取即时采样
+            MetricSnapshot snapshot = registry.isRunning() ? registry.getSnapshot() : null;
+            if (snapshot == null) {
+                snapshot = registry.sample();
+            }
+            snapshot.writePrometheus(buffer);
+        });
+    }
+
+    /**
+     * @return 查询参数的值，不存在时返回null，同名参数取第一个
+     */
+    private static String getParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+
+        try {
+            for (String pair : query.split("&")) {
+                int index = pair.indexOf('=');
+                String key = URLDecoder.decode(index < 0 ? pair : pair.substring(0, index), "UTF-8");
+                if (name.equals(key)) {
+                    return index < 0 ? "" : URLDecoder.decode(pair.substring(index + 1), "UTF-8");
+                }
+            }
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            log.debug("Illegal query: {}", query, e);
+        }
+        return null;
+    }
+
+    /**
+     * 在复用的缓冲区中生成响应体并发送
+     */
+    private void send(HttpExchange exchange, String contentType, Runnable writer) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            buffer.setLength(0);
+            writer.run();
+            byte[] body = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return 实际监听的端口
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.micro.metric.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.micro.extension.Extension;
+import org.micro.metric.Metric;
+import org.micro.thread.BatchingExecutor;
+
+/**
+ * 批处理执行器的指标收集器<br>
+ * 收集所有未关闭的 {@link BatchingExecutor}，指标名为 batching_{线程名前缀}_{指标}
+ *
+ * @author lry
+ */
+@Extension("batching")
+public class BatchingExecutorMetric implements Metric {
+
+	@Override
+	public Map<String, Object> getMetrices() {
+		final Map<String, Object> gauges = new HashMap<String, Object>();
+		for (Map.Entry<String, BatchingExecutor<?>> entry : BatchingExecutor.getExecutors().entrySet()) {
+			String name = "batching_" + entry.getKey();
+			BatchingExecutor<?> executor = entry.getValue();
+
+			gauges.put(name + "_size", executor.size());
+			gauges.put(name + "_capacity", executor.getCapacity());
+			gauges.put(name + "_submitted_count", executor.getSubmittedCount());
+			gauges.put(name + "_consumed_count", executor.getConsumedCount());
+			gauges.put(name + "_dropped_count", executor.getDroppedCount());
+			gauges.put(name + "_batch_count", executor.getBatchCount());
+		}
+
+		return Collections.unmodifiableMap(gauges);
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.micro.metric.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.micro.cache.Cache;
+import org.micro.cache.CacheRegistry;
+import org.micro.cache.CacheStats;
+import org.micro.extension.Extension;
+import org.micro.metric.Metric;
+
+/**
+ * 缓存的指标收集器<br>
+ * 收集 {@link CacheRegistry} 中所有注册缓存的统计，指标名为 cache_{缓存名称}_{指标}
+ * 
+ * @author lry
+ */
+@Extension("cache")
+public class CacheMetric implements Metric {
+
+	@Override
+	public Map<String, Object> getMetrices() {
+		final Map<String, Object> gauges = new HashMap<String, Object>();
+		for (Map.Entry<String, Cache<?, ?>> entry : CacheRegistry.getCaches().entrySet()) {
+			String name = "cache_" + entry.getKey();
+			Cache<?, ?> cache = entry.getValue();
+			CacheStats stats = cache.stats();
+
+			gauges.put(name + "_size", cache.size());
+			gauges.put(name + "_hit_count", stats.getHitCount());
+			gauges.put(name + "_miss_count", stats.getMissCount());
+			gauges.put(name + "_hit_ratio", Double.valueOf(String.format("%.4f", stats.getHitRatio())));
+			gauges.put(name + "_load_success_count", stats.getLoadSuccessCount());
+			gauges.put(name + "_load_failure_count", stats.getLoadFailureCount());
+			// 单位：从纳秒转换为毫秒
+			gauges.put(name + "_load_average_time", Double.valueOf(String.format("%.3f", stats.getAverageLoadPenalty() / 1000000)));
+			gauges.put(name + "_eviction_count", stats.getEvictionCount());
+			gauges.put(name + "_expiration_count", stats.getExpirationCount());
+			gauges.put(name + "_rejection_count", stats.getRejectionCount());
+		}
+
+		return Collections.unmodifiableMap(gauges);
+	}
+
+}
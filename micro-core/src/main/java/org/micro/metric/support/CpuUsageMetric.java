@@ -2,7 +2,9 @@ package org.micro.metric.support;
 
 import java.lang.management.ManagementFactory;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
@@ -41,6 +43,13 @@ public class CpuUsageMetric implements Metric {
         }
     }
     private final MBeanServer mbeanServer;
+    // 属性是否存在在构造时检查一次，避免每次采集都调用getMBeanInfo
+    private final boolean hasCpuTime;
+    private final boolean hasProcessCpuLoad;
+    private final boolean hasSystemLoadAverage;
+    private final boolean hasSystemCpuLoad;
+    private long prevUptime = -1;
+    private long prevProcessCpuTime = -1;
 
     public CpuUsageMetric() {
         this(ManagementFactory.getPlatformMBeanServer());
@@ -48,14 +57,18 @@ public class CpuUsageMetric implements Metric {
 
     public CpuUsageMetric(MBeanServer beanServer) {
         this.mbeanServer = beanServer;
+        Set<String> runtimeAttrs = getAttributeNames(RUNTIME_MBEAN);
+        Set<String> osAttrs = getAttributeNames(OS_MBEAN);
+        this.hasCpuTime = osAttrs.contains(PROCESS_CPU_TIME_ATTR) && runtimeAttrs.contains(UPTIME_ATTR);
+        this.hasProcessCpuLoad = osAttrs.contains(PROCESS_CPU_LOAD_ATTR);
+        this.hasSystemLoadAverage = osAttrs.contains(SYSTEM_LOAD_AVERAGE_ATTR);
+        this.hasSystemCpuLoad = osAttrs.contains(SYSTEM_CPU_LOAD_ATTR);
     }
 
     @Override
-    public Map<String, Object> getMetrices() {
+    public synchronized Map<String, Object> getMetrices() {
         final Map<String, Object> gauges = new HashMap<String, Object>();
-        if (hasAttribute(OS_MBEAN, PROCESS_CPU_TIME_ATTR) && hasAttribute(RUNTIME_MBEAN, UPTIME_ATTR)) {
-        	long prevUptime = -1;
-            long prevProcessCpuTime = -1;
+        if (hasCpuTime) {
         	// final int processorCount = getAttributeInt(OS_MBEAN, AVAILABLE_PROCESSORS_ATTR);
             long uptime = getAttributeLong(RUNTIME_MBEAN, UPTIME_ATTR) * 1000000;
             long processCpuTime = getAttributeLong(OS_MBEAN, PROCESS_CPU_TIME_ATTR); //  / processorCount;
@@ -72,32 +85,32 @@ public class CpuUsageMetric implements Metric {
         	gauges.put("cpu.process.cpuUsage", cpuUsage);
         }
 
-        if (hasAttribute(OS_MBEAN, PROCESS_CPU_LOAD_ATTR)) {
+        if (hasProcessCpuLoad) {
         	gauges.put("cpu.process.cpuLoad", getAttributeDouble(OS_MBEAN, PROCESS_CPU_LOAD_ATTR) * 100.0);// in percents
         }
 
-        if (hasAttribute(OS_MBEAN, SYSTEM_LOAD_AVERAGE_ATTR)) {
+        if (hasSystemLoadAverage) {
         	gauges.put("cpu.system.loadAverage", getAttributeDouble(OS_MBEAN, SYSTEM_LOAD_AVERAGE_ATTR) * 100.0); // in percents
         }
 
-        if (hasAttribute(OS_MBEAN, SYSTEM_CPU_LOAD_ATTR)) {
+        if (hasSystemCpuLoad) {
         	gauges.put("cpu.system.cpuLoad", getAttributeDouble(OS_MBEAN, SYSTEM_CPU_LOAD_ATTR) * 100.0); // in percents
         }
 
         return gauges;
     }
 
-    private boolean hasAttribute(ObjectName mbean, String attr) {
+    private Set<String> getAttributeNames(ObjectName mbean) {
+        Set<String> names = new HashSet<String>();
         try {
             MBeanInfo info = mbeanServer.getMBeanInfo(mbean);
             for (MBeanAttributeInfo ai : info.getAttributes()) {
-                if (attr.equals(ai.getName()))
-                    return true;
+                names.add(ai.getName());
             }
-            return false;
         } catch (Exception e) {
-            return false;
+            // MBean不可用时视为没有属性
         }
+        return names;
     }
 
     private long getAttributeLong(ObjectName mbean, String attr) {
@@ -0,0 +1,63 @@
+package org.micro.metric.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.micro.extension.Extension;
+import org.micro.metric.Histogram;
+import org.micro.metric.Metric;
+import org.micro.thread.ExecutorRegistry;
+import org.micro.thread.ExecutorStats;
+
+/**
+ * 线程池的指标收集器<br>
+ * 收集 {@link ExecutorRegistry} 中所有注册线程池的统计，指标名为 executor_{线程池名称}_{指标}，时长单位为毫秒
+ *
+ * @author lry
+ */
+@Extension("executor")
+public class ExecutorMetric implements Metric {
+
+	@Override
+	public Map<String, Object> getMetrices() {
+		final Map<String, Object> gauges = new HashMap<String, Object>();
+		for (Map.Entry<String, ExecutorStats> entry : ExecutorRegistry.getExecutors().entrySet()) {
+			String name = "executor_" + entry.getKey();
+			ExecutorStats stats = entry.getValue();
+			ThreadPoolExecutor executor = stats.getExecutor();
+
+			gauges.put(name + "_pool_size", executor.getPoolSize());
+			gauges.put(name + "_core_pool_size", executor.getCorePoolSize());
+			gauges.put(name + "_max_pool_size", executor.getMaximumPoolSize());
+			gauges.put(name + "_largest_pool_size", executor.getLargestPoolSize());
+			gauges.put(name + "_active_thread", executor.getActiveCount());
+			gauges.put(name + "_queue_size", stats.getQueueSize());
+			gauges.put(name + "_queue_remaining", stats.getQueueRemainingCapacity());
+			gauges.put(name + "_utilization", Double.valueOf(String.format("%.4f", stats.getUtilization())));
+			gauges.put(name + "_task_count", executor.getTaskCount());
+			gauges.put(name + "_completed_task_count", executor.getCompletedTaskCount());
+			gauges.put(name + "_rejected_count", stats.getRejectedCount());
+			putTimes(gauges, name + "_wait_time", stats.getWaitTimes());
+			putTimes(gauges, name + "_run_time", stats.getRunTimes());
+		}
+
+		return Collections.unmodifiableMap(gauges);
+	}
+
+	private void putTimes(Map<String, Object> gauges, String name, Histogram histogram) {
+		gauges.put(name + "_count", histogram.getCount());
+		// 单位：从纳秒转换为毫秒
+		gauges.put(name + "_mean", toMillis(histogram.getMean()));
+		gauges.put(name + "_p50", toMillis(histogram.getValueAtPercentile(50)));
+		gauges.put(name + "_p99", toMillis(histogram.getValueAtPercentile(99)));
+		gauges.put(name + "_p999", toMillis(histogram.getValueAtPercentile(99.9)));
+		gauges.put(name + "_max", toMillis(histogram.getMax()));
+	}
+
+	private Double toMillis(double nanos) {
+		return Double.valueOf(String.format("%.3f", nanos / 1000000));
+	}
+
+}
@@ -0,0 +1,41 @@
+package org.micro.metric.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.micro.extension.Extension;
+import org.micro.metric.Metric;
+import org.micro.thread.ForkJoinThreadExecutor;
+
+/**
+ * ForkJoin线程池的指标收集器<br>
+ * 收集所有未关闭的 {@link ForkJoinThreadExecutor}，指标名为 forkjoin_{线程名前缀}_{指标}
+ *
+ * @author lry
+ */
+@Extension("forkjoin")
+public class ForkJoinPoolMetric implements Metric {
+
+	@Override
+	public Map<String, Object> getMetrices() {
+		final Map<String, Object> gauges = new HashMap<String, Object>();
+		for (Map.Entry<String, ForkJoinThreadExecutor> entry : ForkJoinThreadExecutor.getExecutors().entrySet()) {
+			String name = "forkjoin_" + entry.getKey();
+			ForkJoinPool pool = entry.getValue().getForkJoinPool();
+
+			gauges.put(name + "_parallelism", pool.getParallelism());
+			gauges.put(name + "_pool_size", pool.getPoolSize());
+			gauges.put(name + "_active_thread", pool.getActiveThreadCount());
+			gauges.put(name + "_running_thread", pool.getRunningThreadCount());
+			gauges.put(name + "_queued_task", pool.getQueuedTaskCount());
+			gauges.put(name + "_queued_submission", pool.getQueuedSubmissionCount());
+			gauges.put(name + "_steal_count", pool.getStealCount());
+			gauges.put(name + "_submitted_task", entry.getValue().getSubmittedTasksCount());
+		}
+
+		return Collections.unmodifiableMap(gauges);
+	}
+
+}
@@ -35,9 +35,7 @@ public class GarbageCollectorMetric implements Metric {
     @Override
 	public Map<String, Object> getMetrices() {
     	final Map<String, Object> gauges = new HashMap<String, Object>();
-        for (final String metricsKey:getDatas().keySet()) {
-        	gauges.put(metricsKey, getDatas().get(metricsKey));
-		}
+        gauges.putAll(getDatas());
         
         return Collections.unmodifiableMap(gauges);
 	}
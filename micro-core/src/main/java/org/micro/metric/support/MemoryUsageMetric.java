@@ -29,9 +29,7 @@ public class MemoryUsageMetric implements Metric {
     public Map<String, Object> getMetrices() {
 		final Map<String, Object> gauges = new HashMap<String, Object>();
 
-        for (final String metricsKey:getDatas().keySet()) {
-        	gauges.put(metricsKey, getDatas().get(metricsKey));
-		}
+        gauges.putAll(getDatas());
 
         return Collections.unmodifiableMap(gauges);
     }
@@ -51,37 +49,38 @@ public class MemoryUsageMetric implements Metric {
     
     public Map<String, Double> getDatas() {
         final Map<String, Double> gauges = new LinkedHashMap<String, Double>();
+        // 每次调用getHeapMemoryUsage都会重新采集，只取一次
+        final MemoryUsage usage = mxBean.getHeapMemoryUsage();
+        final MemoryUsage noHeapUsage = mxBean.getNonHeapMemoryUsage();
         
         /** 单位：MB,初始内存大小（包括堆和非堆）**/
-        gauges.put("jvm_memory_init", toMBStr(mxBean.getHeapMemoryUsage().getInit() + mxBean.getNonHeapMemoryUsage().getInit()));
+        gauges.put("jvm_memory_init", toMBStr(usage.getInit() + noHeapUsage.getInit()));
         /** 单位：MB,已使用内存大小（包括堆和非堆）**/
-        gauges.put("jvm_memory_used", toMBStr(mxBean.getHeapMemoryUsage().getUsed() + mxBean.getNonHeapMemoryUsage().getUsed()));
+        gauges.put("jvm_memory_used", toMBStr(usage.getUsed() + noHeapUsage.getUsed()));
         /**单位：MB,内存最大值（包括堆和非堆）**/
-        gauges.put("jvm_memory_max", toMBStr(mxBean.getHeapMemoryUsage().getMax() + mxBean.getNonHeapMemoryUsage().getMax()));
+        gauges.put("jvm_memory_max", toMBStr(usage.getMax() + noHeapUsage.getMax()));
         /**单位：MB,内存提交值（包括堆和非堆）**/
-        gauges.put("jvm_memory_committed", toMBStr(mxBean.getHeapMemoryUsage().getCommitted() + mxBean.getNonHeapMemoryUsage().getCommitted()));
+        gauges.put("jvm_memory_committed", toMBStr(usage.getCommitted() + noHeapUsage.getCommitted()));
         /**单位：MB,堆初始化大小**/
-        gauges.put("jvm_heap_init", toMBStr(mxBean.getHeapMemoryUsage().getInit()));
+        gauges.put("jvm_heap_init", toMBStr(usage.getInit()));
         /**单位：MB,堆已使用量**/
-        gauges.put("jvm_heap_used", toMBStr(mxBean.getHeapMemoryUsage().getUsed()));
+        gauges.put("jvm_heap_used", toMBStr(usage.getUsed()));
         /**单位：MB,堆最大大小**/
-        gauges.put("jvm_heap_max", toMBStr(mxBean.getHeapMemoryUsage().getMax()));
+        gauges.put("jvm_heap_max", toMBStr(usage.getMax()));
         /**单位：MB,堆内存提交值**/
-        gauges.put("jvm_heap_committed", toMBStr(mxBean.getHeapMemoryUsage().getCommitted()));
+        gauges.put("jvm_heap_committed", toMBStr(usage.getCommitted()));
         /**堆已使用百分比**/
-        final MemoryUsage usage = mxBean.getHeapMemoryUsage();
         gauges.put("jvm_heap_usage", toPercentStr(usage.getUsed(), usage.getMax()));
         
         /**单位：MB,非堆初始化大小**/
-        gauges.put("jvm_nonheap_init", toMBStr(mxBean.getNonHeapMemoryUsage().getInit()));
+        gauges.put("jvm_nonheap_init", toMBStr(noHeapUsage.getInit()));
         /**单位：MB,非堆已使用量**/
-        gauges.put("jvm_nonheap_used", toMBStr(mxBean.getNonHeapMemoryUsage().getUsed()));
+        gauges.put("jvm_nonheap_used", toMBStr(noHeapUsage.getUsed()));
         /**单位：MB,非堆最大大小**/
-        gauges.put("jvm_nonheap_max", toMBStr(mxBean.getNonHeapMemoryUsage().getMax()));
+        gauges.put("jvm_nonheap_max", toMBStr(noHeapUsage.getMax()));
         /**单位：MB,非堆内存提交值**/
-        gauges.put("jvm_nonheap_committed", toMBStr(mxBean.getNonHeapMemoryUsage().getCommitted()));
+        gauges.put("jvm_nonheap_committed", toMBStr(noHeapUsage.getCommitted()));
         /**非堆已使用百分比**/
-        final MemoryUsage noHeapUsage = mxBean.getNonHeapMemoryUsage();
         gauges.put("jvm_nonheap_usage", toPercentStr(noHeapUsage.getUsed(), noHeapUsage.getMax()));
 
         return gauges;
@@ -0,0 +1,37 @@
+package org.micro.metric.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.micro.extension.Extension;
+import org.micro.metric.Metric;
+import org.micro.util.StackProfiler;
+
+/**
+ * 线程栈剖析器的指标收集器<br>
+ * 收集 {@link StackProfiler#getDefault()} 的运行状态，剖析器未启动时只输出已采集的数据
+ *
+ * @author lry
+ */
+@Extension("profiler")
+public class ProfilerMetric implements Metric {
+
+	@Override
+	public Map<String, Object> getMetrices() {
+		final Map<String, Object> gauges = new HashMap<String, Object>();
+		StackProfiler profiler = StackProfiler.getDefault();
+
+		gauges.put("profiler_running", profiler.isRunning() ? 1 : 0);
+		gauges.put("profiler_sample_count", profiler.getSampleCount());
+		gauges.put("profiler_truncated_count", profiler.getTruncatedCount());
+		gauges.put("profiler_stuck_thread_count", profiler.getStuckThreadCount());
+		// 单位：百分比
+		gauges.put("profiler_overhead", Double.valueOf(String.format("%.4f", profiler.getOverhead() * 100)));
+		// 单位：从纳秒转换为毫秒
+		gauges.put("profiler_interval", Double.valueOf(String.format("%.3f", profiler.getDelayNanos() / 1000000.0)));
+
+		return Collections.unmodifiableMap(gauges);
+	}
+
+}
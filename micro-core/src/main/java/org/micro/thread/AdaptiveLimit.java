@@ -0,0 +1,127 @@
+package org.micro.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.micro.metric.Histogram;
+
+/**
+ * The Adaptive Concurrency Limit
+ * <p>
+ * 梯度算法：每收集一个窗口的样本，用目标排队时长与窗口内平均排队时长的比值作为梯度，
+ * <code>newLimit = limit * gradient + sqrt(limit)</code>，再做平滑。
+ * 排队时长低于目标时限制按 sqrt(limit) 增长，高于目标时按比例收缩（每个窗口最多减半）。
+ * <p>
+ * 只有在途任务数接近限制时才增长，避免空闲时限制无限扩大。
+ *
+ * @author lry
+ */
+public class AdaptiveLimit {
+
+    private static final int DEFAULT_WINDOW_SIZE = 100;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetWaitNanos;
+    private final int windowSize;
+
+    private volatile double limit;
+
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final LongAdder windowWaitNanos = new LongAdder();
+
+    private final Histogram waitTimes = new Histogram();
+    private final Histogram runTimes = new Histogram();
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long targetWait, TimeUnit unit) {
+        this(initialLimit, minLimit, maxLimit, targetWait, unit, DEFAULT_WINDOW_SIZE);
+    }
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long targetWait, TimeUnit unit, int windowSize) {
+        if (minLimit <= 0 || minLimit > maxLimit || targetWait <= 0 || windowSize <= 0) {
+            throw new IllegalArgumentException("Illegal minLimit: " + minLimit + ", maxLimit: " + maxLimit
+                    + ", targetWait: " + targetWait + " or windowSize: " + windowSize);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetWaitNanos = unit.toNanos(targetWait);
+        this.windowSize = windowSize;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return 当前允许的最大在途任务数
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public long getTargetWait(TimeUnit unit) {
+        return unit.convert(targetWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return 排队时长分布（纳秒）
+     */
+    public Histogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * @return 执行时长分布（纳秒）
+     */
+    public Histogram getRunTimes() {
+        return runTimes;
+    }
+
+    /**
+     * 记录一个任务的排队时长和执行时长
+     *
+     * @param waitNanos 排队时长
+     * @param runNanos  执行时长
+     * @param inFlight  当前在途任务数
+     */
+    public void onSample(long waitNanos, long runNanos, int inFlight) {
+        waitTimes.record(waitNanos);
+        runTimes.record(runNanos);
+        windowWaitNanos.add(waitNanos);
+        if (windowCount.incrementAndGet() >= windowSize) {
+            update(inFlight);
+        }
+    }
+
+    private synchronized void update(int inFlight) {
+        int count = windowCount.getAndSet(0);
+        if (count < windowSize) {
+            // 其他线程已更新过本窗口
+            windowCount.addAndGet(count);
+            return;
+        }
+
+        long averageWait = windowWaitNanos.sumThenReset() / count;
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, (double) targetWaitNanos / Math.max(1, averageWait)));
+        double queueSize = inFlight >= current / 2 ? Math.sqrt(current) : 0;
+        double newLimit = current * gradient + queueSize;
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimit [limit=" + getLimit() + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+                + ", targetWaitNanos=" + targetWaitNanos + ", waitTimes=" + waitTimes + "]";
+    }
+
+}
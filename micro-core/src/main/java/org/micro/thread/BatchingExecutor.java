@@ -0,0 +1,352 @@
+package org.micro.thread;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * The Batching Executor
+ * <p>
+ * 设计思路：多生产者单消费者的无锁环形队列 -> 单个消费线程按批消费，攒够batchSize个或距批次第一个元素超过maxDelay时提交一批
+ * -> 队列满时按 {@link OverflowPolicy} 处理
+ * <p>
+ * 场景优势：适合事件采集、通知推送等不关心结果的流水线，提交不创建 {@link java.util.concurrent.FutureTask}，
+ * 生产者之间只竞争一次CAS，丢弃数通过 {@link org.micro.metric.support.BatchingExecutorMetric} 输出。
+ * <p>
+ * 按线程名前缀注册，关闭时注销。
+ *
+ * @param <E> 元素类型
+ * @author lry
+ */
+@Slf4j
+public class BatchingExecutor<E> {
+
+    private static final ConcurrentMap<String, BatchingExecutor<?>> EXECUTORS = new ConcurrentHashMap<>();
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃新元素，记录丢弃数
+         */
+        DISCARD,
+        /**
+         * 丢弃新元素，记录丢弃数并抛出 {@link RejectedExecutionException}
+         */
+        ABORT,
+        /**
+         * 阻塞生产者直到队列有空位
+         */
+        BLOCK
+
+    }
+
+    private final String prefixName;
+    private final int capacity;
+    private final int mask;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final OverflowPolicy policy;
+    private final Consumer<List<E>> consumer;
+
+    private final AtomicReferenceArray<E> buffer;
+    /**
+     * 下一个写入位置，生产者CAS竞争
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 下一个读取位置，只有消费线程写入
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder consumedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+
+    private final Thread worker;
+    private volatile boolean parked;
+    /**
+     * 消费线程在没有待提交批次时等待，生产者在队列由空变为非空时唤醒，批次的等待时长从第一个元素入队时开始计算
+     */
+    private volatile boolean idle;
+    private volatile boolean shutdown;
+
+    /**
+     * 构造
+     *
+     * @param prefixName 线程名前缀
+     * @param capacity   队列容量，向上取整为2的幂
+     * @param batchSize  每批最多元素数
+     * @param maxDelay   批次第一个元素的最长等待时长
+     * @param unit       时间单位
+     * @param policy     队列满时的处理策略
+     * @param consumer   批次消费者，在消费线程中调用，回调返回后批次列表会被复用
+     */
+    public BatchingExecutor(String prefixName, int capacity, int batchSize, long maxDelay, TimeUnit unit,
+                            OverflowPolicy policy, Consumer<List<E>> consumer) {
+        if (capacity <= 0 || capacity > (1 << 30) || batchSize <= 0 || maxDelay <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity + ", batchSize: " + batchSize + " or maxDelay: " + maxDelay);
+        }
+        if (policy == null || consumer == null) {
+            throw new IllegalArgumentException("policy or consumer is null");
+        }
+
+        this.prefixName = prefixName;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.policy = policy;
+        this.consumer = consumer;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+
+        this.worker = new NamedThreadFactory(prefixName, true).newThread(this::consume);
+        this.worker.start();
+        EXECUTORS.put(prefixName, this);
+    }
+
+    /**
+     * 创建逐个执行任务的批处理执行器，任务抛出的异常只记录日志
+     *
+     * @param prefixName 线程名前缀
+     * @param capacity   队列容量
+     * @param policy     队列满时的处理策略
+     * @return 批处理执行器
+     */
+    public static BatchingExecutor<Runnable> newTaskExecutor(String prefixName, int capacity, OverflowPolicy policy) {
+        return new BatchingExecutor<>(prefixName, capacity, 64, 1, TimeUnit.MILLISECONDS, policy, tasks -> {
+            for (Runnable task : tasks) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    log.error("Batching task failed: " + prefixName, t);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 所有未关闭的批处理执行器，key为线程名前缀
+     */
+    public static Map<String, BatchingExecutor<?>> getExecutors() {
+        return Collections.unmodifiableMap(EXECUTORS);
+    }
+
+    /**
+     * 提交元素
+     *
+     * @param element 元素
+     * @return 是否入队，被丢弃时返回false
+     * @throws RejectedExecutionException 策略为 {@link OverflowPolicy#ABORT} 时队列已满或执行器已关闭
+     */
+    public boolean submit(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+
+        submittedCount.increment();
+        while (!shutdown) {
+            if (offer(element)) {
+                if (idle || (parked && size() >= batchSize)) {
+                    LockSupport.unpark(worker);
+                }
+                return true;
+            }
+
+            if (policy != OverflowPolicy.BLOCK) {
+                break;
+            }
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(this, 100_000L);
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+
+        droppedCount.increment();
+        if (policy == OverflowPolicy.ABORT) {
+            throw new RejectedExecutionException("Batching executor is " + (shutdown ? "shutdown" : "full") + ": " + prefixName);
+        }
+        return false;
+    }
+
+    /**
+     * 适配 {@link Executor}
+     *
+     * @return 提交到本执行器的 {@link Executor}，仅当元素类型为 {@link Runnable} 时可用
+     */
+    @SuppressWarnings("unchecked")
+    public Executor asExecutor() {
+        return command -> submit((E) command);
+    }
+
+    private boolean offer(E element) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        buffer.lazySet((int) t & mask, element);
+        return true;
+    }
+
+    private int drain(List<E> batch, int max) {
+        long h = head.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) h & mask;
+            E element = buffer.get(index);
+            if (element == null) {
+                // 空队列，或者生产者已占位但还未写入
+                break;
+            }
+
+            buffer.lazySet(index, null);
+            batch.add(element);
+            h++;
+            count++;
+        }
+
+        head.lazySet(h);
+        return count;
+    }
+
+    private void consume() {
+        List<E> batch = new ArrayList<>(batchSize);
+        long batchStart = 0;
+        while (true) {
+            boolean empty = batch.isEmpty();
+            drain(batch, batchSize - batch.size());
+            if (empty && !batch.isEmpty()) {
+                batchStart = System.nanoTime();
+            }
+
+            boolean stopping = shutdown;
+            if (batch.size() >= batchSize || (!batch.isEmpty() && (stopping || System.nanoTime() - batchStart >= maxDelayNanos))) {
+                dispatch(batch);
+                continue;
+            }
+            if (stopping && batch.isEmpty() && tail.get() == head.get()) {
+                break;
+            }
+
+            long waitNanos = batch.isEmpty() ? maxDelayNanos : maxDelayNanos - (System.nanoTime() - batchStart);
+            if (waitNanos > 0 && !stopping) {
+                boolean waiting = batch.isEmpty();
+                idle = waiting;
+                parked = true;
+                int size = size();
+                if (waiting ? size == 0 : size < batchSize) {
+                    LockSupport.parkNanos(this, waitNanos);
+                } else if (waiting) {
+                    // 生产者已占位但还未写入
+                    Thread.yield();
+                }
+                parked = false;
+                idle = false;
+            } else if (stopping) {
+                // 等待已占位的生产者写入
+                Thread.yield();
+            }
+        }
+    }
+
+    private void dispatch(List<E> batch) {
+        try {
+            consumer.accept(Collections.unmodifiableList(batch));
+        } catch (Throwable t) {
+            log.error("Batching consumer failed: " + prefixName, t);
+        } finally {
+            consumedCount.add(batch.size());
+            batchCount.increment();
+            batch.clear();
+        }
+    }
+
+    /**
+     * 停止接收新元素，消费线程处理完已入队的元素后退出；与关闭并发的提交可能被忽略
+     */
+    public void shutdown() {
+        shutdown = true;
+        EXECUTORS.remove(prefixName, this);
+        LockSupport.unpark(worker);
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && !worker.isAlive();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        unit.timedJoin(worker, timeout);
+        return !worker.isAlive();
+    }
+
+    public String getPrefixName() {
+        return prefixName;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return 队列中的元素数
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getConsumedCount() {
+        return consumedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingExecutor[" + prefixName + ", " + (shutdown ? "Shutdown" : "Running") + ", size = " + size()
+                + ", capacity = " + capacity + ", consumed = " + getConsumedCount() + ", dropped = " + getDroppedCount() + "]";
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.micro.thread;
+
+import lombok.extern.slf4j.Slf4j;
+import org.micro.metric.Histogram;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池注册表
+ * <p>
+ * 注册的线程池通过 {@link org.micro.metric.support.ExecutorMetric} 输出指标，也可以通过 {@link #scheduleDump(long, TimeUnit)} 定时打印到日志。
+ * {@link ThreadPoolExecutorFactory} 创建的线程池会自动按线程名前缀注册，其他线程池需要手动注册。
+ * <p>
+ * 注册时会包装线程池的拒绝策略以记录拒绝数；实现了 {@link InstrumentedExecutor} 的线程池还会记录排队时长和执行时长。
+ * 已终止的线程池在读取时自动注销。
+ *
+ * @author lry
+ */
+@Slf4j
+public final class ExecutorRegistry {
+
+    private static final ConcurrentMap<String, ExecutorStats> EXECUTORS = new ConcurrentHashMap<>();
+
+    private static final String STATISTIC = ">>>>> [{}]:[pool:{}/{}][active:{}][queue:{}][utilization:{}%][completed:{}][rejected:{}]" +
+            "[wait(ms) p50:{} p99:{} max:{}][run(ms) p50:{} p99:{} max:{}]";
+
+    private static ScheduledExecutorService dumpScheduled;
+    /**
+     * 上次打印时的统计，key为线程池名称
+     */
+    private static final Map<String, Interval> LAST_DUMPS = new HashMap<>();
+
+    private ExecutorRegistry() {
+    }
+
+    /**
+     * 注册线程池，同名的线程池会被替换
+     *
+     * @param name     线程池名称
+     * @param executor 线程池
+     * @return 线程池的运行统计
+     */
+    public static ExecutorStats register(String name, ThreadPoolExecutor executor) {
+        if (name == null || executor == null) {
+            throw new IllegalArgumentException("name or executor is null");
+        }
+
+        ExecutorStats stats = executor instanceof InstrumentedExecutor ?
+                ((InstrumentedExecutor) executor).getStats() : new ExecutorStats(executor);
+        RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+        if (!(handler instanceof RecordingRejectedHandler)) {
+            executor.setRejectedExecutionHandler(new RecordingRejectedHandler(stats, handler));
+        }
+
+        EXECUTORS.put(name, stats);
+        return stats;
+    }
+
+    /**
+     * 注销线程池
+     *
+     * @param name 线程池名称
+     */
+    public static void unregister(String name) {
+        EXECUTORS.remove(name);
+    }
+
+    /**
+     * @return 所有未终止的线程池的运行统计，key为线程池名称
+     */
+    public static Map<String, ExecutorStats> getExecutors() {
+        for (Iterator<ExecutorStats> iterator = EXECUTORS.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getExecutor().isTerminated()) {
+                iterator.remove();
+            }
+        }
+
+        return Collections.unmodifiableMap(EXECUTORS);
+    }
+
+    /**
+     * 启动线程，定时打印所有线程池的统计日志
+     *
+     * @param period 打印周期
+     * @param unit   时间单位
+     */
+    public static synchronized void scheduleDump(long period, TimeUnit unit) {
+        cancelDump();
+        dumpScheduled = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("micro-executor-dump", true));
+        dumpScheduled.scheduleAtFixedRate(() -> {
+            try {
+                dump();
+            } catch (Exception e) {
+                //catch all exception: do nothing
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * 停止定时打印
+     */
+    public static synchronized void cancelDump() {
+        if (dumpScheduled != null) {
+            dumpScheduled.shutdown();
+            dumpScheduled = null;
+        }
+    }
+
+    /**
+     * 打印所有线程池的统计日志，有拒绝时打印warn日志<br>
+     * 拒绝数、排队时长和执行时长是距上次打印的区间值，由累计值相减得到，不会重置 {@link ExecutorStats}
+     */
+    public static synchronized void dump() {
+        Map<String, ExecutorStats> executors = getExecutors();
+        LAST_DUMPS.keySet().retainAll(executors.keySet());
+        if (executors.isEmpty()) {
+            return;
+        }
+
+        log.info(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>> Begin dump executor statistic info <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<");
+        for (Map.Entry<String, ExecutorStats> entry : executors.entrySet()) {
+            ExecutorStats stats = entry.getValue();
+            ThreadPoolExecutor executor = stats.getExecutor();
+            Interval current = new Interval(stats);
+            Interval last = LAST_DUMPS.put(entry.getKey(), current);
+            if (last == null || last.stats != stats) {
+                last = Interval.EMPTY;
+            }
+
+            Histogram waitTimes = current.waitTimes.since(last.waitTimes);
+            Histogram runTimes = current.runTimes.since(last.runTimes);
+            long rejected = Math.max(0, current.rejected - last.rejected);
+            Object[] args = {entry.getKey(), executor.getPoolSize(), executor.getMaximumPoolSize(), executor.getActiveCount(),
+                    stats.getQueueSize(), Math.round(stats.getUtilization() * 100), executor.getCompletedTaskCount(), rejected,
+                    toMillis(waitTimes.getValueAtPercentile(50)), toMillis(waitTimes.getValueAtPercentile(99)), toMillis(waitTimes.getMax()),
+                    toMillis(runTimes.getValueAtPercentile(50)), toMillis(runTimes.getValueAtPercentile(99)), toMillis(runTimes.getMax())};
+            if (rejected > 0) {
+                log.warn(STATISTIC, args);
+            } else {
+                log.info(STATISTIC, args);
+            }
+        }
+        log.info(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>> End dump executor statistic info <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<");
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+
+    /**
+     * 打印时的累计统计
+     */
+    private static final class Interval {
+
+        static final Interval EMPTY = new Interval(null);
+
+        final ExecutorStats stats;
+        final Histogram waitTimes;
+        final Histogram runTimes;
+        final long rejected;
+
+        Interval(ExecutorStats stats) {
+            this.stats = stats;
+            this.waitTimes = stats == null ? new Histogram() : stats.getWaitTimes().copy();
+            this.runTimes = stats == null ? new Histogram() : stats.getRunTimes().copy();
+            this.rejected = stats == null ? 0 : stats.getRejectedCount();
+        }
+    }
+
+    /**
+     * 记录拒绝数后交给原拒绝策略处理
+     */
+    static final class RecordingRejectedHandler implements RejectedExecutionHandler {
+
+        private final ExecutorStats stats;
+        private final RejectedExecutionHandler delegate;
+
+        RecordingRejectedHandler(ExecutorStats stats, RejectedExecutionHandler delegate) {
+            this.stats = stats;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            stats.recordRejected();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+}
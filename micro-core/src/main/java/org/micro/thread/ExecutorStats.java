@@ -0,0 +1,242 @@
+package org.micro.thread;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.micro.metric.Histogram;
+
+/**
+ * 线程池的运行统计：排队时长、执行时长、拒绝数和利用率
+ * <p>
+ * 排队时长和执行时长由 {@link InstrumentedExecutor} 记录：暴露了队列的执行器按任务记录提交时间，在 beforeExecute/afterExecute 中计算，
+ * 队列中的仍是原任务；不暴露队列的执行器用 {@link #wrap(Runnable)} 包装任务。
+ * 拒绝数由 {@link ExecutorRegistry} 注册时安装的拒绝策略记录。
+ *
+ * @author lry
+ */
+public class ExecutorStats {
+
+    private final ThreadPoolExecutor executor;
+
+    private final Histogram waitTimes = new Histogram();
+    private final Histogram runTimes = new Histogram();
+    private final LongAdder rejectedCount = new LongAdder();
+    /**
+     * 已提交未开始执行的任务的提交时间，同一个任务多次提交时为按提交顺序排列的 {@link Deque}
+     */
+    private final ConcurrentMap<Runnable, Object> submitTimes = new ConcurrentHashMap<>();
+    /**
+     * 当前线程正在执行的任务的 {排队时长, 开始时间}
+     */
+    private final ThreadLocal<long[]> current = ThreadLocal.withInitial(() -> new long[2]);
+
+    public ExecutorStats(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 包装任务，在任务开始时记录排队时长，结束时记录执行时长<br>
+     * 只用于不暴露队列的执行器，暴露了队列的执行器需要保证队列和拒绝策略看到的是原任务
+     *
+     * @param command 任务
+     * @return 包装后的任务
+     */
+    public Runnable wrap(Runnable command) {
+        long submitNanos = System.nanoTime();
+        return () -> {
+            long startNanos = System.nanoTime();
+            recordWait(startNanos - submitNanos);
+            try {
+                command.run();
+            } finally {
+                recordRun(System.nanoTime() - startNanos);
+            }
+        };
+    }
+
+    /**
+     * 记录任务的提交时间
+     *
+     * @param task 任务
+     */
+    @SuppressWarnings("unchecked")
+    void recordSubmit(Runnable task) {
+        Long submitNanos = System.nanoTime();
+        submitTimes.compute(task, (k, times) -> {
+            if (times == null) {
+                return submitNanos;
+            }
+
+            Deque<Long> deque;
+            if (times instanceof Deque) {
+                deque = (Deque<Long>) times;
+            } else {
+                deque = new ArrayDeque<>();
+                deque.add((Long) times);
+            }
+            deque.add(submitNanos);
+            return deque;
+        });
+    }
+
+    /**
+     * 丢弃未执行的任务的提交时间（拒绝、移出队列），同一个任务多次提交时丢弃最后一次
+     *
+     * @param task 任务
+     */
+    void discardSubmit(Runnable task) {
+        if (task != null) {
+            removeSubmit(task, false);
+        }
+    }
+
+    void discardSubmits(Collection<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            discardSubmit(task);
+        }
+    }
+
+    /**
+     * 丢弃已取消的 {@link Future} 的提交时间
+     */
+    void discardCancelledSubmits() {
+        submitTimes.keySet().removeIf(task -> task instanceof Future && ((Future<?>) task).isCancelled());
+    }
+
+    void clearSubmits() {
+        submitTimes.clear();
+    }
+
+    /**
+     * 任务开始执行：记录排队时长
+     *
+     * @param task 任务
+     */
+    void beforeExecute(Runnable task) {
+        long startNanos = System.nanoTime();
+        Long submitNanos = removeSubmit(task, true);
+        long waitNanos = submitNanos == null ? -1 : startNanos - submitNanos;
+        if (waitNanos >= 0) {
+            waitTimes.record(waitNanos);
+        }
+
+        long[] sample = current.get();
+        sample[0] = waitNanos;
+        sample[1] = startNanos;
+    }
+
+    /**
+     * 移除任务的一次提交时间
+     *
+     * @param task  任务
+     * @param first true移除最早的一次，false移除最后一次
+     * @return 移除的提交时间，没有时为null
+     */
+    @SuppressWarnings("unchecked")
+    private Long removeSubmit(Runnable task, boolean first) {
+        Long[] removed = new Long[1];
+        submitTimes.computeIfPresent(task, (k, times) -> {
+            if (!(times instanceof Deque)) {
+                removed[0] = (Long) times;
+                return null;
+            }
+
+            Deque<Long> deque = (Deque<Long>) times;
+            removed[0] = first ? deque.pollFirst() : deque.pollLast();
+            return deque.isEmpty() ? null : deque;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 任务执行结束：记录执行时长
+     *
+     * @return {排队时长, 执行时长}（纳秒），没有提交时间的任务排队时长为-1；数组由当前线程复用
+     */
+    long[] afterExecute() {
+        long[] sample = current.get();
+        sample[1] = System.nanoTime() - sample[1];
+        runTimes.record(sample[1]);
+        return sample;
+    }
+
+    public void recordWait(long waitNanos) {
+        waitTimes.record(waitNanos);
+    }
+
+    public void recordRun(long runNanos) {
+        runTimes.record(runNanos);
+    }
+
+    public void recordRejected() {
+        rejectedCount.increment();
+    }
+
+    /**
+     * @return 排队时长分布（纳秒）
+     */
+    public Histogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * @return 执行时长分布（纳秒）
+     */
+    public Histogram getRunTimes() {
+        return runTimes;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return 排队等待执行的任务数
+     */
+    public int getQueueSize() {
+        return executor instanceof InstrumentedExecutor ?
+                ((InstrumentedExecutor) executor).getQueueSize() : executor.getQueue().size();
+    }
+
+    /**
+     * @return 还能接收的任务数
+     */
+    public int getQueueRemainingCapacity() {
+        return executor instanceof InstrumentedExecutor ?
+                ((InstrumentedExecutor) executor).getQueueRemainingCapacity() : executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * @return 活跃线程数 / 最大线程数
+     */
+    public double getUtilization() {
+        int max = executor.getMaximumPoolSize();
+        return max <= 0 ? 0.0 : (double) executor.getActiveCount() / max;
+    }
+
+    /**
+     * 清空排队时长、执行时长和拒绝数，{@link org.micro.metric.support.ExecutorMetric} 输出的累计值也随之清空
+     */
+    public void reset() {
+        waitTimes.reset();
+        runTimes.reset();
+        rejectedCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorStats [rejectedCount=" + getRejectedCount() + ", utilization=" + getUtilization()
+                + ", waitTimes=" + waitTimes + ", runTimes=" + runTimes + "]";
+    }
+
+}
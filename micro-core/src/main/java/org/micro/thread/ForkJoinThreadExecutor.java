@@ -0,0 +1,225 @@
+package org.micro.thread;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Fork Join Thread Executor
+ * <p>
+ * 设计思路：async模式的 {@link ForkJoinPool}，每个工作线程拥有自己的任务队列，空闲线程从其他线程窃取任务，
+ * 没有所有工作线程共享的队列锁 -> 在途任务数超过 maxThread + queues 时reject
+ * <p>
+ * 场景优势：适合CPU密集型的扇出任务
+ * <p>
+ * 继承 {@link ThreadPoolExecutor} 只是为了兼容 {@link ThreadPoolExecutorFactory.ThreadPool} 的返回类型，
+ * 任务不经过父类的队列和工作线程；统计方法返回 {@link ForkJoinPool} 的统计。
+ * 创建的执行器按线程名前缀注册，由 {@link org.micro.metric.support.ForkJoinPoolMetric} 输出指标，关闭时注销。
+ *
+ * @author lry
+ */
+public class ForkJoinThreadExecutor extends ThreadPoolExecutor implements InstrumentedExecutor {
+
+    private static final ConcurrentMap<String, ForkJoinThreadExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    private final String prefixName;
+    private final ForkJoinPool pool;
+    /**
+     * 最大允许同时处理的任务数，小于0表示不限制
+     */
+    private final int maxSubmittedTaskCount;
+    /**
+     * 正在处理的任务数
+     */
+    private final AtomicInteger submittedTasksCount = new AtomicInteger();
+    private final LongAdder completedTaskCount = new LongAdder();
+    private final ExecutorStats stats = new ExecutorStats(this);
+
+    public ForkJoinThreadExecutor(String prefixName, int parallelism, int queues, RejectedExecutionHandler handler) {
+        super(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), handler);
+        this.prefixName = prefixName;
+        this.maxSubmittedTaskCount = queues < 0 ? -1 : parallelism + queues;
+        this.pool = new ForkJoinPool(parallelism, new NamedForkJoinWorkerThreadFactory(prefixName), null, true);
+        EXECUTORS.put(prefixName, this);
+    }
+
+    /**
+     * @return 所有未关闭的执行器，key为线程名前缀
+     */
+    public static Map<String, ForkJoinThreadExecutor> getExecutors() {
+        return Collections.unmodifiableMap(EXECUTORS);
+    }
+
+    public String getPrefixName() {
+        return prefixName;
+    }
+
+    /**
+     * @return 底层的 {@link ForkJoinPool}
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return pool;
+    }
+
+    public int getSubmittedTasksCount() {
+        return submittedTasksCount.get();
+    }
+
+    @Override
+    public ExecutorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return 已提交还未被工作线程取走的任务数，加上工作线程队列中的任务数
+     */
+    @Override
+    public int getQueueSize() {
+        return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+    }
+
+    /**
+     * @return 距离在途任务数上限还能接收的任务数
+     */
+    @Override
+    public int getQueueRemainingCapacity() {
+        return maxSubmittedTaskCount < 0 ? Integer.MAX_VALUE : Math.max(0, maxSubmittedTaskCount - submittedTasksCount.get());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+
+        int count = submittedTasksCount.incrementAndGet();
+        if (maxSubmittedTaskCount >= 0 && count > maxSubmittedTaskCount) {
+            submittedTasksCount.decrementAndGet();
+            getRejectedExecutionHandler().rejectedExecution(command, this);
+            return;
+        }
+
+        Runnable task = stats.wrap(command);
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    submittedTasksCount.decrementAndGet();
+                    completedTaskCount.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            submittedTasksCount.decrementAndGet();
+            getRejectedExecutionHandler().rejectedExecution(command, this);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        EXECUTORS.remove(prefixName, this);
+        pool.shutdown();
+        super.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        EXECUTORS.remove(prefixName, this);
+        pool.shutdownNow();
+        super.shutdownNow();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminating() {
+        return pool.isTerminating();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public long getTaskCount() {
+        return getCompletedTaskCount() + submittedTasksCount.get();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedTaskCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ForkJoinThreadExecutor[" + prefixName + ", " + pool + "]";
+    }
+
+    /**
+     * 按前缀命名的守护工作线程
+     */
+    static class NamedForkJoinWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger threadNum = new AtomicInteger(1);
+        private final String prefix;
+
+        NamedForkJoinWorkerThreadFactory(String prefixName) {
+            this.prefix = prefixName + "-forkjoin-";
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(prefix + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
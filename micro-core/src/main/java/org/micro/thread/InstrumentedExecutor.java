@@ -0,0 +1,26 @@
+package org.micro.thread;
+
+/**
+ * 自行记录排队时长和执行时长的执行器
+ *
+ * @author lry
+ * @see ExecutorRegistry
+ */
+public interface InstrumentedExecutor {
+
+    /**
+     * @return 执行器的运行统计
+     */
+    ExecutorStats getStats();
+
+    /**
+     * @return 排队等待执行的任务数
+     */
+    int getQueueSize();
+
+    /**
+     * @return 还能接收的任务数
+     */
+    int getQueueRemainingCapacity();
+
+}
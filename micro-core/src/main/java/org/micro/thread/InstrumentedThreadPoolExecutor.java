@@ -0,0 +1,154 @@
+package org.micro.thread;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Instrumented Thread Pool Executor
+ * <p>
+ * 行为与 {@link ThreadPoolExecutor} 相同，提交时记录任务的提交时间，在 {@link #beforeExecute(Thread, Runnable)} 和
+ * {@link #afterExecute(Runnable, Throwable)} 中记录排队时长和执行时长。任务不被包装，队列、拒绝策略、
+ * {@link #remove(Runnable)} 和 {@link #shutdownNow()} 看到的都是提交的原任务。
+ *
+ * @author lry
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements InstrumentedExecutor {
+
+    private final ExecutorStats stats = new ExecutorStats(this);
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        super.setRejectedExecutionHandler(new DiscardSubmitHandler(stats, handler));
+    }
+
+    @Override
+    public ExecutorStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    @Override
+    public int getQueueRemainingCapacity() {
+        return getQueue().remainingCapacity();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+
+        stats.recordSubmit(command);
+        super.execute(command);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        stats.beforeExecute(r);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        long[] sample = stats.afterExecute();
+        afterExecute(r, t, sample[0], sample[1]);
+    }
+
+    /**
+     * 任务执行结束并记录统计后调用
+     *
+     * @param r         任务
+     * @param t         任务抛出的异常
+     * @param waitNanos 排队时长（纳秒），没有记录提交时间时为-1
+     * @param runNanos  执行时长（纳秒）
+     */
+    protected void afterExecute(Runnable r, Throwable t, long waitNanos, long runNanos) {
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            stats.discardSubmit(task);
+        }
+
+        return removed;
+    }
+
+    @Override
+    public void purge() {
+        super.purge();
+        stats.discardCancelledSubmits();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = super.shutdownNow();
+        stats.discardSubmits(tasks);
+        return tasks;
+    }
+
+    @Override
+    protected void terminated() {
+        stats.clearSubmits();
+    }
+
+    /**
+     * 设置的拒绝策略外层总是包装一层丢弃提交时间的策略
+     */
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+
+        super.setRejectedExecutionHandler(new DiscardSubmitHandler(stats, handler));
+    }
+
+    /**
+     * @return 设置的拒绝策略
+     */
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((DiscardSubmitHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    /**
+     * 丢弃被拒绝的任务的提交时间后交给原拒绝策略处理
+     */
+    static final class DiscardSubmitHandler implements RejectedExecutionHandler {
+
+        private final ExecutorStats stats;
+        private final RejectedExecutionHandler delegate;
+
+        DiscardSubmitHandler(ExecutorStats stats, RejectedExecutionHandler delegate) {
+            this.stats = stats;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            // 先丢弃再处理：DiscardOldestPolicy 会重新提交被拒绝的任务
+            stats.discardSubmit(r);
+            Runnable head = executor.getQueue().peek();
+            try {
+                delegate.rejectedExecution(r, executor);
+            } finally {
+                // 队首任务被拒绝策略丢弃（或已被工作线程取走）
+                if (head != null && head != executor.getQueue().peek()) {
+                    stats.discardSubmit(head);
+                }
+            }
+        }
+    }
+
+}
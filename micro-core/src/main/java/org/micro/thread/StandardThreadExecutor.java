@@ -5,7 +5,6 @@ import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -15,10 +14,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 设计思路：coreThread -> maxThread -> queue -> reject
  * <p>
  * 场景优势：比较适合于业务处理需要远程资源的场景
+ * <p>
+ * 自适应模式：调用 {@link #enableAdaptiveLimit(long, TimeUnit)} 后，记录每个任务的排队时长和执行时长，
+ * 由 {@link AdaptiveLimit} 自动调整允许同时处理的任务数，使排队时长保持在目标值附近
+ * <p>
+ * 排队时长和执行时长总是记录到 {@link #getStats()}，注册到 {@link ExecutorRegistry} 后输出指标；任务不被包装，队列中的是提交的原任务
  *
  * @author lry
  */
-public class StandardThreadExecutor extends ThreadPoolExecutor {
+public class StandardThreadExecutor extends InstrumentedThreadPoolExecutor {
 
     private static final int DEFAULT_MIN_THREADS = 20;
     private static final int DEFAULT_MAX_THREADS = 200;
@@ -32,6 +36,10 @@ public class StandardThreadExecutor extends ThreadPoolExecutor {
      * 最大允许同时处理的任务数
      */
     private int maxSubmittedTaskCount;
+    /**
+     * 自适应并发限制，为null时使用固定的最大任务数
+     */
+    private volatile AdaptiveLimit adaptiveLimit;
 
     public StandardThreadExecutor() {
         this(DEFAULT_MIN_THREADS, DEFAULT_MAX_THREADS);
@@ -80,21 +88,60 @@ public class StandardThreadExecutor extends ThreadPoolExecutor {
         return maxSubmittedTaskCount;
     }
 
+    /**
+     * 开启自适应并发限制，限制在 [核心线程数, 队列buffer数 + 最大线程数] 之间调整
+     *
+     * @param targetWait 目标排队时长
+     * @param unit       时间单位
+     */
+    public void enableAdaptiveLimit(long targetWait, TimeUnit unit) {
+        // 从固定限制开始，排队时长超过目标后逐步收缩
+        int minLimit = Math.max(1, getCorePoolSize());
+        int maxLimit = Math.max(minLimit, maxSubmittedTaskCount);
+        this.adaptiveLimit = new AdaptiveLimit(maxLimit, minLimit, maxLimit, targetWait, unit);
+    }
+
+    /**
+     * @return 自适应并发限制，未开启时为null
+     */
+    public AdaptiveLimit getAdaptiveLimit() {
+        return adaptiveLimit;
+    }
+
+    /**
+     * @return 当前允许同时处理的任务数
+     */
+    public int getLimit() {
+        AdaptiveLimit limit = adaptiveLimit;
+        return limit == null ? maxSubmittedTaskCount : limit.getLimit();
+    }
+
+    /**
+     * @param percentile 百分位，如99.9
+     * @return 排队时长的百分位值（毫秒）
+     */
+    public double getWaitTimePercentile(double percentile) {
+        return getStats().getWaitTimes().getValueAtPercentile(percentile) / 1000000.0;
+    }
+
     @Override
     public void execute(Runnable command) {
         int count = submittedTasksCount.incrementAndGet();
 
         // 超过最大的并发任务限制，进行reject, 依赖的LinkedTransferQueue没有长度限制，因此这里进行控制
-        if (count > maxSubmittedTaskCount) {
+        if (count > getLimit()) {
             submittedTasksCount.decrementAndGet();
             getRejectedExecutionHandler().rejectedExecution(command, this);
+            return;
         }
 
         try {
             super.execute(command);
         } catch (RejectedExecutionException rx) {
-            // there could have been contention around the queue
+            // there could have been contention around the queue, the rejection has discarded the submit time
+            getStats().recordSubmit(command);
             if (!((ExecutorQueue) getQueue()).force(command)) {
+                getStats().discardSubmit(command);
                 submittedTasksCount.decrementAndGet();
                 getRejectedExecutionHandler().rejectedExecution(command, this);
             }
@@ -102,8 +149,12 @@ public class StandardThreadExecutor extends ThreadPoolExecutor {
     }
 
     @Override
-    protected void afterExecute(Runnable r, Throwable t) {
-        submittedTasksCount.decrementAndGet();
+    protected void afterExecute(Runnable r, Throwable t, long waitNanos, long runNanos) {
+        int inFlight = submittedTasksCount.getAndDecrement();
+        AdaptiveLimit limit = adaptiveLimit;
+        if (limit != null && waitNanos >= 0) {
+            limit.onSample(waitNanos, runNanos, inFlight);
+        }
     }
 
     /**
@@ -10,6 +10,8 @@ import java.util.concurrent.*;
 @Slf4j
 public class ThreadPoolExecutorFactory {
 
+    public static final String THREAD_TYPE_KEY = "micro.thread.type";
+
     /**
      * The build executor
      *
@@ -19,10 +21,30 @@ public class ThreadPoolExecutorFactory {
      * @param maxThread
      * @param queues
      * @param keepAliveTime
-     * @return
+     * @return 按prefixName注册到 {@link ExecutorRegistry} 的线程池
      */
     public static ThreadPoolExecutor buildExecutor(String threadType, String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
-        return ExtensionLoader.getLoader(ThreadPool.class).getExtension(threadType).getExecutor(prefixName, coreThread, maxThread, queues, keepAliveTime);
+        ThreadPoolExecutor executor = ExtensionLoader.getLoader(ThreadPool.class).getExtension(getThreadType(threadType, prefixName)).getExecutor(prefixName, coreThread, maxThread, queues, keepAliveTime);
+        ExecutorRegistry.register(prefixName, executor);
+        return executor;
+    }
+
+    /**
+     * 线程池类型可以通过系统属性覆盖，优先级：{@code micro.thread.type.<prefixName>} > {@code micro.thread.type} > 代码中指定的类型
+     * <p>
+     * 例如 {@code -Dmicro.thread.type.sms=virtual} 只将sms线程池切换为虚拟线程
+     *
+     * @param threadType 代码中指定的类型
+     * @param prefixName 线程名前缀
+     * @return 线程池类型
+     */
+    public static String getThreadType(String threadType, String prefixName) {
+        String type = System.getProperty(THREAD_TYPE_KEY + "." + prefixName);
+        if (type == null || type.length() == 0) {
+            type = System.getProperty(THREAD_TYPE_KEY);
+        }
+
+        return (type == null || type.length() == 0) ? threadType : type;
     }
 
     /**
@@ -40,9 +62,9 @@ public class ThreadPoolExecutorFactory {
 
         @Override
         public ThreadPoolExecutor getExecutor(String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
-            BlockingQueue<Runnable> linkedBlockingQueue = queues < 0 ? new LinkedBlockingQueue<>() : new LinkedBlockingQueue<>(queues);
-            BlockingQueue<Runnable> blockingQueue = queues == 0 ? new SynchronousQueue<>() : linkedBlockingQueue;
-            return new ThreadPoolExecutor(coreThread, maxThread, keepAliveTime, TimeUnit.MILLISECONDS,
+            BlockingQueue<Runnable> blockingQueue = queues == 0 ? new SynchronousQueue<>()
+                    : (queues < 0 ? new LinkedBlockingQueue<>() : new LinkedBlockingQueue<>(queues));
+            return new InstrumentedThreadPoolExecutor(coreThread, maxThread, keepAliveTime, TimeUnit.MILLISECONDS,
                     blockingQueue, new NamedThreadFactory(prefixName, true), new AbortPolicyWithReport(prefixName));
         }
 
@@ -62,7 +84,7 @@ public class ThreadPoolExecutorFactory {
         public ThreadPoolExecutor getExecutor(String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
             BlockingQueue<Runnable> linkedBlockingQueue = queues < 0 ? new LinkedBlockingQueue<>() : new LinkedBlockingQueue<>(queues);
             BlockingQueue<Runnable> blockingQueue = queues == 0 ? new SynchronousQueue<>() : linkedBlockingQueue;
-            return new ThreadPoolExecutor(coreThread, coreThread, 0, TimeUnit.MILLISECONDS,
+            return new InstrumentedThreadPoolExecutor(coreThread, coreThread, 0, TimeUnit.MILLISECONDS,
                     blockingQueue, new NamedThreadFactory(prefixName, true), new AbortPolicyWithReport(prefixName));
         }
 
@@ -80,12 +102,54 @@ public class ThreadPoolExecutorFactory {
         public ThreadPoolExecutor getExecutor(String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
             BlockingQueue<Runnable> linkedBlockingQueue = queues < 0 ? new LinkedBlockingQueue<>() : new LinkedBlockingQueue<>(queues);
             BlockingQueue<Runnable> blockingQueue = queues == 0 ? new SynchronousQueue<>() : linkedBlockingQueue;
-            return new ThreadPoolExecutor(coreThread, maxThread, Long.MAX_VALUE, TimeUnit.MILLISECONDS,
+            return new InstrumentedThreadPoolExecutor(coreThread, maxThread, Long.MAX_VALUE, TimeUnit.MILLISECONDS,
                     blockingQueue, new NamedThreadFactory(prefixName, true), new AbortPolicyWithReport(prefixName));
         }
 
     }
 
+    /**
+     * 每个任务一个虚拟线程，用信号量将并发数限制为maxThread，超出时拒绝，queues和keepAliveTime不生效。
+     * <p>
+     * 运行时不支持虚拟线程（JDK 21以下）时退化为 {@link CachedThreadPool}。
+     *
+     * @author lry
+     * @see VirtualThreadExecutor
+     */
+    @Extension("virtual")
+    public static class VirtualThreadPool implements ThreadPool {
+
+        @Override
+        public ThreadPoolExecutor getExecutor(String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
+            ThreadFactory threadFactory = VirtualThreadExecutor.newVirtualThreadFactory(prefixName);
+            if (threadFactory == null) {
+                log.warn("Virtual threads are not supported by the current JVM, fallback to the cached thread pool: {}", prefixName);
+                return new CachedThreadPool().getExecutor(prefixName, coreThread, maxThread, queues, keepAliveTime);
+            }
+
+            return new VirtualThreadExecutor(threadFactory, maxThread, new AbortPolicyWithReport(prefixName));
+        }
+
+    }
+
+    /**
+     * async模式的 {@link ForkJoinPool}，并行度为maxThread，工作线程之间窃取任务，没有共享的队列锁。
+     * <p>
+     * 在途任务数超过 maxThread + queues 时拒绝，queues小于0时不限制，coreThread和keepAliveTime不生效。
+     *
+     * @author lry
+     * @see ForkJoinThreadExecutor
+     */
+    @Extension("forkjoin")
+    public static class ForkJoinThreadPool implements ThreadPool {
+
+        @Override
+        public ThreadPoolExecutor getExecutor(String prefixName, int coreThread, int maxThread, int queues, long keepAliveTime) {
+            return new ForkJoinThreadExecutor(prefixName, maxThread, queues, new AbortPolicyWithReport(prefixName));
+        }
+
+    }
+
     /**
      * Abort Policy.
      * Log warn info when abort.
@@ -0,0 +1,253 @@
+package org.micro.thread;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Virtual Thread Executor
+ * <p>
+ * 设计思路：每个任务一个虚拟线程 -> 信号量限制并发数 -> reject
+ * <p>
+ * 场景优势：适合大量阻塞在远程IO上的任务（短信、OSS、IM、支付回调），阻塞时不占用平台线程。
+ * <p>
+ * 继承 {@link ThreadPoolExecutor} 只是为了兼容 {@link ThreadPoolExecutorFactory.ThreadPool} 的返回类型，
+ * 任务不经过父类的队列和工作线程；线程数、活跃数、任务数等统计方法返回虚拟线程的统计，用于拒绝时的诊断日志。
+ *
+ * @author lry
+ */
+public class VirtualThreadExecutor extends ThreadPoolExecutor implements InstrumentedExecutor {
+
+    private final ThreadFactory virtualThreadFactory;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    private final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    private final AtomicInteger activeCount = new AtomicInteger();
+    /**
+     * 已挂载到载体线程开始执行的任务数
+     */
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final AtomicInteger largestCount = new AtomicInteger();
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder completedTaskCount = new LongAdder();
+    private final ExecutorStats stats = new ExecutorStats(this);
+    private final Object termination = new Object();
+    private volatile boolean shutdown;
+
+    public VirtualThreadExecutor(ThreadFactory virtualThreadFactory, int maxConcurrency, RejectedExecutionHandler handler) {
+        super(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), virtualThreadFactory, handler);
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Illegal maxConcurrency: " + maxConcurrency);
+        }
+
+        this.virtualThreadFactory = virtualThreadFactory;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * 通过反射创建虚拟线程工厂，线程名为 prefixName-virtual-序号
+     *
+     * @param prefixName 线程名前缀
+     * @return 虚拟线程工厂，运行时不支持虚拟线程时返回null
+     */
+    public static ThreadFactory newVirtualThreadFactory(String prefixName) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefixName + "-virtual-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return newVirtualThreadFactory("probe") != null;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown || !permits.tryAcquire()) {
+            getRejectedExecutionHandler().rejectedExecution(command, this);
+            return;
+        }
+
+        taskCount.increment();
+        int active = activeCount.incrementAndGet();
+        largestCount.accumulateAndGet(active, Math::max);
+        Runnable task = stats.wrap(command);
+        Thread thread = null;
+        try {
+            thread = virtualThreadFactory.newThread(() -> run(task));
+            threads.add(thread);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            finish(thread);
+            throw e;
+        }
+    }
+
+    private void run(Runnable command) {
+        Thread current = Thread.currentThread();
+        runningCount.incrementAndGet();
+        try {
+            command.run();
+        } finally {
+            runningCount.decrementAndGet();
+            completedTaskCount.increment();
+            finish(current);
+        }
+    }
+
+    private void finish(Thread thread) {
+        if (thread != null) {
+            threads.remove(thread);
+        }
+        permits.release();
+        if (activeCount.decrementAndGet() == 0 && shutdown) {
+            synchronized (termination) {
+                termination.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        super.shutdown();
+        if (activeCount.get() == 0) {
+            synchronized (termination) {
+                termination.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminating() {
+        return shutdown && activeCount.get() > 0;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && activeCount.get() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (termination) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(termination, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ExecutorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return 已启动虚拟线程、还在等待载体线程开始执行的任务数
+     */
+    @Override
+    public int getQueueSize() {
+        return Math.max(0, activeCount.get() - runningCount.get());
+    }
+
+    /**
+     * @return 剩余的并发数
+     */
+    @Override
+    public int getQueueRemainingCapacity() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return 最大并发数
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        return largestCount.get();
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return 0;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public long getTaskCount() {
+        return taskCount.sum();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedTaskCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadExecutor[" + (shutdown ? "Shutdown" : "Running")
+                + ", active = " + activeCount.get() + ", max concurrency = " + maxConcurrency
+                + ", completed tasks = " + completedTaskCount.sum() + "]";
+    }
+
+}
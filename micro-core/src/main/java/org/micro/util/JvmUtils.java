@@ -28,7 +28,7 @@ public class JvmUtils {
         }
     }
 
-    private static String getThreadDumpString(ThreadInfo threadInfo) {
+    static String getThreadDumpString(ThreadInfo threadInfo) {
         StringBuilder sb = new StringBuilder("\"" + threadInfo.getThreadName() + "\"" + " Id=" + threadInfo.getThreadId() + " " + threadInfo.getThreadState());
         if (threadInfo.getLockName() != null) {
             sb.append(" on ").append(threadInfo.getLockName());
@@ -0,0 +1,354 @@
+package org.micro.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.micro.thread.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采样式的线程栈剖析器
+ * <p>
+ * 后台线程按周期对忙碌线程采样，用于持续运行的性能剖析：
+ * <p>
+ * 1.先以深度0获取所有线程的状态，只对RUNNABLE且不在native方法中的线程（如epoll、accept等空闲等待）按最大深度获取线程栈<br>
+ * 2.线程栈按调用顺序合并到调用树中，通过 {@link #writeFolded(StringBuilder)} 输出folded格式（frame;frame;frame count），
+ * 可以直接交给flamegraph.pl等工具生成火焰图<br>
+ * 3.连续多次采样栈顶都在同一个方法中的线程被标记为卡住，如死循环或长时间的计算，通过 {@link #getStuckThreads()} 获取<br>
+ * 4.每次采样后测量采样耗时，耗时超过预算（默认为1%）时自动拉长采样周期
+ * <p>
+ * 指标通过 {@link org.micro.metric.support.ProfilerMetric} 输出，folded文件可以通过
+ * {@link org.micro.metric.PrometheusHttpServer#addProfiler(StackProfiler)} 下载。
+ *
+ * @author lry
+ */
+@Slf4j
+public class StackProfiler implements Closeable {
+
+    /**
+     * 调用树的最大节点数，超过后新的调用路径被截断到已有的父节点
+     */
+    private static final int MAX_NODES = 100_000;
+
+    private static final StackProfiler DEFAULT = new StackProfiler();
+
+    private final ThreadMXBean threads;
+    private final long intervalNanos;
+    private final int maxDepth;
+    private final int stuckThreshold;
+    private final double overheadBudget;
+
+    private final Node root = new Node();
+    private final Map<Long, Track> tracks = new HashMap<>();
+    private int nodeCount;
+    private long sampleCount;
+    private long truncatedCount;
+    private int generation;
+
+    private volatile long delayNanos;
+    private volatile long busyNanos;
+    private volatile long startNanos;
+    private ScheduledExecutorService scheduled;
+
+    public StackProfiler() {
+        this(ManagementFactory.getThreadMXBean(), 100, TimeUnit.MILLISECONDS, 64, 50, 0.01);
+    }
+
+    /**
+     * 构造
+     *
+     * @param threads        线程MXBean
+     * @param interval       采样周期
+     * @param unit           时间单位
+     * @param maxDepth       线程栈的最大深度
+     * @param stuckThreshold 栈顶连续在同一方法中的采样次数达到该值时标记为卡住
+     * @param overheadBudget 采样耗时占比的上限，如0.01表示1%
+     */
+    public StackProfiler(ThreadMXBean threads, long interval, TimeUnit unit, int maxDepth, int stuckThreshold, double overheadBudget) {
+        if (interval <= 0 || maxDepth <= 0 || stuckThreshold <= 0 || overheadBudget <= 0 || overheadBudget > 1) {
+            throw new IllegalArgumentException("Illegal interval: " + interval + ", maxDepth: " + maxDepth
+                    + ", stuckThreshold: " + stuckThreshold + " or overheadBudget: " + overheadBudget);
+        }
+
+        this.threads = threads;
+        this.intervalNanos = unit.toNanos(interval);
+        this.maxDepth = maxDepth;
+        this.stuckThreshold = stuckThreshold;
+        this.overheadBudget = overheadBudget;
+        this.delayNanos = intervalNanos;
+    }
+
+    /**
+     * @return 默认的剖析器，需要调用 {@link #start()} 启动
+     */
+    public static StackProfiler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 启动采样线程，已启动时忽略
+     */
+    public synchronized void start() {
+        if (scheduled != null) {
+            return;
+        }
+
+        delayNanos = intervalNanos;
+        busyNanos = 0;
+        startNanos = System.nanoTime();
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("micro-profiler", true));
+        scheduled = executor;
+        executor.schedule(() -> tick(executor), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止采样线程，已采集的数据保留
+     */
+    public synchronized void stop() {
+        if (scheduled != null) {
+            scheduled.shutdown();
+            scheduled = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduled != null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * @param executor 调度本次采样的线程，已被停止或重新启动替换时不再续期，避免出现两条采样链
+     */
+    private void tick(ScheduledExecutorService executor) {
+        long start = System.nanoTime();
+        try {
+            sample();
+        } catch (Exception e) {
+            log.warn("Sample thread stacks error", e);
+        }
+
+        long cost = System.nanoTime() - start;
+        busyNanos += cost;
+        delayNanos = Math.max(intervalNanos, (long) (cost / overheadBudget));
+        synchronized (this) {
+            if (scheduled == executor) {
+                executor.schedule(() -> tick(executor), delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 立即采样一次所有忙碌线程
+     */
+    public void sample() {
+        long self = Thread.currentThread().getId();
+        long[] ids = threads.getAllThreadIds();
+        ThreadInfo[] states = threads.getThreadInfo(ids);
+        int busy = 0;
+        for (int i = 0; i < ids.length; i++) {
+            ThreadInfo state = states[i];
+            if (state != null && ids[i] != self && state.getThreadState() == Thread.State.RUNNABLE && !state.isInNative()) {
+                ids[busy++] = ids[i];
+            }
+        }
+        ThreadInfo[] infos = busy == 0 ? new ThreadInfo[0] : threads.getThreadInfo(Arrays.copyOf(ids, busy), maxDepth);
+        synchronized (this) {
+            generation++;
+            for (ThreadInfo info : infos) {
+                if (info == null || info.getThreadState() != Thread.State.RUNNABLE) {
+                    continue;
+                }
+                StackTraceElement[] stack = info.getStackTrace();
+                if (stack.length == 0) {
+                    continue;
+                }
+
+                Node node = root;
+                for (int i = stack.length - 1; i >= 0; i--) {
+                    String frame = frameName(stack[i]);
+                    Node next = node.children == null ? null : node.children.get(frame);
+                    if (next == null) {
+                        if (nodeCount >= MAX_NODES) {
+                            truncatedCount++;
+                            break;
+                        }
+                        next = node.addChild(frame);
+                        nodeCount++;
+                    }
+                    node = next;
+                }
+                node.count++;
+                sampleCount++;
+
+                String top = frameName(stack[0]);
+                Track track = tracks.get(info.getThreadId());
+                if (track == null) {
+                    tracks.put(info.getThreadId(), track = new Track());
+                }
+                if (top.equals(track.top)) {
+                    track.repeats++;
+                } else {
+                    track.top = top;
+                    track.repeats = 1;
+                }
+                track.info = info;
+                track.generation = generation;
+            }
+
+            // 本次未采到的线程不再连续
+            for (Iterator<Track> iterator = tracks.values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().generation != generation) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按folded格式输出所有采样，每行为：从栈底到栈顶以分号分隔的方法 采样次数
+     *
+     * @param out 输出
+     * @return out
+     */
+    public synchronized StringBuilder writeFolded(StringBuilder out) {
+        if (root.children != null) {
+            StringBuilder path = new StringBuilder(256);
+            for (Map.Entry<String, Node> entry : root.children.entrySet()) {
+                writeFolded(out, path, entry.getKey(), entry.getValue());
+            }
+        }
+
+        return out;
+    }
+
+    private void writeFolded(StringBuilder out, StringBuilder path, String frame, Node node) {
+        int length = path.length();
+        if (length > 0) {
+            path.append(';');
+        }
+        path.append(frame);
+        if (node.count > 0) {
+            out.append(path).append(' ').append(node.count).append('\n');
+        }
+        if (node.children != null) {
+            for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+                writeFolded(out, path, entry.getKey(), entry.getValue());
+            }
+        }
+        path.setLength(length);
+    }
+
+    /**
+     * @return 被标记为卡住的线程，每个元素为连续采样次数和最近一次采样的线程栈
+     */
+    public synchronized List<String> getStuckThreads() {
+        List<String> stuck = new ArrayList<>();
+        for (Track track : tracks.values()) {
+            if (track.repeats >= stuckThreshold) {
+                stuck.add("Stuck in " + track.top + " for " + track.repeats + " samples: " + JvmUtils.getThreadDumpString(track.info));
+            }
+        }
+
+        return stuck;
+    }
+
+    public synchronized int getStuckThreadCount() {
+        int count = 0;
+        for (Track track : tracks.values()) {
+            if (track.repeats >= stuckThreshold) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return 累计的线程栈采样数
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return 因调用树节点数达到上限而被截断的采样数
+     */
+    public synchronized long getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    /**
+     * @return 启动以来采样耗时的占比
+     */
+    public double getOverhead() {
+        long elapsed = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsed <= 0 ? 0 : (double) busyNanos / elapsed;
+    }
+
+    /**
+     * @return 当前的采样周期（纳秒），采样耗时超过预算时大于配置的周期
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * 清空已采集的数据
+     */
+    public synchronized void reset() {
+        root.children = null;
+        nodeCount = 0;
+        sampleCount = 0;
+        truncatedCount = 0;
+        tracks.clear();
+    }
+
+    private static String frameName(StackTraceElement element) {
+        return element.getClassName() + "." + element.getMethodName();
+    }
+
+    /**
+     * 调用树节点，count为以该节点为栈顶的采样数
+     */
+    private static final class Node {
+
+        private Map<String, Node> children;
+        private long count;
+
+        Node addChild(String frame) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node child = new Node();
+            children.put(frame, child);
+            return child;
+        }
+    }
+
+    /**
+     * 线程栈顶的连续记录
+     */
+    private static final class Track {
+
+        private String top;
+        private int repeats;
+        private int generation;
+        private ThreadInfo info;
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.FIFOCache;
+import org.micro.cache.support.LFUCache;
+import org.micro.cache.support.LRUCache;
+
+import java.util.Arrays;
+
+public class AbstractCacheStatsTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testStats() throws Exception {
+        for (AbstractCache<String, String> cache : Arrays.<AbstractCache<String, String>>asList(
+                new LRUCache<>(2), new FIFOCache<>(2), new LFUCache<>(2))) {
+            CacheStats stats = cache.stats();
+            cache.put("a", "1");
+            cache.put("b", "2");
+            Assert.assertEquals("1", cache.get("a"));
+            Assert.assertEquals("1", cache.get("a"));
+            Assert.assertNull(cache.get("x"));
+
+            // 容量满后淘汰一个对象
+            cache.put("c", "3");
+            Assert.assertEquals(cache.toString(), 1, stats.getEvictionCount());
+            Assert.assertEquals(2, cache.size());
+
+            // 过期对象读取时计为丢失和过期
+            cache.put("d", "4", 20);
+            Thread.sleep(50);
+            Assert.assertNull(cache.get("d"));
+            Assert.assertEquals(1, stats.getExpirationCount());
+
+            Assert.assertEquals("v", cache.computeIfAbsent("e", k -> "v"));
+            try {
+                cache.computeIfAbsent("f", k -> {
+                    throw new IllegalStateException("fail");
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            Assert.assertEquals(1, stats.getLoadSuccessCount());
+            Assert.assertEquals(1, stats.getLoadFailureCount());
+
+            Assert.assertEquals(stats.getHitCount(), cache.getHitCountAsLong());
+            Assert.assertEquals(stats.getMissCount(), cache.getMissCountAsLong());
+            Assert.assertEquals(2, cache.getHitCount());
+            Assert.assertEquals(cache.getMissCountAsLong(), cache.getMissCount());
+            Assert.assertTrue(cache.getMissCount() >= 2);
+
+            stats.reset();
+            Assert.assertEquals(0, cache.getHitCount());
+            Assert.assertEquals(0, stats.getRequestCount());
+        }
+    }
+
+}
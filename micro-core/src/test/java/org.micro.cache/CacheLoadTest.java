@@ -0,0 +1,153 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.ConcurrentCache;
+import org.micro.cache.support.LRUCache;
+import org.micro.cache.support.OffHeapCache;
+import org.micro.cache.support.TinyLFUCache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 各缓存实现的批量、异步和加载接口
+ */
+public class CacheLoadTest {
+
+    private List<Cache<Integer, String>> caches() {
+        return Arrays.asList(new LRUCache<>(1024), new ConcurrentCache<>(1024), new TinyLFUCache<>(1024),
+                new OffHeapCache<>(1024 * 1024, Serializer.<Integer>jdk(), Serializer.string()));
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        for (Cache<Integer, String> cache : caches()) {
+            Map<Integer, String> map = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                map.put(i, "v" + i);
+            }
+            cache.putAll(map);
+            Assert.assertEquals(cache.toString(), 10, cache.size());
+
+            Map<Integer, String> result = cache.getAll(Arrays.asList(0, 5, 9, 100));
+            Assert.assertEquals(3, result.size());
+            Assert.assertEquals("v5", result.get(5));
+            Assert.assertFalse(result.containsKey(100));
+
+            cache.removeAll(Arrays.asList(0, 1, 2));
+            Assert.assertEquals(7, cache.size());
+            Assert.assertNull(cache.get(0));
+
+            Assert.assertEquals("v9", cache.getAsync(9).get());
+            Assert.assertNull(cache.getAsync(0).get());
+            Assert.assertEquals(2, cache.getAllAsync(Arrays.asList(3, 4, 0)).get().size());
+            close(cache);
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentAsync() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Cache<Integer, String> cache : caches()) {
+                AtomicInteger loads = new AtomicInteger();
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(cache.computeIfAbsentAsync(1, k -> {
+                        loads.incrementAndGet();
+                        sleep(50);
+                        return "v" + k;
+                    }, executor));
+                }
+                for (CompletableFuture<String> future : futures) {
+                    Assert.assertEquals("v1", future.get(5, TimeUnit.SECONDS));
+                }
+                Assert.assertEquals(cache.toString(), 1, loads.get());
+                Assert.assertEquals("v1", cache.get(1));
+                Assert.assertEquals(1, cache.stats().getLoadSuccessCount());
+
+                // 加载结果为null时不缓存，加载异常传给future
+                Assert.assertNull(cache.computeIfAbsentAsync(2, k -> null, executor).get());
+                Assert.assertNull(cache.get(2));
+                CompletableFuture<String> failed = cache.computeIfAbsentAsync(3, k -> {
+                    throw new IllegalStateException("fail");
+                }, executor);
+                try {
+                    failed.get();
+                    Assert.fail();
+                } catch (Exception e) {
+                    Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+                Assert.assertEquals(1, cache.stats().getLoadFailureCount());
+                close(cache);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentLoadsOnce() throws Exception {
+        int threads = 8;
+        int rounds = 200;
+        for (Cache<Integer, String> cache : caches()) {
+            AtomicInteger loads = new AtomicInteger();
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Thread> workers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        for (int r = 0; r < rounds; r++) {
+                            barrier.await();
+                            Assert.assertEquals("v" + r, cache.computeIfAbsent(r, k -> {
+                                loads.incrementAndGet();
+                                return "v" + k;
+                            }));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            Assert.assertTrue(errors.toString(), errors.isEmpty());
+            // 错过进行中的加载的线程在加载前会再检查一次缓存，每个key只加载一次
+            Assert.assertEquals(cache.toString(), rounds, loads.get());
+            close(cache);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void close(Cache<?, ?> cache) throws Exception {
+        if (cache instanceof Closeable) {
+            ((Closeable) cache).close();
+        }
+    }
+
+}
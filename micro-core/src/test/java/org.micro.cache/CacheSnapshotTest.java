@@ -0,0 +1,90 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.LFUCache;
+import org.micro.commons.SystemClock;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+public class CacheSnapshotTest {
+
+    @Test
+    public void testSnapshotAndRestore() throws Exception {
+        File dir = Files.createTempDirectory("cache-snapshot").toFile();
+        File file = new File(dir, "lfu.snapshot");
+        SystemClock.ManualClock clock = new SystemClock.ManualClock(1000);
+        SystemClock.setClock(clock);
+        try {
+            LFUCache<String, String> cache = new LFUCache<>(16);
+            cache.put("a", "1");
+            cache.put("b", "2", 60_000);
+            cache.put("c", "3", 1_000);
+            cache.put("d", "4", 60_000);
+            cache.get("a");
+            cache.get("a");
+            clock.advance(10, TimeUnit.SECONDS);
+            Assert.assertEquals(3, cache.snapshot(file, Serializer.string(), Serializer.string()));
+
+            // 快照后经过20秒再恢复，d还剩30秒
+            clock.advance(20, TimeUnit.SECONDS);
+            LFUCache<String, String> restored = new LFUCache<>(16);
+            restored.put("b", "new");
+            Assert.assertEquals(2, restored.restore(file, Serializer.string(), Serializer.string()));
+            Assert.assertEquals(2, restored.cacheMap.get("a").accessCount);
+            Assert.assertEquals(0, restored.cacheMap.get("d").accessCount);
+            Assert.assertEquals(SystemClock.now() + 30_000, restored.cacheMap.get("d").expireTime());
+            Assert.assertFalse(restored.cacheMap.containsKey("c"));
+
+            clock.advance(29_999, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(restored.cacheMap.get("d").isExpired());
+            clock.advance(2, TimeUnit.MILLISECONDS);
+            Assert.assertNull(restored.get("d"));
+            Assert.assertEquals("1", restored.get("a"));
+            Assert.assertEquals("new", restored.get("b"));
+        } finally {
+            SystemClock.setClock(null);
+            for (File child : dir.listFiles()) {
+                child.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testFailedSnapshotRemovesTempFile() throws Exception {
+        File dir = Files.createTempDirectory("cache-snapshot").toFile();
+        File file = new File(dir, "lfu.snapshot");
+        try {
+            LFUCache<String, String> cache = new LFUCache<>(16);
+            cache.put("a", "1");
+            Serializer<String> failing = new Serializer<String>() {
+                @Override
+                public byte[] serialize(String object) {
+                    throw new IllegalStateException("serialize failed");
+                }
+
+                @Override
+                public String deserialize(byte[] bytes) {
+                    throw new IllegalStateException("deserialize failed");
+                }
+            };
+            try {
+                cache.snapshot(file, Serializer.string(), failing);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            Assert.assertFalse(new File(dir, "lfu.snapshot.tmp").exists());
+            Assert.assertFalse(file.exists());
+        } finally {
+            for (File child : dir.listFiles()) {
+                child.delete();
+            }
+            dir.delete();
+        }
+    }
+
+}
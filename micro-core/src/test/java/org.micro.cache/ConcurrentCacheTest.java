@@ -0,0 +1,190 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.ConcurrentCache;
+import org.micro.metric.support.CacheMetric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ConcurrentCacheTest {
+
+    @Test
+    public void testLRU() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(ConcurrentCache.Policy.LRU, 3, 0, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        Assert.assertEquals("1", cache.get("a"));
+        cache.put("d", "4");
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("1", cache.get("a"));
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testFIFO() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(ConcurrentCache.Policy.FIFO, 3, 0, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        Assert.assertEquals("1", cache.get("a"));
+        cache.put("d", "4");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals("2", cache.get("b"));
+    }
+
+    @Test
+    public void testLFU() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(ConcurrentCache.Policy.LFU, 3, 0, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.get("a");
+        cache.get("c");
+        cache.put("d", "4");
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("1", cache.get("a"));
+        Assert.assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testTinyLFU() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(ConcurrentCache.Policy.TINY_LFU, 3, 0, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.get("a");
+
+        // 新对象访问频率不高于最久未使用的对象，不准入
+        cache.put("d", "4");
+        Assert.assertNull(cache.get("d"));
+        Assert.assertEquals(3, cache.size());
+
+        // 反复访问后准入，淘汰最久未使用的b
+        cache.put("d", "4");
+        cache.put("d", "4");
+        Assert.assertEquals("4", cache.get("d"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(ConcurrentCache.Policy.LRU, 0, 0);
+        cache.put("a", "1", 1);
+        cache.put("b", "2");
+        Thread.sleep(10);
+        Assert.assertEquals(1, cache.prune());
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals("2", cache.get("b"));
+    }
+
+    @Test
+    public void testConcurrentCapacity() throws Exception {
+        ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(ConcurrentCache.Policy.LRU, 1024, 0, 16);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100_000; i++) {
+                    int key = random.nextInt(4096);
+                    if (random.nextBoolean()) {
+                        cache.put(key, key);
+                    } else {
+                        Integer value = cache.get(key);
+                        if (value != null) {
+                            Assert.assertEquals(key, value.intValue());
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertTrue(cache.size() <= 1024);
+        Assert.assertEquals(cache.size(), cache.keys().size());
+    }
+
+    @Test
+    public void testSegmentCapacity() {
+        // 4个段分配10的容量：3、3、2、2，总数不超过设置值
+        ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(ConcurrentCache.Policy.LRU, 10, 0, 4);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        Assert.assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testComputeIfAbsentSingleFlight() throws Exception {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>(16);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Assert.assertEquals("v", cache.computeIfAbsent("k", k -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "v";
+                }));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("v", cache.get("k"));
+    }
+
+    @Test
+    public void testStats() {
+        ConcurrentCache<String, String> cache = CacheRegistry.register("test", new ConcurrentCache<>(ConcurrentCache.Policy.FIFO, 2, 0, 1));
+        try {
+            cache.put("a", "1");
+            cache.put("b", "2");
+            cache.put("c", "3");
+            cache.get("a");
+            cache.get("b");
+            cache.computeIfAbsent("d", k -> "4");
+
+            CacheStats stats = cache.stats();
+            Assert.assertEquals(1, stats.getHitCount());
+            Assert.assertEquals(2, stats.getMissCount());
+            Assert.assertEquals(1, stats.getLoadSuccessCount());
+            Assert.assertEquals(2, stats.getEvictionCount());
+
+            Map<String, Object> metrices = new CacheMetric().getMetrices();
+            Assert.assertEquals(1L, metrices.get("cache_test_hit_count"));
+            Assert.assertEquals(2, metrices.get("cache_test_size"));
+        } finally {
+            CacheRegistry.unregister("test");
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.LoadingCache;
+import org.micro.commons.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadingCacheTest {
+
+    @Test
+    public void testRefreshServesStaleValue() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        LoadingCache<String, String> cache = new LoadingCache<>(16, 50, 10_000, k -> k + version.incrementAndGet(),
+                Runnable::run);
+        Assert.assertEquals("a1", cache.get("a"));
+        Assert.assertEquals("a1", cache.get("a"));
+
+        Thread.sleep(80);
+        // 超过刷新时长，本次返回旧值，同时完成刷新
+        Assert.assertEquals("a1", cache.get("a"));
+        Assert.assertEquals("a2", cache.get("a"));
+    }
+
+    @Test
+    public void testHardExpire() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<String, Integer> cache = new LoadingCache<>(16, 0, 50, k -> loads.incrementAndGet());
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+
+        Thread.sleep(80);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("a"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPruneOnlyWhenExpiring() throws Exception {
+        LoadingCache<String, String> refreshing = new LoadingCache<>(16, 50, 0, k -> k);
+        refreshing.get("a");
+        Thread.sleep(80);
+        Assert.assertEquals(0, refreshing.prune());
+        Assert.assertEquals(1, refreshing.size());
+
+        LoadingCache<String, String> expiring = new LoadingCache<>(16, 0, 50, k -> k);
+        expiring.get("a");
+        expiring.get("b");
+        Thread.sleep(80);
+        Assert.assertEquals(2, expiring.prune());
+        Assert.assertEquals(0, expiring.size());
+    }
+
+    @Test
+    public void testRefreshFailureIsCounted() {
+        SystemClock.ManualClock clock = new SystemClock.ManualClock();
+        SystemClock.setClock(clock);
+        try {
+            AtomicInteger loads = new AtomicInteger();
+            LoadingCache<String, String> cache = new LoadingCache<>(16, 50, 10_000, k -> {
+                if (loads.incrementAndGet() > 1) {
+                    throw new IllegalStateException("refresh failed");
+                }
+                return k;
+            }, Runnable::run);
+            Assert.assertEquals("a", cache.get("a"));
+
+            clock.advance(60, TimeUnit.MILLISECONDS);
+            // 刷新失败，继续返回旧值
+            Assert.assertEquals("a", cache.get("a"));
+            Assert.assertEquals(1, cache.stats().getLoadSuccessCount());
+            Assert.assertEquals(1, cache.stats().getLoadFailureCount());
+        } finally {
+            SystemClock.setClock(null);
+        }
+    }
+
+    @Test
+    public void testConcurrentHits() throws Exception {
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>(64, 0, 0, k -> k);
+        for (int i = 0; i < 64; i++) {
+            cache.get(i);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    cache.get(ThreadLocalRandom.current().nextInt(64));
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+            Assert.assertFalse(thread.isAlive());
+        }
+
+        // 访问顺序链表没有被并发读取破坏
+        Assert.assertEquals(64, cache.size());
+        Assert.assertEquals(64, new ArrayList<>(cache.keys()).size());
+    }
+
+}
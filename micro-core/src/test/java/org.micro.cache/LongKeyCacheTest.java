@@ -0,0 +1,69 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongKeyCacheTest {
+
+    @Test
+    public void testLRU() {
+        LongKeyCache<String> cache = new LongKeyCache<>(3);
+        cache.put(1L, "1");
+        cache.put(2L, "2");
+        cache.put(3L, "3");
+        Assert.assertEquals("1", cache.get(1L));
+        cache.put(4L, "4");
+        Assert.assertNull(cache.get(2L));
+        Assert.assertEquals("1", cache.get(1L));
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        LongKeyCache<String> cache = new LongKeyCache<>(8, 30);
+        cache.put(1L, "1");
+        cache.put(2L, "2", 0);
+        Thread.sleep(60);
+        Assert.assertNull(cache.get(1L));
+        Assert.assertEquals("2", cache.get(2L));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRandomAgainstLinkedHashMap() {
+        final int capacity = 64;
+        LongKeyCache<Long> cache = new LongKeyCache<>(capacity);
+        Map<Long, Long> expected = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(256);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                Assert.assertEquals(expected.get(key), cache.get(key));
+            } else if (op < 9) {
+                Long value = Long.valueOf(i);
+                expected.put(key, value);
+                cache.put(key, value);
+            } else {
+                expected.remove(key);
+                cache.remove(key);
+            }
+            Assert.assertEquals(expected.size(), cache.size());
+        }
+        Assert.assertEquals(expected.keySet(), cache.keys());
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.micro.cache.support.MappedFileCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class MappedFileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRemapOnChange() throws Exception {
+        MappedFileCache cache = new MappedFileCache(1024);
+        File file = write("a.txt", "hello");
+        Assert.assertEquals("hello", read(cache.getFileBuffer(file)));
+        Assert.assertEquals(5, cache.getUsedSize());
+
+        // 大小变化
+        write("a.txt", "hello world");
+        Assert.assertEquals("hello world", read(cache.getFileBuffer(file)));
+        Assert.assertEquals(11, cache.getUsedSize());
+        Assert.assertEquals(1, cache.getCachedFilesCount());
+
+        // 大小不变，修改时间变化
+        write("a.txt", "HELLO WORLD");
+        Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+        Assert.assertEquals("HELLO WORLD", read(cache.getFileBuffer(file)));
+
+        // 每次返回新的视图，互不影响position
+        ByteBuffer first = cache.getFileBuffer(file);
+        first.get();
+        Assert.assertEquals(0, cache.getFileBuffer(file).position());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        MappedFileCache cache = new MappedFileCache(100, 60, 0);
+        File a = write("a.txt", repeat('a', 40));
+        File b = write("b.txt", repeat('b', 40));
+        File c = write("c.txt", repeat('c', 40));
+        cache.getFileBuffer(a);
+        cache.getFileBuffer(b);
+        // 访问a后b成为最久未使用
+        cache.getFileBuffer(a);
+        cache.getFileBuffer(c);
+        Assert.assertEquals(2, cache.getCachedFilesCount());
+        Assert.assertEquals(80, cache.getUsedSize());
+
+        // 超过最大文件大小的文件映射但不缓存
+        File large = write("large.txt", repeat('l', 70));
+        Assert.assertEquals(repeat('l', 70), read(cache.getFileBuffer(large)));
+        Assert.assertEquals(2, cache.getCachedFilesCount());
+
+        cache.remove(a);
+        Assert.assertEquals(40, cache.getUsedSize());
+        cache.clear();
+        Assert.assertEquals(0, cache.getUsedSize());
+        Assert.assertEquals(0, cache.getCachedFilesCount());
+    }
+
+    @Test
+    public void testTransferTo() throws Exception {
+        MappedFileCache cache = new MappedFileCache(1024 * 1024);
+        String content = repeat('x', 100_000);
+        File file = write("t.txt", content);
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Assert.assertEquals(content.length(), cache.transferTo(file, Channels.newChannel(out)));
+            Assert.assertEquals(content, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String read(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.OffHeapCache;
+
+public class OffHeapCacheTest {
+
+    @Test
+    public void testMemoryTier() throws Exception {
+        try (OffHeapCache<String, String> cache = new OffHeapCache<>(1024 * 1024, Serializer.string(), Serializer.string())) {
+            cache.put("a", "1");
+            cache.put("b", "2");
+            cache.put("a", "3");
+            Assert.assertEquals("3", cache.get("a"));
+            Assert.assertEquals("2", cache.get("b"));
+            Assert.assertEquals(2, cache.size());
+            Assert.assertEquals(2 * (8 + 2), cache.getMemoryUsedBytes());
+
+            cache.remove("b");
+            Assert.assertNull(cache.get("b"));
+            Assert.assertEquals(8 + 2, cache.getMemoryUsedBytes());
+        }
+    }
+
+    @Test
+    public void testSpillAndPromote() throws Exception {
+        int slab = 1024;
+        byte[] value = new byte[200];
+        try (OffHeapCache<Integer, byte[]> cache = new OffHeapCache<>(2 * slab, 8 * slab, null, slab,
+                Serializer.<Integer>jdk(), Serializer.bytes(), 0)) {
+            for (int i = 0; i < 30; i++) {
+                value[0] = (byte) i;
+                cache.put(i, value.clone());
+            }
+
+            Assert.assertTrue(cache.getMemoryUsedBytes() <= 2 * slab);
+            Assert.assertTrue(cache.getDiskUsedBytes() > 0);
+            Assert.assertEquals(30, cache.size());
+
+            // 第一次从文件层读取并提升到内存层，第二次从内存层读取
+            Assert.assertEquals(0, cache.get(0)[0]);
+            Assert.assertEquals(0, cache.get(0)[0]);
+            Assert.assertEquals(29, cache.get(29)[0]);
+        }
+    }
+
+    @Test
+    public void testDropWithoutSpillTier() throws Exception {
+        int slab = 1024;
+        try (OffHeapCache<Integer, byte[]> cache = new OffHeapCache<>(2 * slab, 0, null, slab,
+                Serializer.<Integer>jdk(), Serializer.bytes(), 0)) {
+            for (int i = 0; i < 30; i++) {
+                cache.put(i, new byte[200]);
+            }
+            Assert.assertTrue(cache.size() < 30);
+            Assert.assertNull(cache.get(0));
+            Assert.assertNotNull(cache.get(29));
+
+            cache.put(100, new byte[2 * slab]);
+            Assert.assertNull(cache.get(100));
+
+            // 超过分块大小的新值覆盖已有的key时移除旧值
+            cache.put(29, new byte[2 * slab]);
+            Assert.assertNull(cache.get(29));
+            Assert.assertEquals(2, cache.stats().getRejectionCount());
+        }
+    }
+
+}
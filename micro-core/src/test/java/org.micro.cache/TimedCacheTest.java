@@ -0,0 +1,65 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.TimedCache;
+import org.micro.commons.SystemClock;
+
+import java.util.concurrent.TimeUnit;
+
+public class TimedCacheTest {
+
+    @Test
+    public void testExpireByTimerWheel() throws Exception {
+        TimedCache<String, String> cache = new TimedCache<>(100);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3", 10_000);
+        Assert.assertEquals(0, cache.expire());
+
+        Thread.sleep(200);
+        Assert.assertEquals(2, cache.expire());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testAccessDefersExpire() {
+        SystemClock.ManualClock clock = new SystemClock.ManualClock();
+        SystemClock.setClock(clock);
+        try {
+            TimedCache<String, String> cache = new TimedCache<>(300);
+            cache.put("a", "1");
+            for (int i = 0; i < 5; i++) {
+                clock.advance(100, TimeUnit.MILLISECONDS);
+                Assert.assertEquals("1", cache.get("a"));
+                Assert.assertEquals(0, cache.expire());
+            }
+
+            clock.advance(300, TimeUnit.MILLISECONDS);
+            Assert.assertEquals("1", cache.get("a"));
+            clock.advance(301, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(1, cache.expire());
+            Assert.assertTrue(cache.isEmpty());
+        } finally {
+            SystemClock.setClock(null);
+        }
+    }
+
+    @Test
+    public void testTimerWheelLevels() {
+        TimerWheel<CacheObj<String, String>> wheel = new TimerWheel<>(0);
+        CacheObj<String, String> near = new CacheObj<>("near", "1", 100);
+        CacheObj<String, String> far = new CacheObj<>("far", "2", 100);
+        wheel.schedule(near, 100);
+        wheel.schedule(far, 10 * 60 * 1000L);
+        Assert.assertEquals(2, wheel.size());
+
+        Assert.assertTrue(wheel.advance(50).isEmpty());
+        Assert.assertEquals(1, wheel.advance(200).size());
+        Assert.assertTrue(wheel.advance(9 * 60 * 1000L).isEmpty());
+        Assert.assertEquals(1, wheel.advance(10 * 60 * 1000L + 1).size());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+}
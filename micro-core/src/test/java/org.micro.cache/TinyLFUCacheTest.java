@@ -0,0 +1,130 @@
+package org.micro.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.LFUCache;
+import org.micro.cache.support.TinyLFUCache;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+public class TinyLFUCacheTest {
+
+    @Test
+    public void testBasic() {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals("v1", cache.get("k1"));
+        cache.put("k1", "v1'");
+        Assert.assertEquals("v1'", cache.get("k1"));
+
+        for (int i = 100; i < 1000; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals("v1'", cache.get("k1"));
+
+        cache.remove("k1");
+        Assert.assertNull(cache.get("k1"));
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testHitRateOnSkewedWorkload() {
+        int capacity = 1000;
+        int[] trace = zipfTrace(100_000, 200_000, 0.9, 7);
+
+        TinyLFUCache<Integer, Integer> tinyLFU = new TinyLFUCache<>(capacity);
+        LFUCache<Integer, Integer> lfu = new LFUCache<>(capacity);
+        double tinyLFUHitRate = hitRate(tinyLFU, trace);
+        double lfuHitRate = hitRate(lfu, trace);
+
+        Assert.assertTrue("TinyLFU=" + tinyLFUHitRate + ", LFU=" + lfuHitRate, tinyLFUHitRate >= lfuHitRate);
+    }
+
+    @Test(timeout = 10_000)
+    public void testHitWithoutLock() throws Exception {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        cache.put("a", "1");
+
+        Field field = TinyLFUCache.class.getDeclaredField("lock");
+        field.setAccessible(true);
+        Lock lock = (Lock) field.get(cache);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        holder.start();
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            // 锁被占用时读操作不阻塞，访问事件留在读缓冲区
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals("1", cache.get("a"));
+                Assert.assertNull(cache.get("b"));
+            }
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        Assert.assertEquals(1000, cache.getHitCount());
+        Assert.assertEquals(1000, cache.getMissCount());
+        cache.put("c", "3");
+        Assert.assertEquals("1", cache.get("a"));
+    }
+
+    private static double hitRate(Cache<Integer, Integer> cache, int[] trace) {
+        int hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static int[] zipfTrace(int keys, int length, double skew, long seed) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            double r = random.nextDouble() * sum;
+            int low = 0, high = keys - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cdf[mid] < r) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            trace[i] = low;
+        }
+        return trace;
+    }
+
+}
@@ -2,6 +2,9 @@ package org.micro.commons;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.micro.metric.support.CacheMetric;
+
+import java.util.Map;
 
 public class AntPathMatcherTest {
 
@@ -93,4 +96,28 @@ public class AntPathMatcherTest {
         Assert.assertTrue(pathMatcher.match("/{bla}.*", "/testing.html"));
     }
 
+    @Test
+    public void testBoundedCache() {
+        AntPathMatcher matcher = new AntPathMatcher();
+        matcher.setCacheCapacity(64);
+        matcher.setCacheName("ant_path_test");
+        try {
+            for (int i = 0; i < 10000; i++) {
+                // 热点模式与大量一次性模式交替访问
+                Assert.assertTrue(matcher.match("/hot/{id}/*", "/hot/" + i + "/info"));
+                Assert.assertTrue(matcher.match("/cold/" + i + "/{id}", "/cold/" + i + "/info"));
+            }
+
+            // 缓存不再关闭，热点模式始终命中
+            Assert.assertTrue(matcher.getTokenizedPatternCacheStats().getHitRatio() > 0.45);
+            Assert.assertTrue(matcher.getStringMatcherCacheStats().getHitCount() > 10000);
+
+            Map<String, Object> gauges = new CacheMetric().getMetrices();
+            Assert.assertTrue(gauges.containsKey("cache_ant_path_test_tokenized_hit_ratio"));
+            Assert.assertTrue(gauges.containsKey("cache_ant_path_test_matcher_hit_ratio"));
+        } finally {
+            matcher.setCacheName(null);
+        }
+    }
+
 }
@@ -0,0 +1,169 @@
+package org.micro.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PathPatternSetTest {
+
+    /**
+     * AntPathMatcherTest中的模式，以及模板变量
+     */
+    private static final String[] PATTERNS = {
+            "*",
+            "*.*",
+            "*bla*/**/bla/*",
+            "*bla*/**/bla/**",
+            "*test",
+            "*test*",
+            "/**",
+            "/**/*",
+            "/**/*bla",
+            "/**/test",
+            "/*/**",
+            "/*bla*/**/bla/*",
+            "/*bla*/**/bla/**",
+            "/*bla/test",
+            "/?",
+            "/?/a",
+            "/??/a",
+            "/????",
+            "/a/?",
+            "/a/??",
+            "/bla*bla/test",
+            "/bla/**/**/bla",
+            "/bla/**/bla",
+            "/foo/bar/**",
+            "/test",
+            "/test.jpg",
+            "/x/x/**/bla",
+            "/{bla}.*",
+            "??st",
+            "?es?",
+            "http://example.org",
+            "t?st",
+            "te??",
+            "tes?",
+            "test",
+            "test*",
+            "test*aaa",
+            "test/*",
+            "/user/{id}",
+            "/user/{id:[0-9]+}/info",
+            "/{a}/{b}.json",
+            "",
+            "/"
+    };
+
+    private static final String[] PATHS = {
+            "/XXXbla/test",
+            "/XXXblaXXXX/testing/testing/bla/testing",
+            "/XXXblaXXXX/testing/testing/bla/testing/testing",
+            "/XXXblaXXXX/testing/testing/bla/testing/testing.jpg",
+            "/XXXblaXXXX/testing/testing/bla/testing/testing/",
+            "/a",
+            "/a/a",
+            "/a/b",
+            "/a/bb",
+            "/aa/a",
+            "/bala/bla",
+            "/bla/bla/bla/bbb",
+            "/bla/bla/bla/bla/bla/bla",
+            "/bla/bla/test",
+            "/bla/testing/testing/bla",
+            "/bla/testing/testing/bla/bla",
+            "/blaXXXbl/test",
+            "/blaXXXbla/test",
+            "/foo/bar",
+            "/test",
+            "/testing.html",
+            "/testing/testing",
+            "/x/x/x/",
+            "Anothertest",
+            "AnothertestTest",
+            "XXXbl/test",
+            "XXXblaXXXX/testing/testing/bla/testing",
+            "XXXblaXXXX/testing/testing/bla/testing/testing",
+            "XXXblaXXXX/testing/testing/bla/testing/testing/",
+            "XXXblab/test",
+            "http://example.org",
+            "tes",
+            "test",
+            "test.",
+            "test.jpg",
+            "test.test",
+            "test.test.test",
+            "test/",
+            "test/Test",
+            "test/t",
+            "testTest",
+            "testblaaaa",
+            "testblaaab",
+            "testt",
+            "tsst",
+            "tst",
+            "tsttest",
+            "tsttst",
+            "/user/123",
+            "/user/123/info",
+            "/user/abc/info",
+            "/x/y.json",
+            "/",
+            "",
+            "//test//"
+    };
+
+    @Test
+    public void testSameAsAntPathMatcher() {
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        PathPatternSet patternSet = new PathPatternSet(Arrays.asList(PATTERNS));
+        int[] result = new int[PATTERNS.length];
+        for (String path : PATHS) {
+            List<String> expected = new ArrayList<>();
+            for (String pattern : PATTERNS) {
+                if (pathMatcher.match(pattern, path)) {
+                    expected.add(pattern);
+                }
+
+                // 单个模式
+                Assert.assertEquals(pattern + " -> " + path, pathMatcher.match(pattern, path),
+                        new PathPatternSet(Arrays.asList(pattern)).matches(path));
+            }
+
+            Assert.assertEquals(path, expected, patternSet.matchAll(path));
+            Assert.assertEquals(path, expected.size(), patternSet.match(path, result));
+            Assert.assertEquals(path, !expected.isEmpty(), patternSet.matches(path));
+            Assert.assertEquals(path, expected.isEmpty() ? -1 : Arrays.asList(PATTERNS).indexOf(expected.get(0)),
+                    patternSet.matchFirst(path));
+        }
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        PathPatternSet patternSet = new PathPatternSet(Arrays.asList("/API/**", "/user/T?st*", "/ORDER"), "/", false);
+        Assert.assertEquals(Arrays.asList("/API/**"), patternSet.matchAll("/api/v1"));
+        Assert.assertEquals(Arrays.asList("/user/T?st*"), patternSet.matchAll("/USER/test-1"));
+        Assert.assertEquals(2, patternSet.matchFirst("/order"));
+        Assert.assertFalse(patternSet.matches("/orders"));
+    }
+
+    @Test
+    public void testDiscardedSetNotRetainedByThread() throws Exception {
+        PathPatternSet patternSet = new PathPatternSet(Arrays.asList("/api/**", "/user/{id}"));
+        Assert.assertTrue(patternSet.matches("/user/1"));
+        WeakReference<PathPatternSet> reference = new WeakReference<>(patternSet);
+        patternSet = null;
+
+        // 当前线程的状态集合仍在线程本地变量中，但不应再引用模式集合
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(reference.get());
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.micro.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PerfTest {
+
+    @Test
+    public void testOpenLoopCountsQueueingDelay() throws Exception {
+        AtomicBoolean stalled = new AtomicBoolean();
+        Perf perf = new Perf() {
+            @Override
+            public TaskInThread buildTaskInThread() {
+                return new TaskInThread() {
+                    @Override
+                    public void doTask() throws Exception {
+                        // 一次100ms的停顿，开环模式下后续排队的任务都要计入耗时
+                        if (stalled.compareAndSet(false, true)) {
+                            Thread.sleep(100);
+                        }
+                    }
+                };
+            }
+        };
+        File report = File.createTempFile("perf-", ".json");
+        perf.setThreadCount(1);
+        perf.setRate(1000);
+        perf.setWarmup(0);
+        perf.setDuration(500);
+        perf.setReportInterval(100);
+        perf.setReportFile(report);
+        try {
+            perf.run();
+
+            Perf.Interval total = perf.getTotal();
+            Assert.assertTrue(total.getCount() > 400 && total.getCount() <= 501);
+            Assert.assertTrue(total.getMax() >= 100_000);
+            // 停顿期间计划发起的约100个任务都被记为慢请求
+            Assert.assertTrue(total.getP99() >= 10_000);
+            Assert.assertFalse(perf.getIntervals().isEmpty());
+
+            String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+            Assert.assertTrue(json.contains("\"intervals\""));
+            Assert.assertTrue(json.contains("\"p999\""));
+        } finally {
+            report.delete();
+        }
+    }
+
+}
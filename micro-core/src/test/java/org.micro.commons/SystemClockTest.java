@@ -0,0 +1,39 @@
+package org.micro.commons;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.cache.support.LRUCache;
+
+import java.util.concurrent.TimeUnit;
+
+public class SystemClockTest {
+
+    @Test
+    public void testCachedClock() {
+        Assert.assertTrue(SystemClock.getClock() instanceof SystemClock.CachedClock);
+        Assert.assertTrue(Math.abs(SystemClock.now() - System.currentTimeMillis()) < 1000);
+    }
+
+    @Test
+    public void testManualClockDrivesCacheExpiration() {
+        SystemClock.ManualClock clock = new SystemClock.ManualClock(1000);
+        SystemClock.setClock(clock);
+        try {
+            LRUCache<String, String> cache = new LRUCache<>(16, 100);
+            cache.put("a", "1");
+            long start = SystemClock.nanoTime();
+
+            clock.advance(100, TimeUnit.MILLISECONDS);
+            Assert.assertEquals("1", cache.get("a"));
+            clock.advance(101, TimeUnit.MILLISECONDS);
+            Assert.assertNull(cache.get("a"));
+            Assert.assertEquals(201, SystemClock.elapsedMillis(start));
+
+            clock.setTime(0);
+            Assert.assertEquals(201, SystemClock.elapsedMillis(start));
+        } finally {
+            SystemClock.setClock(null);
+        }
+    }
+
+}
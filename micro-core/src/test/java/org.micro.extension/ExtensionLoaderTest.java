@@ -0,0 +1,208 @@
+package org.micro.extension;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.commons.Clock;
+import org.micro.commons.SystemClock;
+import org.micro.metric.Metric;
+import org.micro.metric.support.CacheMetric;
+import org.micro.thread.ThreadPoolExecutorFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ExtensionLoaderTest {
+
+    @Test
+    public void testIndexCoversServices() throws Exception {
+        for (Class<?> type : new Class<?>[]{Metric.class, Clock.class, ThreadPoolExecutorFactory.ThreadPool.class}) {
+            Set<String> services = read("META-INF/services/" + type.getName());
+            Set<String> indexed = read(ExtensionProcessor.INDEX_RESOURCE).stream()
+                    .map(line -> line.split(" ")).filter(parts -> parts[0].equals(type.getName()))
+                    .map(parts -> parts[2]).collect(Collectors.toSet());
+            Assert.assertEquals(type.getName(), services, indexed);
+        }
+    }
+
+    @Test
+    public void testGetExtension() throws Exception {
+        ExtensionLoader<Metric> loader = ExtensionLoader.getLoader(Metric.class);
+        Assert.assertEquals(CacheMetric.class, loader.getExtensionClass("cache"));
+        Assert.assertNull(loader.getExtension("none"));
+
+        // 单例：并发获取同一个实例
+        Set<Metric> instances = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            new Thread(() -> {
+                instances.add(loader.getExtension("cache"));
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(1, instances.size());
+
+        // 多例：每次创建新实例
+        ExtensionLoader<ThreadPoolExecutorFactory.ThreadPool> poolLoader = ExtensionLoader.getLoader(ThreadPoolExecutorFactory.ThreadPool.class);
+        Assert.assertNotSame(poolLoader.getExtension("fixed"), poolLoader.getExtension("fixed"));
+        Assert.assertSame(ExtensionLoader.getLoader(Clock.class).getExtension(), ExtensionLoader.getLoader(Clock.class).getExtension("cached"));
+    }
+
+    @Test
+    public void testReload() {
+        ExtensionLoader<Clock> loader = ExtensionLoader.getLoader(Clock.class);
+        Clock cached = loader.getExtension("cached");
+        Object version = loader.version();
+
+        loader.reload();
+        Assert.assertNotSame(version, loader.version());
+        Assert.assertSame(cached, loader.getExtension("cached"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("cached", "system", "manual")), loader.getExtensionNames());
+    }
+
+    @Test
+    public void testScanJarWithoutIndex() throws Exception {
+        // 模拟未经注解处理器编译的jar：只有配置文件，没有索引
+        File root = Files.createTempDirectory("micro-extension").toFile();
+        File services = new File(root, "META-INF/services/" + Clock.class.getName());
+        Assert.assertTrue(services.getParentFile().mkdirs());
+        Files.write(services.toPath(), ScannedClock.class.getName().getBytes(StandardCharsets.UTF_8));
+
+        ExtensionLoader<Clock> loader = ExtensionLoader.getLoader(Clock.class);
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{root.toURI().toURL()}, original)) {
+            loader.reload(classLoader);
+            Assert.assertEquals(new HashSet<>(Arrays.asList("cached", "system", "manual", "ScannedClock")), loader.getExtensionNames());
+            Assert.assertEquals(ScannedClock.class, loader.getExtensionClass("ScannedClock"));
+
+            // 只读取索引时跳过没有索引的jar
+            System.setProperty(ExtensionLoader.SCAN_KEY, "false");
+            try {
+                loader.reload(classLoader);
+                Assert.assertEquals(new HashSet<>(Arrays.asList("cached", "system", "manual")), loader.getExtensionNames());
+            } finally {
+                System.clearProperty(ExtensionLoader.SCAN_KEY);
+            }
+        } finally {
+            loader.reload(original);
+            services.delete();
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("cached", "system", "manual")), loader.getExtensionNames());
+    }
+
+    public static class ScannedClock implements Clock {
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+    }
+
+    @Test
+    public void testAdaptive() {
+        AdaptiveExtension<Clock> adaptive = ExtensionLoader.getLoader(Clock.class).getAdaptive();
+        Assert.assertEquals(3, adaptive.getCandidates().size());
+
+        // 没有样本的实现优先被探测
+        Set<String> probed = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            probed.add(adaptive.invoke(clock -> {
+                for (String name : Arrays.asList("cached", "system", "manual")) {
+                    if (ExtensionLoader.getLoader(Clock.class).getExtension(name) == clock) {
+                        return name;
+                    }
+                }
+                return null;
+            }));
+        }
+        Assert.assertEquals(2, probed.size());
+
+        AdaptiveExtension<Clock> weighted = new AdaptiveExtension<>(ExtensionLoader.getLoader(Clock.class), 1, TimeUnit.HOURS);
+        for (int i = 0; i < 20; i++) {
+            weighted.record("cached", 100_000, true);
+            weighted.record("system", 1_000, true);
+            weighted.record("manual", 1_000, i % 2 == 0);
+        }
+        Assert.assertEquals(0.5, weighted.getStats("manual").getErrorRate(), 0.1);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(weighted.select(), 1, Integer::sum);
+        }
+        // 两两比较时system总是胜出，cached总是落败
+        Assert.assertEquals(2000, counts.get("system"), 150);
+        Assert.assertNull(counts.get("cached"));
+
+        try {
+            weighted.invoke(clock -> {
+                throw new IllegalStateException("fail");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAdaptiveRecovers() {
+        SystemClock.ManualClock clock = new SystemClock.ManualClock();
+        SystemClock.setClock(clock);
+        try {
+            AdaptiveExtension<Clock> adaptive = new AdaptiveExtension<>(ExtensionLoader.getLoader(Clock.class), 1, TimeUnit.SECONDS, "cached", "system");
+            for (int i = 0; i < 20; i++) {
+                adaptive.record("cached", 100_000, true);
+                adaptive.record("system", 1_000, true);
+            }
+            Assert.assertEquals("system", adaptive.select());
+
+            // cached长时间未被选中，耗时衰减后重新被探测
+            for (int i = 0; i < 10; i++) {
+                clock.advance(1, TimeUnit.SECONDS);
+                adaptive.record("system", 1_000, true);
+            }
+            Assert.assertEquals("cached", adaptive.select());
+
+            // 探测的新样本取代变慢时的历史值
+            adaptive.record("cached", 500, true);
+            Assert.assertEquals(500, adaptive.getStats("cached").getLatency(), 10);
+            Assert.assertEquals("cached", adaptive.select());
+        } finally {
+            SystemClock.setClock(null);
+        }
+    }
+
+    private Set<String> read(String resource) throws Exception {
+        Set<String> lines = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0) {
+                    lines.add(line.trim());
+                }
+            }
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.micro.metric;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetricRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSample() {
+        MetricRegistry registry = new MetricRegistry();
+        Counter counter = registry.counter("requests_total", "Total requests");
+        Assert.assertSame(counter, registry.counter("requests_total", "Total requests"));
+        counter.inc(3);
+
+        Histogram histogram = registry.histogram("request_latency", "Request latency");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        AtomicLong value = new AtomicLong(7);
+        registry.gauge("queue_size", "Queue size", value::get);
+        registry.registerJvmMetrics().registerJvmMetrics();
+
+        try {
+            registry.gauge("queue-size", null, value::get);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        MetricSnapshot snapshot = registry.sample();
+        Assert.assertSame(snapshot, registry.getSnapshot());
+        Assert.assertEquals(3, snapshot.get("requests_total"), 0);
+        Assert.assertEquals(7, snapshot.get("queue_size"), 0);
+        Assert.assertEquals(100, snapshot.get("request_latency_count"), 0);
+        Assert.assertEquals(5050, snapshot.get("request_latency_sum"), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), snapshot.get("request_latency{quantile=\"0.99\"}"), 0);
+        Assert.assertTrue(snapshot.get("jvm_threads_live") > 0);
+        // 同一次采样的内存指标来自同一次读取
+        Assert.assertTrue(snapshot.get("jvm_memory_heap_used_bytes") > 0);
+        Assert.assertTrue(snapshot.get("jvm_memory_heap_committed_bytes") >= snapshot.get("jvm_memory_heap_used_bytes"));
+
+        String text = snapshot.toString();
+        Assert.assertTrue(text, text.startsWith("# HELP requests_total Total requests\n# TYPE requests_total counter\nrequests_total 3\n"));
+        Assert.assertTrue(text, text.contains("# TYPE request_latency summary\nrequest_latency{quantile=\"0.5\"} " + histogram.getValueAtPercentile(50) + "\n"));
+
+        Assert.assertTrue(registry.remove("queue_size"));
+        Assert.assertTrue(Double.isNaN(registry.sample().get("queue_size")));
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("requests_total", "Total requests").inc();
+        File file = new File(folder.getRoot(), "metrics/metrics.prom");
+        FileMetricExporter exporter = new FileMetricExporter(file);
+        registry.addExporter(exporter);
+
+        try (PrometheusHttpServer server = new PrometheusHttpServer(registry, 0)) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + PrometheusHttpServer.PATH).openConnection();
+            Assert.assertEquals(200, connection.getResponseCode());
+            Assert.assertEquals(PrometheusHttpServer.CONTENT_TYPE, connection.getContentType());
+            try (InputStream in = connection.getInputStream()) {
+                Assert.assertTrue(read(in).contains("requests_total 1\n"));
+            }
+        }
+
+        registry.start(10, TimeUnit.MILLISECONDS);
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((!file.exists() || Files.readAllLines(file.toPath()).size() < 2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        registry.close();
+        exporter.close();
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        Assert.assertTrue(lines.size() >= 2);
+        Assert.assertTrue(lines.get(0), lines.get(0).matches("requests_total 1 \\d+"));
+    }
+
+    @Test
+    public void testScrapeSamplesWhenNotRunning() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        AtomicLong value = new AtomicLong(1);
+        registry.gauge("queue_size", "Queue size", value::get);
+
+        try (PrometheusHttpServer server = new PrometheusHttpServer(registry, 0)) {
+            URL url = new URL("http://127.0.0.1:" + server.getPort() + PrometheusHttpServer.PATH);
+            try (InputStream in = url.openStream()) {
+                Assert.assertTrue(read(in).contains("queue_size 1\n"));
+            }
+
+            // 注册表未启动采样，每次拉取都是最新的取值
+            value.set(2);
+            try (InputStream in = url.openStream()) {
+                Assert.assertTrue(read(in).contains("queue_size 2\n"));
+            }
+        }
+    }
+
+    private String read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
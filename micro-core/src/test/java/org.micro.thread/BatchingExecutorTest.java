@@ -0,0 +1,118 @@
+package org.micro.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.metric.support.BatchingExecutorMetric;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class BatchingExecutorTest {
+
+    @Test
+    public void testBatchFromManyProducers() throws Exception {
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        AtomicInteger sum = new AtomicInteger();
+        BatchingExecutor<Integer> executor = new BatchingExecutor<>("batch-test", 1024, 16, 5, TimeUnit.MILLISECONDS,
+                BatchingExecutor.OverflowPolicy.BLOCK, batch -> {
+            sizes.add(batch.size());
+            for (Integer i : batch) {
+                sum.addAndGet(i);
+            }
+        });
+
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    executor.submit(i);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(4 * 10000 * 10001 / 2, sum.get());
+        Assert.assertEquals(0, executor.getDroppedCount());
+        for (Integer size : sizes) {
+            Assert.assertTrue(size <= 16);
+        }
+    }
+
+    @Test
+    public void testDiscardWhenFull() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        BatchingExecutor<Runnable> executor = BatchingExecutor.newTaskExecutor("discard-test", 4, BatchingExecutor.OverflowPolicy.DISCARD);
+        try {
+            executor.submit(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            while (executor.size() > 0) {
+                Thread.sleep(1);
+            }
+
+            int accepted = 0;
+            for (int i = 0; i < 10; i++) {
+                if (executor.submit(() -> {
+                })) {
+                    accepted++;
+                }
+            }
+            Assert.assertEquals(4, accepted);
+            Assert.assertEquals(6L, new BatchingExecutorMetric().getMetrices().get("batching_discard-test_dropped_count"));
+        } finally {
+            blocker.countDown();
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, executor.getConsumedCount());
+    }
+
+    @Test
+    public void testSubmitWakesIdleConsumer() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        // 空闲等待为一个maxDelay，取得足够长，消费线程不被唤醒时元素会一直留在队列中
+        BatchingExecutor<Long> executor = new BatchingExecutor<>("idle-test", 16, 16, 30, TimeUnit.SECONDS,
+                BatchingExecutor.OverflowPolicy.DISCARD, batch -> done.countDown());
+        try {
+            Thread worker = null;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("idle-test-thread-")) {
+                    worker = thread;
+                }
+            }
+            Assert.assertNotNull(worker);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (LockSupport.getBlocker(worker) != executor && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertSame(executor, LockSupport.getBlocker(worker));
+
+            // 在消费线程空闲等待时提交，消费线程应被唤醒并取走元素，而不是等到空闲等待结束
+            executor.submit(1L);
+            deadline = System.currentTimeMillis() + 5000;
+            while (executor.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(0, executor.size());
+            Assert.assertEquals(1, done.getCount());
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, done.getCount());
+    }
+
+}
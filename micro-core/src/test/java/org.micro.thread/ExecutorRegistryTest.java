@@ -0,0 +1,111 @@
+package org.micro.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.metric.support.ExecutorMetric;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorRegistryTest {
+
+    @Test
+    public void testRecordAndMetric() throws Exception {
+        ThreadPoolExecutor executor = ThreadPoolExecutorFactory.buildExecutor("fixed", "registry-test", 1, 1, 1, 0);
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(() -> {
+            });
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail();
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+
+            Map<String, Object> metrices = new ExecutorMetric().getMetrices();
+            Assert.assertEquals(1L, metrices.get("executor_registry-test_rejected_count"));
+            Assert.assertEquals(1, metrices.get("executor_registry-test_queue_size"));
+            Assert.assertEquals(1.0, metrices.get("executor_registry-test_utilization"));
+
+            blocker.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            ExecutorStats stats = ((InstrumentedExecutor) executor).getStats();
+            Assert.assertEquals(2, stats.getRunTimes().getCount());
+            Assert.assertEquals(2, stats.getWaitTimes().getCount());
+            Assert.assertFalse(ExecutorRegistry.getExecutors().containsKey("registry-test"));
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedTaskIsNotWrapped() throws Exception {
+        ThreadPoolExecutor executor = ThreadPoolExecutorFactory.buildExecutor("fixed", "registry-queue-test", 1, 1, 2, 0);
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runnable removed = () -> {
+            };
+            Runnable queued = () -> {
+            };
+            executor.execute(removed);
+            executor.execute(queued);
+            Assert.assertTrue(executor.getQueue().contains(queued));
+            Assert.assertTrue(executor.remove(removed));
+
+            List<Runnable> drained = executor.shutdownNow();
+            Assert.assertEquals(Collections.singletonList(queued), drained);
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDumpKeepsCumulativeStats() throws Exception {
+        ThreadPoolExecutor executor = ThreadPoolExecutorFactory.buildExecutor("fixed", "registry-dump-test", 1, 1, 1, 0);
+        try {
+            // 同一个任务提交两次，两次的排队时长都要记录
+            CountDownLatch done = new CountDownLatch(2);
+            Runnable task = done::countDown;
+            executor.execute(task);
+            executor.execute(task);
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            ExecutorStats stats = ((InstrumentedExecutor) executor).getStats();
+            while (stats.getRunTimes().getCount() < 2) {
+                Thread.sleep(1);
+            }
+
+            ExecutorRegistry.dump();
+            Map<String, Object> metrices = new ExecutorMetric().getMetrices();
+            Assert.assertEquals(2L, metrices.get("executor_registry-dump-test_wait_time_count"));
+            Assert.assertEquals(2L, metrices.get("executor_registry-dump-test_run_time_count"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.micro.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.metric.support.ForkJoinPoolMetric;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ForkJoinThreadExecutorTest {
+
+    @Test
+    public void testExecuteAndMetric() throws Exception {
+        ThreadPoolExecutor executor = ThreadPoolExecutorFactory.buildExecutor("forkjoin", "fj-test", 1, 4, -1, 0);
+        Assert.assertTrue(executor instanceof ForkJoinThreadExecutor);
+
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                Assert.assertTrue(Thread.currentThread().getName().startsWith("fj-test-forkjoin-"));
+                count.incrementAndGet();
+                latch.countDown();
+            });
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1000, count.get());
+
+        Map<String, Object> metrices = new ForkJoinPoolMetric().getMetrices();
+        Assert.assertEquals(4, metrices.get("forkjoin_fj-test_parallelism"));
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertFalse(ForkJoinThreadExecutor.getExecutors().containsKey("fj-test"));
+    }
+
+}
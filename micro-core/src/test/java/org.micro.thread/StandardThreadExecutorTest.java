@@ -0,0 +1,102 @@
+package org.micro.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StandardThreadExecutorTest {
+
+    @Test
+    public void testRejectedTaskIsNotExecuted() throws Exception {
+        StandardThreadExecutor executor = new StandardThreadExecutor(1, 1, 0);
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            AtomicBoolean ran = new AtomicBoolean();
+            try {
+                executor.execute(() -> ran.set(true));
+                Assert.fail();
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+
+            blocker.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertFalse(ran.get());
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAdaptiveLimitShrinksWhenQueueing() throws Exception {
+        StandardThreadExecutor executor = new StandardThreadExecutor(2, 2, 1000);
+        executor.enableAdaptiveLimit(1, TimeUnit.MILLISECONDS);
+        int initialLimit = executor.getLimit();
+        try {
+            for (int i = 0; i < 400; i++) {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 超过自适应限制
+                }
+            }
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+            Assert.assertTrue(executor.getLimit() < initialLimit);
+            Assert.assertTrue(executor.getWaitTimePercentile(99) > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitTimeWithoutAdaptiveLimit() throws Exception {
+        StandardThreadExecutor executor = new StandardThreadExecutor(1, 1, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runnable queued = () -> {
+            };
+            executor.execute(queued);
+            Assert.assertTrue(executor.getQueue().contains(queued));
+
+            Thread.sleep(20);
+            blocker.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, executor.getStats().getWaitTimes().getCount());
+            Assert.assertTrue(executor.getWaitTimePercentile(100) >= 10);
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
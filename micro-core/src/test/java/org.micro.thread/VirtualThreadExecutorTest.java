@@ -0,0 +1,115 @@
+package org.micro.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadExecutorTest {
+
+    @Test
+    public void testRejectWhenLimitReached() throws Exception {
+        // 信号量限流与线程类型无关，用平台线程工厂在任何JVM上都能验证
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(new NamedThreadFactory("virtual-test", true), 2,
+                new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        blocker.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, executor.getActiveCount());
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail();
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+
+            // 任务结束后释放许可
+            blocker.countDown();
+            CountDownLatch done = new CountDownLatch(1);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            executor.execute(done::countDown);
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(3, executor.getTaskCount());
+            Assert.assertEquals(2, executor.getLargestPoolSize());
+        } finally {
+            blocker.countDown();
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        try {
+            executor.execute(() -> {
+            });
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVirtualThreadPool() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutorFactory.VirtualThreadPool().getExecutor("virtual-pool-test", 1, 4, 0, 60_000);
+        try {
+            if (VirtualThreadExecutor.isSupported()) {
+                Assert.assertTrue(executor instanceof VirtualThreadExecutor);
+                Assert.assertEquals(4, ((VirtualThreadExecutor) executor).getMaxConcurrency());
+            } else {
+                // Java 8等不支持虚拟线程的JVM上回退为平台线程的cached线程池
+                Assert.assertNull(VirtualThreadExecutor.newVirtualThreadFactory("virtual-pool-test"));
+                Assert.assertFalse(executor instanceof VirtualThreadExecutor);
+                Assert.assertEquals(4, executor.getMaximumPoolSize());
+            }
+
+            String[] name = new String[1];
+            CountDownLatch done = new CountDownLatch(1);
+            executor.execute(() -> {
+                name[0] = Thread.currentThread().getName();
+                done.countDown();
+            });
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(name[0], name[0].startsWith("virtual-pool-test"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetThreadType() {
+        String global = ThreadPoolExecutorFactory.THREAD_TYPE_KEY;
+        String sms = ThreadPoolExecutorFactory.THREAD_TYPE_KEY + ".sms";
+        try {
+            Assert.assertEquals("fixed", ThreadPoolExecutorFactory.getThreadType("fixed", "sms"));
+
+            System.setProperty(global, "cached");
+            Assert.assertEquals("cached", ThreadPoolExecutorFactory.getThreadType("fixed", "sms"));
+
+            System.setProperty(sms, "virtual");
+            Assert.assertEquals("virtual", ThreadPoolExecutorFactory.getThreadType("fixed", "sms"));
+            Assert.assertEquals("cached", ThreadPoolExecutorFactory.getThreadType("fixed", "oss"));
+
+            System.setProperty(sms, "");
+            Assert.assertEquals("cached", ThreadPoolExecutorFactory.getThreadType("fixed", "sms"));
+        } finally {
+            System.clearProperty(global);
+            System.clearProperty(sms);
+        }
+    }
+
+}
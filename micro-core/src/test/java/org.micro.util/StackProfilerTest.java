@@ -0,0 +1,144 @@
+package org.micro.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.micro.metric.MetricRegistry;
+import org.micro.metric.PrometheusHttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StackProfilerTest {
+
+    private static final CountDownLatch STARTED = new CountDownLatch(1);
+    private static volatile boolean running = true;
+    private static volatile long sink;
+
+    @Test
+    public void testSample() throws Exception {
+        Thread spinner = new Thread(StackProfilerTest::spin, "profiler-spinner");
+        spinner.setDaemon(true);
+        spinner.start();
+        STARTED.await();
+        // 等待spinner从countDown返回，栈顶进入spin
+        StackTraceElement[] stack;
+        while ((stack = spinner.getStackTrace()).length == 0 || !"spin".equals(stack[0].getMethodName())) {
+            Thread.sleep(1);
+        }
+
+        StackProfiler profiler = new StackProfiler(ManagementFactory.getThreadMXBean(), 1, TimeUnit.MILLISECONDS, 64, 5, 0.01);
+        try {
+            for (int i = 0; i < 10; i++) {
+                profiler.sample();
+                Thread.sleep(1);
+            }
+
+            Assert.assertTrue(String.valueOf(profiler.getSampleCount()), profiler.getSampleCount() >= 10);
+            String folded = profiler.writeFolded(new StringBuilder()).toString();
+            Assert.assertTrue(folded, folded.contains(";org.micro.util.StackProfilerTest.spin "));
+            for (String line : folded.split("\n")) {
+                Assert.assertTrue(line, line.matches("\\S+ \\d+"));
+            }
+
+            List<String> stuck = profiler.getStuckThreads();
+            Assert.assertEquals(stuck.toString(), 1, profiler.getStuckThreadCount());
+            Assert.assertTrue(stuck.get(0), stuck.get(0).startsWith("Stuck in org.micro.util.StackProfilerTest.spin for 10 samples: \"profiler-spinner\""));
+
+            try (PrometheusHttpServer server = new PrometheusHttpServer(new MetricRegistry(), 0).addProfiler(profiler)) {
+                long samples = profiler.getSampleCount();
+                get("http://127.0.0.1:" + server.getPort() + PrometheusHttpServer.PROFILE_PATH + "?noreset=true&x=reset%3Dtrue");
+                Assert.assertEquals(samples, profiler.getSampleCount());
+
+                String body = get("http://127.0.0.1:" + server.getPort() + PrometheusHttpServer.PROFILE_PATH + "?x=1&reset=true");
+                Assert.assertTrue(body.contains("org.micro.util.StackProfilerTest.spin "));
+                Assert.assertEquals(0, profiler.getSampleCount());
+            }
+
+            running = false;
+            spinner.join();
+            profiler.sample();
+            Assert.assertEquals(0, profiler.getStuckThreadCount());
+        } finally {
+            running = false;
+        }
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        StackProfiler profiler = new StackProfiler(ManagementFactory.getThreadMXBean(), 5, TimeUnit.MILLISECONDS, 16, 50, 0.01);
+        profiler.start();
+        Assert.assertTrue(profiler.isRunning());
+        Thread.sleep(200);
+        profiler.close();
+        Assert.assertFalse(profiler.isRunning());
+        Assert.assertTrue(profiler.getDelayNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        Assert.assertTrue(profiler.getOverhead() > 0);
+    }
+
+    @Test
+    public void testRestartDuringTick() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+        CountDownLatch ticking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadMXBean delegate = ManagementFactory.getThreadMXBean();
+        ThreadMXBean threads = (ThreadMXBean) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ThreadMXBean.class},
+                (proxy, method, args) -> {
+                    if ("getAllThreadIds".equals(method.getName()) && ticks.incrementAndGet() == 1) {
+                        ticking.countDown();
+                        release.await();
+                    }
+                    return method.invoke(delegate, args);
+                });
+
+        StackProfiler profiler = new StackProfiler(threads, 10, TimeUnit.MILLISECONDS, 16, 50, 0.5);
+        try {
+            profiler.start();
+            Assert.assertTrue(ticking.await(5, TimeUnit.SECONDS));
+            // 第一次采样进行中重新启动，旧的采样结束后不再续期
+            profiler.stop();
+            profiler.start();
+            release.countDown();
+
+            Thread.sleep(300);
+            int count = ticks.get();
+            Assert.assertTrue(String.valueOf(count), count > 1 && count <= 40);
+        } finally {
+            release.countDown();
+            profiler.close();
+        }
+    }
+
+    private static void spin() {
+        long x = 0;
+        STARTED.countDown();
+        while (running) {
+            x++;
+        }
+        sink = x;
+    }
+
+    private String get(String url) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        Assert.assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
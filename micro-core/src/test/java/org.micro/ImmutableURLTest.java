@@ -0,0 +1,78 @@
+package org.micro;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImmutableURLTest {
+
+    private static final String[] URLS = {
+            "micro://127.0.0.1:8080/org.micro.DemoService?version=1.0.1&timeout=3000&weight=0.5&retry=true",
+            "micro://127.0.0.1/path/to/service",
+            "file:/home/micro/data",
+            "127.0.0.1:2181",
+            "zookeeper://127.0.0.1:2181?backup=127.0.0.2:2181, 127.0.0.3:2181& group = demo &&flag",
+            "host:"
+    };
+
+    @Test
+    public void testSameAsURL() {
+        for (String str : URLS) {
+            URL url = URL.valueOf(str);
+            ImmutableURL immutableURL = ImmutableURL.valueOf(str);
+            Assert.assertEquals(str, url.getProtocol(), immutableURL.getProtocol());
+            Assert.assertEquals(str, url.getHost(), immutableURL.getHost());
+            Assert.assertEquals(str, url.getPort().intValue(), immutableURL.getPort());
+            Assert.assertEquals(str, url.getPath(), immutableURL.getPath());
+            Assert.assertEquals(str, url.getParameters(), immutableURL.getParameters());
+
+            // 规范形式可以还原
+            Assert.assertEquals(immutableURL, ImmutableURL.valueOf(immutableURL.toString()));
+            Assert.assertEquals(immutableURL, ImmutableURL.of(url));
+        }
+    }
+
+    @Test
+    public void testTypedParameter() {
+        ImmutableURL url = ImmutableURL.valueOf(URLS[0]);
+        Assert.assertEquals(3000, url.getParameter("timeout", 0));
+        Assert.assertEquals(3000L, url.getParameter("timeout", 0L));
+        Assert.assertEquals(0.5f, url.getParameter("weight", 0f), 0);
+        Assert.assertEquals(0.5d, url.getParameter("weight", 0d), 0);
+        Assert.assertTrue(url.getParameter("retry", false));
+        Assert.assertEquals(7, url.getParameter("missing", 7));
+        Assert.assertEquals("1.0.1", url.getVersion());
+        Assert.assertEquals(Thread.State.BLOCKED, url.addParameter("state", "BLOCKED").getParameter("state", Thread.State.NEW));
+
+        try {
+            url.getParameter("version", 0);
+            Assert.fail();
+        } catch (NumberFormatException e) {
+            // 与URL一致
+        }
+    }
+
+    @Test
+    public void testImmutableAndIntern() {
+        ImmutableURL url = ImmutableURL.of(URLS[0]);
+        Assert.assertSame(url, ImmutableURL.of(URLS[0]));
+        // 参数顺序不同的URL驻留为同一个实例
+        Assert.assertSame(url, ImmutableURL.of("micro://127.0.0.1:8080/org.micro.DemoService?weight=0.5&retry=true&timeout=3000&version=1.0.1"));
+
+        ImmutableURL changed = url.addParameter("timeout", 5000).setPort(9090);
+        Assert.assertNotEquals(url, changed);
+        Assert.assertEquals(3000, url.getParameter("timeout", 0));
+        Assert.assertEquals(5000, changed.getParameter("timeout", 0));
+        Assert.assertEquals(9090, changed.getPort());
+        Assert.assertSame(url, url.addParameter("timeout", 3000));
+        Assert.assertEquals(url, changed.setPort(8080).addParameter("timeout", "3000"));
+        Assert.assertEquals(url.hashCode(), changed.setPort(8080).addParameter("timeout", "3000").hashCode());
+
+        try {
+            url.getParameters().put("a", "b");
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            // 只读
+        }
+    }
+
+}